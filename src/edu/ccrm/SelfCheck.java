@@ -0,0 +1,127 @@
+package edu.ccrm;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.io.CsvReader;
+import edu.ccrm.io.ImportReport;
+import edu.ccrm.io.ParallelCsvImporter;
+import edu.ccrm.service.ConcurrentCourseService;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.CourseServiceImpl;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Regression checks that run without a test framework
+ * Each check throws AssertionError on failure; the exit status is non-zero if any fails.
+ *
+ * Usage: java -cp bin edu.ccrm.SelfCheck
+ */
+public final class SelfCheck {
+    private static final String STRAY_QUOTES_CSV = "ID,RegNo,Name,Email\n"
+            + "S1,R1,O\"Brien,o1@x.edu\n"              // Stray quote in an unquoted field
+            + "S2,R2,\"Lee, \"\"Jo\"\"\nSmith\",l2@x.edu\n" // Quoted: comma, escaped quotes, newline
+            + "S3,R3,5'11\" Tall,t3@x.edu\r\n"          // Stray quote at the end of a field, CRLF
+            + "S4,R4,\"Quoted\"Tail,q4@x.edu\n"         // Text after a closing quote
+            + "S5,R5,O\"Neil,o5@x.edu\n"
+            + "S6,R6,Plain,p6@x.edu\n";
+    
+    private static final String CARRIAGE_RETURNS_CSV = "ID,RegNo,Name,Email\r"
+            + "S1,R1,Ada,a1@x.edu\r"                    // Bare CR ends a record and a line
+            + "S2,R2,\"Two\rParts\",b2@x.edu\n"          // Bare CR inside quotes is neither
+            + "S3,R3,Cy,c3@x.edu\r\r\n"                 // CR, then a blank CRLF line
+            + "S4,R4,\"Multi\r\nLine\",d4@x.edu\r\n"     // CRLF inside quotes is one line
+            + "S5,R5,Eve,e5@x.edu\r"
+            + "S6,R6,Fay,f6@x.edu\n";
+    
+    private SelfCheck() {}
+    
+    public static void main(String[] args) throws Exception {
+        courseSearchKeepsInfixMatches(new CourseServiceImpl());
+        courseSearchKeepsInfixMatches(new ConcurrentCourseService());
+        chunkedImportMatchesSequentialRead(STRAY_QUOTES_CSV);
+        chunkedImportMatchesSequentialRead(CARRIAGE_RETURNS_CSV);
+        System.out.println("All checks passed");
+    }
+    
+    // An unlimited search returns every course containing the query, even when a token of another
+    // course is within typo distance of it ("grad" is one edit from "gram")
+    private static void courseSearchKeepsInfixMatches(CourseService courses) {
+        courses.addCourse(course("CS101", "Programming Basics"));
+        courses.addCourse(course("CS102", "Grad Seminar"));
+        
+        List<String> codes = codes(courses.search("gram"));
+        check(codes.contains("CS101"), "infix match missing from unlimited search: " + codes);
+        check(codes.contains("CS102"), "typo match missing from unlimited search: " + codes);
+    }
+    
+    // The chunked import must cut the file where a single CsvReader would end a record and number
+    // lines the way it does, whatever the chunk size
+    private static void chunkedImportMatchesSequentialRead(String csv) throws IOException {
+        Path file = Files.createTempFile("selfcheck", ".csv");
+        try {
+            Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+            List<String> expected = readSequentially(file);
+            check(expected.size() == 6, "sequential read found " + expected.size() + " records: " + expected);
+            
+            for (int chunkBytes = 1; chunkBytes <= csv.length(); chunkBytes++) {
+                List<String> records = new ArrayList<>();
+                ImportReport report = new ParallelCsvImporter(chunkBytes, 2, 4)
+                        .importFile(file, SelfCheck::describe, (Consumer<List<String>>) records::addAll);
+                check(expected.equals(records), "chunk size " + chunkBytes + ": " + records + ", expected " + expected);
+                check(report.getRejected() == 0, "chunk size " + chunkBytes + ": " + report.getRejections());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    private static List<String> readSequentially(Path file) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file)) {
+            CsvReader csv = new CsvReader(channel);
+            csv.next(); // Header
+            while (csv.next()) {
+                records.add(describe(csv));
+            }
+        }
+        return records;
+    }
+    
+    // Line number and fields, so a record split or merged at a chunk boundary shows up
+    private static String describe(CsvReader csv) {
+        StringBuilder record = new StringBuilder().append(csv.getLineNumber());
+        for (int i = 0; i < csv.getFieldCount(); i++) {
+            record.append('|').append(csv.getString(i));
+        }
+        return record.toString();
+    }
+    
+    private static Course course(String code, String title) {
+        return new Course.Builder(new CourseCode(code), title)
+                .instructor("Dr. Check")
+                .department("Computing")
+                .credits(3)
+                .semester(Semester.FALL)
+                .build();
+    }
+    
+    private static List<String> codes(List<Course> courses) {
+        List<String> codes = new ArrayList<>();
+        for (Course course : courses) {
+            codes.add(course.getCode().getCode());
+        }
+        return codes;
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
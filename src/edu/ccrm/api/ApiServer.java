@@ -0,0 +1,676 @@
+package edu.ccrm.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.ImportReport;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.RegistrySnapshot;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/JSON API over the student, course, transcript and import/export services
+ * Runs on the JDK's com.sun.net.httpserver, so it needs no dependencies. Requests run one virtual
+ * thread each on Java 21+, or on a fixed pool of platform threads on Java 17. The services must be
+ * safe for concurrent use (ConcurrentStudentService, ConcurrentCourseService).
+ *
+ * Routes (bodies are flat JSON objects):
+ *   GET    /api/students[?q=&limit=]                 list, or search by name, regNo or id
+ *   POST   /api/students                             {id, firstName, lastName, email, regNo}
+ *   GET    /api/students/{id}                        with courses and grades
+ *   DELETE /api/students/{id}                        deactivate
+ *   GET    /api/students/{id}/transcript
+ *   GET    /api/courses[?q=|department=|instructor=|semester=]
+ *   POST   /api/courses                              {code, title, credits, instructor, department, semester, capacity}
+ *   GET    /api/courses/{code}
+ *   DELETE /api/courses/{code}                       deactivate
+ *   GET    /api/courses/{code}/roster                enrolled students, waitlist, grade distribution
+ *   POST   /api/enrollments                          {studentId, courseCode}; joins the waitlist when full
+ *   DELETE /api/enrollments/{studentId}/{courseCode}
+ *   DELETE /api/waitlist/{studentId}/{courseCode}
+ *   POST   /api/grades                               {studentId, courseCode, grade}
+ *   GET    /api/reports/gpa-distribution
+ *   GET    /api/reports/top-students[?count=10]
+ *   POST   /api/import/{students|courses|enrollments}   {file}, a CSV file in the data directory
+ *   POST   /api/export/{students|courses|enrollments}   {file}
+ */
+public class ApiServer implements Closeable {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_REJECTIONS_SHOWN = 100;
+    private static final int STOP_GRACE_SECONDS = 2;
+    
+    static {
+        // The JDK server writes headers and body separately; without TCP_NODELAY every keep-alive
+        // response stalls about 40 ms on Nagle's algorithm and delayed ACKs. Read once, at class load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final TranscriptService transcriptService;
+    private final ImportExportService importExportService;
+    private final AppConfig config;
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    // A request failure that maps straight to an HTTP status
+    public static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        private final int status;
+        
+        public ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+        
+        public int getStatus() { return status; }
+    }
+    
+    public ApiServer(StudentService studentService, CourseService courseService,
+                     TranscriptService transcriptService, ImportExportService importExportService) {
+        this.studentService = Objects.requireNonNull(studentService, "Student service cannot be null");
+        this.courseService = Objects.requireNonNull(courseService, "Course service cannot be null");
+        this.transcriptService = Objects.requireNonNull(transcriptService, "Transcript service cannot be null");
+        this.importExportService = Objects.requireNonNull(importExportService, "Import/export service cannot be null");
+        this.config = AppConfig.getInstance();
+    }
+    
+    public synchronized void start() throws IOException {
+        start(config.getApiBindAddress(), config.getApiPort());
+    }
+    
+    // Port 0 picks a free port; see getPort
+    public synchronized void start(String bindAddress, int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("API server already running on port " + getPort());
+        }
+        HttpServer created = HttpServer.create(new InetSocketAddress(bindAddress, port), config.getApiBacklog());
+        created.createContext("/api/", this::handle);
+        executor = newRequestExecutor(config.getApiWorkerThreads());
+        created.setExecutor(executor);
+        created.start();
+        server = created;
+    }
+    
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+    
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+    
+    public synchronized String getUrl() {
+        if (server == null) {
+            return null;
+        }
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/api/";
+    }
+    
+    // Stops accepting connections and gives requests in flight a moment to finish
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(STOP_GRACE_SECONDS);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+    
+    @Override
+    public void close() {
+        stop();
+    }
+    
+    // One virtual thread per request where the runtime has them (Java 21+), otherwise a fixed pool of
+    // platform threads. Looked up reflectively so the sources still build on the Java 17 baseline.
+    static ExecutorService newRequestExecutor(int workerThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "api-worker-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonWriter json = new JsonWriter();
+        int status;
+        try {
+            status = route(exchange, json);
+        } catch (ApiException e) {
+            status = error(json, e.getStatus(), e.getMessage());
+        } catch (DuplicateEnrollmentException | CourseFullException e) {
+            status = error(json, 409, e.getMessage());
+        } catch (MaxCreditLimitExceededException e) {
+            status = error(json, 422, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = error(json, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            status = error(json, 500, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        send(exchange, status, json);
+    }
+    
+    private int route(HttpExchange exchange, JsonWriter json) throws IOException, DuplicateEnrollmentException {
+        String method = exchange.getRequestMethod();
+        List<String> path = segments(exchange.getRequestURI().getRawPath());
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String resource = path.isEmpty() ? "" : path.get(0);
+        
+        return switch (resource) {
+            case "students" -> students(exchange, method, path, query, json);
+            case "courses" -> courses(exchange, method, path, query, json);
+            case "enrollments" -> enrollments(exchange, method, path, json);
+            case "waitlist" -> waitlist(method, path, json);
+            case "grades" -> grades(exchange, method, path, json);
+            case "reports" -> reports(method, path, query, json);
+            case "import" -> importFile(exchange, method, path, json);
+            case "export" -> exportFile(exchange, method, path, json);
+            default -> throw new ApiException(404, "No such resource: /api/" + resource);
+        };
+    }
+    
+    // Students
+    private int students(HttpExchange exchange, String method, List<String> path, Map<String, String> query,
+                         JsonWriter json) throws IOException {
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                String search = query.get("q");
+                List<RegistrySnapshot.StudentRecord> students = search == null
+                        ? studentService.snapshot().getStudents() : records(studentService.search(search));
+                int limit = Math.min(students.size(), intParam(query, "limit", Integer.MAX_VALUE));
+                json.beginArray();
+                for (int i = 0; i < limit; i++) {
+                    writeStudentRecord(json, students.get(i));
+                }
+                json.endArray();
+                return 200;
+            }
+            if (method.equals("POST")) {
+                Map<String, String> body = readBody(exchange);
+                String id = JsonReader.getString(body, "id");
+                if (studentService.findById(id).isPresent()) {
+                    throw new ApiException(409, "Student with ID " + id + " already exists");
+                }
+                Name name = new Name(JsonReader.getString(body, "firstName"), JsonReader.getString(body, "lastName"));
+                Student student = new Student(id, name, JsonReader.getString(body, "email"), JsonReader.getString(body, "regNo"));
+                studentService.addStudent(student);
+                writeStudentRecord(json, studentService.snapshot().getStudent(id).orElseThrow(() -> notFound("Student", id)));
+                return 201;
+            }
+            throw methodNotAllowed(method, path);
+        }
+        
+        String id = path.get(1);
+        if (path.size() == 2 && method.equals("GET")) {
+            studentService.readStudent(id, student -> writeStudent(json, student))
+                    .orElseThrow(() -> notFound("Student", id));
+            return 200;
+        }
+        if (path.size() == 2 && method.equals("DELETE")) {
+            requireStudent(id);
+            studentService.deactivateStudent(id);
+            json.beginObject().field("id", id).field("active", false).endObject();
+            return 200;
+        }
+        if (path.size() == 3 && path.get(2).equals("transcript") && method.equals("GET")) {
+            studentService.readStudent(id, student -> writeTranscript(json, student))
+                    .orElseThrow(() -> notFound("Student", id));
+            return 200;
+        }
+        throw methodNotAllowed(method, path);
+    }
+    
+    // Courses
+    private int courses(HttpExchange exchange, String method, List<String> path, Map<String, String> query,
+                        JsonWriter json) throws IOException {
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                List<Course> courses;
+                if (query.containsKey("q")) {
+                    courses = courseService.search(query.get("q"));
+                } else if (query.containsKey("department")) {
+                    courses = courseService.findByDepartment(query.get("department"));
+                } else if (query.containsKey("instructor")) {
+                    courses = courseService.findByInstructor(query.get("instructor"));
+                } else if (query.containsKey("semester")) {
+                    courses = courseService.findBySemester(Semester.valueOf(query.get("semester").toUpperCase()));
+                } else {
+                    courses = courseService.getAllCourses();
+                }
+                json.beginArray();
+                for (Course course : courses) {
+                    writeCourse(json, course);
+                }
+                json.endArray();
+                return 200;
+            }
+            if (method.equals("POST")) {
+                Map<String, String> body = readBody(exchange);
+                CourseCode code = new CourseCode(JsonReader.getString(body, "code"));
+                if (courseService.findById(code.getCode()).isPresent()) {
+                    throw new ApiException(409, "Course with code " + code.getCode() + " already exists");
+                }
+                Course course = new Course.Builder(code, JsonReader.getString(body, "title"))
+                        .credits(JsonReader.getInt(body, "credits", 0))
+                        .instructor(JsonReader.getString(body, "instructor"))
+                        .department(JsonReader.getString(body, "department"))
+                        .semester(Semester.valueOf(JsonReader.getString(body, "semester").toUpperCase()))
+                        .capacity(JsonReader.getInt(body, "capacity", 0))
+                        .build();
+                courseService.addCourse(course);
+                writeCourse(json, course);
+                return 201;
+            }
+            throw methodNotAllowed(method, path);
+        }
+        
+        Course course = requireCourse(path.get(1));
+        if (path.size() == 2 && method.equals("GET")) {
+            writeCourse(json, course);
+            return 200;
+        }
+        if (path.size() == 2 && method.equals("DELETE")) {
+            courseService.deactivateCourse(course.getCode().getCode());
+            writeCourse(json, course);
+            return 200;
+        }
+        if (path.size() == 3 && path.get(2).equals("roster") && method.equals("GET")) {
+            writeRoster(json, course);
+            return 200;
+        }
+        throw methodNotAllowed(method, path);
+    }
+    
+    // Enrollments and waitlists
+    private int enrollments(HttpExchange exchange, String method, List<String> path, JsonWriter json)
+            throws IOException, DuplicateEnrollmentException {
+        if (path.size() == 1 && method.equals("POST")) {
+            Map<String, String> body = readBody(exchange);
+            String studentId = JsonReader.getString(body, "studentId");
+            requireStudent(studentId);
+            Course course = requireCourse(JsonReader.getString(body, "courseCode"));
+            
+            boolean enrolled = studentService.enrollOrWaitlist(studentId, course);
+            json.beginObject()
+                    .field("studentId", studentId)
+                    .field("courseCode", course.getCode().getCode())
+                    .field("status", enrolled ? "ENROLLED" : "WAITLISTED");
+            if (!enrolled) {
+                json.field("position", course.getWaitlistPosition(studentId));
+            }
+            json.endObject();
+            return enrolled ? 201 : 202;
+        }
+        if (path.size() == 3 && method.equals("DELETE")) {
+            String studentId = path.get(1);
+            requireStudent(studentId);
+            Course course = requireCourse(path.get(2));
+            studentService.unenrollStudentFromCourse(studentId, course);
+            json.beginObject()
+                    .field("studentId", studentId)
+                    .field("courseCode", course.getCode().getCode())
+                    .field("status", "DROPPED")
+                    .endObject();
+            return 200;
+        }
+        throw methodNotAllowed(method, path);
+    }
+    
+    private int waitlist(String method, List<String> path, JsonWriter json) {
+        if (path.size() == 3 && method.equals("DELETE")) {
+            String studentId = path.get(1);
+            requireStudent(studentId);
+            Course course = requireCourse(path.get(2));
+            studentService.leaveWaitlist(studentId, course);
+            json.beginObject()
+                    .field("studentId", studentId)
+                    .field("courseCode", course.getCode().getCode())
+                    .field("status", "LEFT_WAITLIST")
+                    .endObject();
+            return 200;
+        }
+        throw methodNotAllowed(method, path);
+    }
+    
+    // Grades and reports
+    private int grades(HttpExchange exchange, String method, List<String> path, JsonWriter json) throws IOException {
+        if (path.size() == 1 && method.equals("POST")) {
+            Map<String, String> body = readBody(exchange);
+            String studentId = JsonReader.getString(body, "studentId");
+            requireStudent(studentId);
+            Course course = requireCourse(JsonReader.getString(body, "courseCode"));
+            Grade grade = Grade.valueOf(JsonReader.getString(body, "grade").toUpperCase());
+            
+            transcriptService.recordGrade(studentId, course.getCode().getCode(), grade);
+            json.beginObject()
+                    .field("studentId", studentId)
+                    .field("courseCode", course.getCode().getCode())
+                    .field("grade", grade.name())
+                    .field("gpa", transcriptService.calculateGPA(studentId), 2)
+                    .endObject();
+            return 200;
+        }
+        throw methodNotAllowed(method, path);
+    }
+    
+    private int reports(String method, List<String> path, Map<String, String> query, JsonWriter json) {
+        if (path.size() != 2 || !method.equals("GET")) {
+            throw methodNotAllowed(method, path);
+        }
+        switch (path.get(1)) {
+            case "gpa-distribution" -> {
+                json.beginObject();
+                for (Map.Entry<String, Double> band : new TreeMap<>(transcriptService.getGPADistribution()).entrySet()) {
+                    json.field(band.getKey(), band.getValue(), 2);
+                }
+                json.endObject();
+            }
+            case "top-students" -> {
+                json.beginArray();
+                for (RegistrySnapshot.StudentRecord student : transcriptService.getTopStudents(intParam(query, "count", 10))) {
+                    writeStudentRecord(json, student);
+                }
+                json.endArray();
+            }
+            default -> throw new ApiException(404, "No such report: " + path.get(1));
+        }
+        return 200;
+    }
+    
+    // Import and export of CSV files in the data directory
+    private int importFile(HttpExchange exchange, String method, List<String> path, JsonWriter json) throws IOException {
+        if (path.size() != 2 || !method.equals("POST")) {
+            throw methodNotAllowed(method, path);
+        }
+        String file = dataFile(readBody(exchange));
+        if (!Files.exists(config.getDataPath().resolve(file))) {
+            throw new ApiException(404, "File not found in the data directory: " + file);
+        }
+        ImportReport report = switch (path.get(1)) {
+            case "students" -> importExportService.importStudents(file, studentService);
+            case "courses" -> importExportService.importCourses(file, courseService);
+            case "enrollments" -> importExportService.importEnrollments(file, transcriptService);
+            default -> throw new ApiException(404, "Cannot import " + path.get(1));
+        };
+        
+        json.beginObject()
+                .field("file", file)
+                .field("accepted", report.getAccepted())
+                .field("rejected", report.getRejected());
+        json.name("rejections").beginArray();
+        List<ImportReport.Rejection> rejections = report.getRejections();
+        for (int i = 0; i < Math.min(rejections.size(), MAX_REJECTIONS_SHOWN); i++) {
+            json.beginObject()
+                    .field("line", rejections.get(i).getLine())
+                    .field("reason", rejections.get(i).getReason())
+                    .endObject();
+        }
+        json.endArray().endObject();
+        return 200;
+    }
+    
+    private int exportFile(HttpExchange exchange, String method, List<String> path, JsonWriter json) throws IOException {
+        if (path.size() != 2 || !method.equals("POST")) {
+            throw methodNotAllowed(method, path);
+        }
+        String file = dataFile(readBody(exchange));
+        int records;
+        switch (path.get(1)) {
+            case "students" -> {
+                RegistrySnapshot snapshot = studentService.snapshot();
+                importExportService.exportStudents(snapshot, file);
+                records = snapshot.getStudentCount();
+            }
+            case "courses" -> {
+                List<Course> courses = courseService.getAllCourses();
+                importExportService.exportCourses(courses, file);
+                records = courses.size();
+            }
+            case "enrollments" -> {
+                RegistrySnapshot snapshot = studentService.snapshot();
+                importExportService.exportEnrollments(snapshot, file);
+                records = snapshot.getStudentCount();
+            }
+            default -> throw new ApiException(404, "Cannot export " + path.get(1));
+        }
+        json.beginObject().field("file", file).field("records", records).endObject();
+        return 200;
+    }
+    
+    // Only plain file names: the API must not read or write outside the data directory
+    private static String dataFile(Map<String, String> body) {
+        String file = JsonReader.getString(body, "file");
+        if (file.contains("/") || file.contains("\\") || file.equals("..") || file.equals(".")) {
+            throw new ApiException(400, "File must be a plain file name in the data directory: " + file);
+        }
+        return file;
+    }
+    
+    // JSON views
+    // Lists are written from a registry snapshot: live Student objects may be changing underneath
+    private static void writeStudentRecord(JsonWriter json, RegistrySnapshot.StudentRecord student) {
+        json.beginObject()
+                .field("id", student.getId())
+                .field("regNo", student.getRegNo())
+                .field("name", student.getFullName())
+                .field("email", student.getEmail())
+                .field("status", student.getStatus() == null ? null : student.getStatus().name())
+                .field("active", student.isActive())
+                .field("gpa", student.getGpa(), 2)
+                .field("totalCredits", student.getTotalCredits())
+                .field("courseCount", student.getCourseCodes().size())
+                .endObject();
+    }
+    
+    // Walks the student's courses: call under StudentService.readStudent
+    private static JsonWriter writeStudent(JsonWriter json, Student student) {
+        json.beginObject()
+                .field("id", student.getId())
+                .field("regNo", student.getRegNo())
+                .field("firstName", student.getName().getFirstName())
+                .field("lastName", student.getName().getLastName())
+                .field("email", student.getEmail())
+                .field("status", student.getStatus() == null ? null : student.getStatus().name())
+                .field("active", student.isActive())
+                .field("createdDate", student.getCreatedDate())
+                .field("gpa", student.calculateGPA(), 2)
+                .field("totalCredits", student.getTotalCredits());
+        json.name("courses");
+        writeEnrollments(json, student);
+        return json.endObject();
+    }
+    
+    // Walks the student's courses: call under StudentService.readStudent
+    private static JsonWriter writeTranscript(JsonWriter json, Student student) {
+        json.beginObject()
+                .field("id", student.getId())
+                .field("regNo", student.getRegNo())
+                .field("name", student.getName().getFullName())
+                .field("status", student.getStatus() == null ? null : student.getStatus().name())
+                .field("totalCredits", student.getTotalCredits())
+                .field("gpa", student.calculateGPA(), 2);
+        json.name("courses");
+        writeEnrollments(json, student);
+        return json.endObject();
+    }
+    
+    private static void writeEnrollments(JsonWriter json, Student student) {
+        json.beginArray();
+        for (Course course : student.getEnrolledCoursesView()) {
+            Grade grade = student.getGrade(course);
+            json.beginObject()
+                    .field("code", course.getCode().getCode())
+                    .field("title", course.getTitle())
+                    .field("credits", course.getCredits())
+                    .field("semester", course.getSemester().name())
+                    .field("grade", grade == null ? null : grade.name());
+            if (grade != null) {
+                json.field("gradePoints", grade.getGradePoints(), 1);
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+    
+    private static void writeCourse(JsonWriter json, Course course) {
+        json.beginObject()
+                .field("code", course.getCode().getCode())
+                .field("title", course.getTitle())
+                .field("credits", course.getCredits())
+                .field("instructor", course.getInstructor())
+                .field("department", course.getDepartment())
+                .field("semester", course.getSemester().name())
+                .field("active", course.isActive())
+                .field("capacity", course.getCapacity())
+                .field("seatsTaken", course.getSeatsTaken())
+                .field("waitlistSize", course.getWaitlistSize())
+                .endObject();
+    }
+    
+    private void writeRoster(JsonWriter json, Course course) {
+        String code = course.getCode().getCode();
+        json.beginObject()
+                .field("code", code)
+                .field("capacity", course.getCapacity())
+                .field("seatsTaken", course.getSeatsTaken());
+        json.name("enrolled").beginArray();
+        for (RegistrySnapshot.StudentRecord student : records(courseService.getRoster(code))) {
+            writeStudentRecord(json, student);
+        }
+        json.endArray();
+        json.name("waitlist").beginArray();
+        for (String studentId : course.getWaitlist()) {
+            json.value(studentId);
+        }
+        json.endArray();
+        json.name("gradeDistribution").beginObject();
+        for (Map.Entry<Grade, Long> entry : courseService.getGradeDistribution(code).entrySet()) {
+            json.field(entry.getKey().name(), entry.getValue());
+        }
+        json.endObject().endObject();
+    }
+    
+    // The students' records from a snapshot taken after the list, so every one of them is in it
+    private List<RegistrySnapshot.StudentRecord> records(List<Student> students) {
+        RegistrySnapshot snapshot = studentService.snapshot();
+        List<RegistrySnapshot.StudentRecord> records = new ArrayList<>(students.size());
+        for (Student student : students) {
+            snapshot.getStudent(student.getId()).ifPresent(records::add);
+        }
+        return records;
+    }
+    
+    // Request plumbing
+    private void requireStudent(String studentId) {
+        if (studentService.findById(studentId).isEmpty()) {
+            throw notFound("Student", studentId);
+        }
+    }
+    
+    private Course requireCourse(String courseCode) {
+        return courseService.findById(courseCode).orElseThrow(() -> notFound("Course", courseCode));
+    }
+    
+    private static ApiException notFound(String kind, String id) {
+        return new ApiException(404, kind + " not found: " + id);
+    }
+    
+    private static ApiException methodNotAllowed(String method, List<String> path) {
+        return new ApiException(405, method + " not supported on /api/" + String.join("/", path));
+    }
+    
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        return JsonReader.getInt(query, name, defaultValue);
+    }
+    
+    // Path segments after /api/, URL-decoded
+    private static List<String> segments(String rawPath) {
+        List<String> segments = new ArrayList<>(4);
+        int start = "/api/".length();
+        while (start < rawPath.length()) {
+            int end = rawPath.indexOf('/', start);
+            if (end < 0) {
+                end = rawPath.length();
+            }
+            if (end > start) {
+                segments.add(decode(rawPath.substring(start, end), false));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+    
+    private static Map<String, String> query(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                params.put(decode(pair, true), "");
+            } else {
+                params.put(decode(pair.substring(0, equals), true), decode(pair.substring(equals + 1), true));
+            }
+        }
+        return params;
+    }
+    
+    // '+' means a space only in query strings
+    private static String decode(String raw, boolean query) {
+        if (raw.indexOf('%') < 0 && (!query || raw.indexOf('+') < 0)) {
+            return raw;
+        }
+        return URLDecoder.decode(query ? raw : raw.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+    
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return JsonReader.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static int error(JsonWriter json, int status, String message) {
+        json.reset();
+        json.beginObject().field("error", message).endObject();
+        return status;
+    }
+    
+    private static void send(HttpExchange exchange, int status, JsonWriter json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, json.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            json.writeTo(out);
+        }
+    }
+}
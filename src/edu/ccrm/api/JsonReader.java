@@ -0,0 +1,197 @@
+package edu.ccrm.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader for request bodies
+ * API requests are flat objects of strings, numbers, booleans and nulls, so that is all this
+ * accepts: nested objects and arrays are rejected. Values come back as their text (numbers and
+ * booleans unquoted, null as a missing key); the typed getters convert and validate them.
+ */
+public class JsonReader {
+    private final String text;
+    private int pos;
+    
+    private JsonReader(String text) {
+        this.text = text;
+    }
+    
+    public static Map<String, String> parseObject(String text) {
+        JsonReader reader = new JsonReader(text);
+        Map<String, String> fields = reader.readObject();
+        reader.skipWhitespace();
+        if (reader.pos != text.length()) {
+            throw reader.error("Unexpected content after the object");
+        }
+        return fields;
+    }
+    
+    public static String getString(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return value;
+    }
+    
+    public static int getInt(Map<String, String> fields, String name, int defaultValue) {
+        String value = fields.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Field " + name + " must be an integer: " + value);
+        }
+    }
+    
+    private Map<String, String> readObject() {
+        skipWhitespace();
+        expect('{');
+        Map<String, String> fields = new HashMap<>();
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return fields;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            String value = readValue();
+            if (value != null) {
+                fields.put(name, value);
+            }
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return fields;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+    
+    private String readValue() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested objects and arrays are not supported");
+        }
+        int start = pos;
+        while (pos < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        String literal = text.substring(start, pos);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.equals("true") || literal.equals("false") || isNumber(literal)) {
+            return literal;
+        }
+        throw error("Invalid value");
+    }
+    
+    private static boolean isNumber(String literal) {
+        if (literal.isEmpty()) {
+            return false;
+        }
+        try {
+            Double.parseDouble(literal);
+            return Character.isDigit(literal.charAt(literal.length() - 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    private String readString() {
+        expect('"');
+        StringBuilder value = null; // Only needed once an escape turns up
+        int start = pos;
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return value == null ? text.substring(start, pos - 1) : value.toString();
+            }
+            if (c < 0x20) {
+                throw error("Control character in string");
+            }
+            if (c == '\\') {
+                if (value == null) {
+                    value = new StringBuilder(text.substring(start, pos - 1));
+                }
+                value.append(readEscape());
+            } else if (value != null) {
+                value.append(c);
+            }
+        }
+    }
+    
+    private char readEscape() {
+        char c = next();
+        return switch (c) {
+            case '"', '\\', '/' -> c;
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'u' -> {
+                if (pos + 4 > text.length()) {
+                    throw error("Truncated \\u escape");
+                }
+                try {
+                    char decoded = (char) Integer.parseInt(text.substring(pos, pos + 4), 16);
+                    pos += 4;
+                    yield decoded;
+                } catch (NumberFormatException e) {
+                    throw error("Invalid \\u escape");
+                }
+            }
+            default -> throw error("Invalid escape");
+        };
+    }
+    
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+    
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(pos);
+    }
+    
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+    
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + pos + ": " + message);
+    }
+}
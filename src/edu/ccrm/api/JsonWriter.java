@@ -0,0 +1,298 @@
+package edu.ccrm.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Allocation-light JSON encoder for API responses
+ * Values are UTF-8 encoded by hand straight into one growable byte array (no intermediate Strings,
+ * no reflection), and commas are placed from a per-depth bit set, so encoding a response costs
+ * little more than the bytes it produces. Call reset() to reuse the writer for the next response.
+ */
+public class JsonWriter {
+    private static final int MAX_DEPTH = 64; // One bit per level in `first`
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000 };
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    
+    private byte[] buffer;
+    private int count;
+    private final byte[] digits;
+    private int depth;
+    private long first; // Bit d set: nothing written yet in the container at depth d
+    private boolean afterName;
+    
+    public JsonWriter() {
+        this(512);
+    }
+    
+    public JsonWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+        this.digits = new byte[20];
+    }
+    
+    public JsonWriter beginObject() {
+        return open((byte) '{');
+    }
+    
+    public JsonWriter endObject() {
+        return close((byte) '}');
+    }
+    
+    public JsonWriter beginArray() {
+        return open((byte) '[');
+    }
+    
+    public JsonWriter endArray() {
+        return close((byte) ']');
+    }
+    
+    public JsonWriter name(String name) {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("Name outside an object: " + name);
+        }
+        separator();
+        putString(name);
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        putString(value);
+        return this;
+    }
+    
+    public JsonWriter value(long value) {
+        beforeValue();
+        putLong(value);
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        putAscii(value ? "true" : "false");
+        return this;
+    }
+    
+    // Fixed-point decimal, rounded half-up like %.Nf; NaN and infinities become null
+    public JsonWriter value(double value, int decimals) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported number of decimals: " + decimals);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            put((byte) '-');
+        }
+        putLong(scaled / scale);
+        if (decimals > 0) {
+            put((byte) '.');
+            long fraction = scaled % scale;
+            for (long unit = scale / 10; unit > 0; unit /= 10) {
+                put((byte) ('0' + fraction / unit % 10));
+            }
+        }
+        return this;
+    }
+    
+    // ISO-8601 date string
+    public JsonWriter value(LocalDate date) {
+        if (date == null) {
+            return nullValue();
+        }
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            return value(date.toString());
+        }
+        beforeValue();
+        put((byte) '"');
+        putLong(year);
+        put((byte) '-');
+        putTwoDigits(date.getMonthValue());
+        put((byte) '-');
+        putTwoDigits(date.getDayOfMonth());
+        put((byte) '"');
+        return this;
+    }
+    
+    public JsonWriter nullValue() {
+        beforeValue();
+        putAscii("null");
+        return this;
+    }
+    
+    // Shorthands for the common name/value pair
+    public JsonWriter field(String name, String value) { return name(name).value(value); }
+    public JsonWriter field(String name, long value) { return name(name).value(value); }
+    public JsonWriter field(String name, boolean value) { return name(name).value(value); }
+    public JsonWriter field(String name, double value, int decimals) { return name(name).value(value, decimals); }
+    public JsonWriter field(String name, LocalDate value) { return name(name).value(value); }
+    
+    public int size() { return count; }
+    
+    // The encoded bytes are buffer()[0, size()); valid until the next write or reset
+    public byte[] buffer() {
+        if (depth != 0) {
+            throw new IllegalStateException("Unclosed object or array");
+        }
+        return buffer;
+    }
+    
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer(), 0, count);
+    }
+    
+    public void reset() {
+        count = 0;
+        depth = 0;
+        first = 0;
+        afterName = false;
+    }
+    
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+    
+    private JsonWriter open(byte bracket) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+        }
+        beforeValue();
+        put(bracket);
+        first |= 1L << depth;
+        depth++;
+        return this;
+    }
+    
+    private JsonWriter close(byte bracket) {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        put(bracket);
+        return this;
+    }
+    
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false; // The name already wrote the separator
+        } else if (depth > 0) {
+            separator();
+        }
+    }
+    
+    private void separator() {
+        long bit = 1L << (depth - 1);
+        if ((first & bit) != 0) {
+            first &= ~bit;
+        } else {
+            put((byte) ',');
+        }
+    }
+    
+    // Quoted and escaped per RFC 8259; control characters as \\u00XX
+    private void putString(String value) {
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> putEscape((byte) '"');
+                case '\\' -> putEscape((byte) '\\');
+                case '\n' -> putEscape((byte) 'n');
+                case '\r' -> putEscape((byte) 'r');
+                case '\t' -> putEscape((byte) 't');
+                case '\b' -> putEscape((byte) 'b');
+                case '\f' -> putEscape((byte) 'f');
+                default -> {
+                    if (c < 0x20) {
+                        putAscii("\\u00");
+                        put(HEX[c >> 4]);
+                        put(HEX[c & 0xF]);
+                    } else {
+                        i = putChar(value, i);
+                    }
+                }
+            }
+        }
+        put((byte) '"');
+    }
+    
+    private void putEscape(byte c) {
+        put((byte) '\\');
+        put(c);
+    }
+    
+    // Encode the char at i (and its low surrogate, if any) as UTF-8; returns the index of the last char consumed
+    private int putChar(String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            put((byte) (0xF0 | (codePoint >> 18)));
+            put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            put((byte) (0x80 | (codePoint & 0x3F)));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            put((byte) '?'); // Unpaired surrogate, as String.getBytes would
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+        return i;
+    }
+    
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            put(digits[--length]);
+        }
+    }
+    
+    private void putTwoDigits(int value) {
+        put((byte) ('0' + value / 10));
+        put((byte) ('0' + value % 10));
+    }
+    
+    private void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            put((byte) value.charAt(i));
+        }
+    }
+    
+    private void put(byte b) {
+        if (count == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[count++] = b;
+    }
+}
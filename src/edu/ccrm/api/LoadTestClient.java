@@ -0,0 +1,268 @@
+package edu.ccrm.api;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.service.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load generator for the student lookup endpoint
+ * Each thread holds one keep-alive HTTP/1.1 connection and requests GET /api/students/{id} in a
+ * loop, round robin over the students the server lists, recording latencies in a fixed histogram
+ * so measuring costs no allocation. A warmup period runs first and is not counted.
+ *
+ * Usage: java -cp bin edu.ccrm.api.LoadTestClient [host:port] [threads] [seconds]
+ *        java -cp bin edu.ccrm.api.LoadTestClient --embedded [students] [threads] [seconds]
+ * The embedded form starts concurrent services and an ApiServer in this JVM first.
+ */
+public final class LoadTestClient {
+    private static final int WARMUP_SECONDS = 3;
+    private static final long BUCKET_NANOS = 10_000; // 10 µs histogram buckets
+    private static final int BUCKETS = 10_000; // Up to 100 ms; slower requests land in the last bucket
+    private static final Pattern STUDENT_ID = Pattern.compile("\\{\"id\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private LoadTestClient() {}
+
+    // Per-thread results, merged at the end
+    private static class Stats {
+        final long[] histogram = new long[BUCKETS];
+        long requests;
+        long failures;
+        long maxNanos;
+
+        void record(long nanos, boolean ok) {
+            requests++;
+            if (!ok) {
+                failures++;
+            }
+            maxNanos = Math.max(maxNanos, nanos);
+            histogram[(int) Math.min(BUCKETS - 1, nanos / BUCKET_NANOS)]++;
+        }
+
+        void add(Stats other) {
+            requests += other.requests;
+            failures += other.failures;
+            maxNanos = Math.max(maxNanos, other.maxNanos);
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        double percentileMillis(double percentile) {
+            long target = (long) Math.ceil(requests * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= target) {
+                    return (i + 1) * BUCKET_NANOS / 1e6;
+                }
+            }
+            return maxNanos / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ApiServer embedded = null;
+        String host = "127.0.0.1";
+        int port = 8080;
+        int next = 0;
+        if (args.length > 0 && args[0].equals("--embedded")) {
+            int students = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+            embedded = startEmbedded(students);
+            port = embedded.getPort();
+            next = 2;
+            System.out.printf("Embedded API server on port %d with %,d students%n", port, students);
+        } else if (args.length > 0) {
+            int colon = args[0].lastIndexOf(':');
+            host = colon < 0 ? args[0] : args[0].substring(0, colon);
+            port = colon < 0 ? port : Integer.parseInt(args[0].substring(colon + 1));
+            next = 1;
+        }
+        int threads = args.length > next ? Integer.parseInt(args[next]) : 32;
+        int seconds = args.length > next + 1 ? Integer.parseInt(args[next + 1]) : 10;
+
+        try {
+            List<String> ids = fetchStudentIds(host, port);
+            if (ids.isEmpty()) {
+                System.out.println("The server has no students to look up");
+                return;
+            }
+            System.out.printf("%d threads, %d s warmup, %d s measured, %,d distinct students%n",
+                    threads, WARMUP_SECONDS, seconds, ids.size());
+            run(host, port, ids, threads, WARMUP_SECONDS);
+            Stats total = run(host, port, ids, threads, seconds);
+
+            System.out.printf("%,d requests in %d s: %,.0f req/s, %d failed%n",
+                    total.requests, seconds, total.requests / (double) seconds, total.failures);
+            System.out.printf("latency p50 %.2f ms  p90 %.2f ms  p99 %.2f ms  max %.2f ms%n",
+                    total.percentileMillis(0.50), total.percentileMillis(0.90),
+                    total.percentileMillis(0.99), total.maxNanos / 1e6);
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static Stats run(String host, int port, List<String> ids, int threads, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Stats> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Stats stats = new Stats();
+            results.add(stats);
+            int offset = t * (ids.size() / threads + 1);
+            Thread worker = new Thread(() -> {
+                try (Connection connection = new Connection(host, port)) {
+                    start.await();
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        String path = "/api/students/" + ids.get(Math.floorMod(i, ids.size()));
+                        long begin = System.nanoTime();
+                        int status = connection.get(path);
+                        stats.record(System.nanoTime() - begin, status == 200);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    stats.failures++;
+                    System.out.println("Connection failed: " + e.getMessage());
+                }
+            }, "load-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        Stats total = new Stats();
+        for (int t = 0; t < threads; t++) {
+            workers.get(t).join();
+            total.add(results.get(t));
+        }
+        return total;
+    }
+
+    private static List<String> fetchStudentIds(String host, int port) throws IOException {
+        try (Connection connection = new Connection(host, port)) {
+            int status = connection.get("/api/students");
+            if (status != 200) {
+                throw new IOException("GET /api/students returned " + status);
+            }
+            List<String> ids = new ArrayList<>();
+            Matcher matcher = STUDENT_ID.matcher(new String(connection.body(), StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                ids.add(matcher.group(1));
+            }
+            return ids;
+        }
+    }
+
+    private static ApiServer startEmbedded(int students) throws IOException {
+        EnrollmentIndex enrollmentIndex = EnrollmentIndex.concurrent();
+        StudentService studentService = new ConcurrentStudentService(enrollmentIndex);
+        CourseService courseService = new ConcurrentCourseService(enrollmentIndex);
+        TranscriptService transcriptService = new TranscriptServiceImpl(studentService, courseService);
+
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Course course = new Course.Builder(new CourseCode("LT" + (100 + i)), "Load Test " + i)
+                    .credits(3)
+                    .instructor("Staff")
+                    .semester(Semester.values()[i % Semester.values().length])
+                    .department("Load")
+                    .build();
+            courseService.addCourse(course);
+            courses.add(course);
+        }
+        Grade[] grades = Grade.values();
+        for (int i = 0; i < students; i++) {
+            String id = "L" + i;
+            studentService.addStudent(new Student(id, new Name("Load", "Student " + i), id + "@load.edu", "LREG" + i));
+            for (int c = 0; c < 4; c++) {
+                Course course = courses.get((i + c * 5) % courses.size());
+                try {
+                    studentService.enrollStudentInCourse(id, course);
+                } catch (DuplicateEnrollmentException e) {
+                    throw new IllegalStateException(e);
+                }
+                transcriptService.recordGrade(id, course.getCode().getCode(), grades[(i + c) % grades.length]);
+            }
+        }
+
+        ApiServer server = new ApiServer(studentService, courseService, transcriptService, new ImportExportService());
+        server.start("127.0.0.1", 0);
+        return server;
+    }
+
+    // One keep-alive connection; just enough HTTP/1.1 for the API's fixed-length responses
+    private static class Connection implements Closeable {
+        private final Socket socket;
+        private final BufferedInputStream in;
+        private final OutputStream out;
+        private final byte[] request;
+        private byte[] body = new byte[0];
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 5_000);
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            request = (" HTTP/1.1\r\nHost: " + host + ":" + port + "\r\nConnection: keep-alive\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        // Returns the status code; the body is available from body() until the next request
+        int get(String path) throws IOException {
+            out.write("GET ".getBytes(StandardCharsets.US_ASCII));
+            out.write(path.getBytes(StandardCharsets.UTF_8));
+            out.write(request);
+            out.flush();
+
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int length = -1;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            if (length < 0) {
+                throw new IOException("Response without Content-Length");
+            }
+            body = in.readNBytes(length);
+            if (body.length != length) {
+                throw new IOException("Connection closed mid-response");
+            }
+            return status;
+        }
+
+        byte[] body() {
+            return body;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new EOFException("Connection closed by server");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package edu.ccrm.cli;
 
+import edu.ccrm.api.ApiServer;
 import edu.ccrm.domain.*;
 import edu.ccrm.service.*;
 import edu.ccrm.io.*;
@@ -20,20 +21,92 @@ public class MainMenu {
     private final ImportExportService importExportService;
     private final BackupService backupService;
     private final AppConfig config;
+    private final SnapshotService snapshotService;
+    private final Journal journal;
+    private final BackupScheduler backupScheduler;
+    private final ApiServer apiServer;
     private boolean running;
     
     public MainMenu() {
         this.scanner = new Scanner(System.in);
-        this.studentService = new StudentServiceImpl();
-        this.courseService = new CourseServiceImpl();
+        // Thread-safe services: the HTTP API serves requests alongside this menu
+        EnrollmentIndex enrollmentIndex = EnrollmentIndex.concurrent();
+        StudentService students = new ConcurrentStudentService(enrollmentIndex);
+        CourseService courses = new ConcurrentCourseService(enrollmentIndex);
+        
+        // A restore cut short by a crash is completed (or dropped) before the data directory is opened
+        this.backupService = new BackupService();
+        finishInterruptedRestore();
+        
+        // Recover snapshot + write-ahead journal into the raw services before anything is journaled
+        this.snapshotService = new SnapshotService();
+        this.journal = openJournal();
+        this.backupScheduler = new BackupScheduler(backupService, journal);
+        int recovered = recover(students, courses);
+        if (journal != null) {
+            students = new JournaledStudentService(students, journal);
+            courses = new JournaledCourseService(courses, journal);
+        }
+        
+        this.studentService = students;
+        this.courseService = courses;
         this.transcriptService = new TranscriptServiceImpl(studentService, courseService);
         this.importExportService = new ImportExportService();
-        this.backupService = new BackupService();
+        this.apiServer = new ApiServer(studentService, courseService, transcriptService, importExportService);
         this.config = AppConfig.getInstance();
         this.running = true;
         
-        // Load sample data
-        loadSampleData();
+        if (recovered > 0) {
+            System.out.println("Recovered " + recovered + " records from snapshot and journal.");
+        } else {
+            // Load sample data
+            loadSampleData();
+        }
+    }
+    
+    private void finishInterruptedRestore() {
+        try {
+            backupService.finishInterruptedRestore();
+        } catch (IOException e) {
+            System.err.println("Warning: could not finish an interrupted restore: " + e.getMessage());
+        }
+    }
+    
+    private static Journal openJournal() {
+        try {
+            return new Journal();
+        } catch (IOException e) {
+            System.err.println("Warning: journal unavailable, changes will not be persisted: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private int recover(StudentService students, CourseService courses) {
+        try {
+            int recovered = snapshotService.recover(students, courses, journal);
+            // A fresh checkpoint keeps the next startup's replay short
+            if (journal != null && journal.needsCompaction()) {
+                snapshotService.checkpoint(students, courses, journal);
+            }
+            return recovered;
+        } catch (IOException e) {
+            // Going on would journal new changes on top of a partial state and lose the rest for good
+            throw new IllegalStateException("Recovery failed, not starting on partial data: " + e.getMessage(), e);
+        }
+    }
+    
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (journal.needsCompaction()) {
+                snapshotService.checkpoint(studentService, courseService, journal);
+            }
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close journal: " + e.getMessage());
+        }
     }
     
     // Main run loop demonstrating while loop and break
@@ -55,6 +128,7 @@ public class MainMenu {
                     case 6 -> handleReports();
                     case 7 -> handleBackupOperations();
                     case 8 -> showPlatformInfo();
+                    case 9 -> manageApiServer();
                     case 0 -> {
                         System.out.println("Thank you for using CCRM!");
                         running = false; // break equivalent for while loop
@@ -71,6 +145,10 @@ public class MainMenu {
                 scanner.nextLine();
             }
         }
+        
+        apiServer.close(); // No more writes from HTTP requests
+        backupScheduler.close(); // Before the journal it freezes
+        closeJournal();
     }
     
     private void displayMainMenu() {
@@ -85,6 +163,7 @@ public class MainMenu {
         System.out.println("6. Reports & Analytics");
         System.out.println("7. Backup Operations");
         System.out.println("8. Platform Information");
+        System.out.println("9. HTTP API Server");
         System.out.println("0. Exit");
         System.out.println("-".repeat(50));
     }
@@ -144,7 +223,7 @@ public class MainMenu {
             
             studentService.addStudent(student);
             System.out.println("Student added successfully!");
-            
+        
         } catch (Exception e) {
             System.err.println("Error adding student: " + e.getMessage());
         }
@@ -197,10 +276,10 @@ public class MainMenu {
             System.out.println("\n--- Student Profile ---");
             System.out.println(student.toString());
             System.out.println("\nEnrolled Courses:");
-            student.getEnrolledCourses().forEach(course -> 
+            student.getEnrolledCoursesView().forEach(course -> 
                 System.out.println("- " + course.getCode() + ": " + course.getTitle()));
             
-            if (!student.getGrades().isEmpty()) {
+            if (student.hasGrades()) {
                 System.out.println("\nTranscript:");
                 String transcript = transcriptService.generateTranscript(studentId);
                 System.out.println(transcript);
@@ -254,6 +333,7 @@ public class MainMenu {
             int credits = getIntInput("Enter Credits: ");
             String instructor = getStringInput("Enter Instructor: ");
             String department = getStringInput("Enter Department: ");
+            int capacity = getIntInput("Enter Seat Capacity (0 for unlimited): ");
             
             System.out.println("Select Semester:");
             // Array demonstration
@@ -273,11 +353,12 @@ public class MainMenu {
                     .instructor(instructor)
                     .semester(semesters[semesterChoice])
                     .department(department)
+                    .capacity(capacity)
                     .build();
             
             courseService.addCourse(course);
             System.out.println("Course added successfully!");
-            
+        
         } catch (Exception e) {
             System.err.println("Error adding course: " + e.getMessage());
         }
@@ -365,6 +446,7 @@ public class MainMenu {
         System.out.println("1. Enroll Student in Course");
         System.out.println("2. Unenroll Student from Course");
         System.out.println("3. View Student Enrollments");
+        System.out.println("4. Leave Course Waitlist");
         System.out.println("0. Back to Main Menu");
         
         int choice = getIntInput("Enter choice: ");
@@ -373,6 +455,7 @@ public class MainMenu {
             case 1 -> enrollStudent();
             case 2 -> unenrollStudent();
             case 3 -> viewStudentEnrollments();
+            case 4 -> leaveWaitlist();
             case 0 -> { return; }
             default -> System.out.println("Invalid choice.");
         }
@@ -385,8 +468,13 @@ public class MainMenu {
             
             Optional<Course> courseOpt = courseService.findById(courseCode);
             if (courseOpt.isPresent()) {
-                studentService.enrollStudentInCourse(studentId, courseOpt.get());
-                System.out.println("Student enrolled successfully!");
+                Course course = courseOpt.get();
+                if (studentService.enrollOrWaitlist(studentId, course)) {
+                    System.out.println("Student enrolled successfully!");
+                } else {
+                    System.out.println("Course is full. Student added to the waitlist at position "
+                            + course.getWaitlistPosition(studentId) + ".");
+                }
             } else {
                 System.out.println("Course not found.");
             }
@@ -395,6 +483,23 @@ public class MainMenu {
         }
     }
     
+    private void leaveWaitlist() {
+        try {
+            String studentId = getStringInput("Enter Student ID: ");
+            String courseCode = getStringInput("Enter Course Code: ");
+            
+            Optional<Course> courseOpt = courseService.findById(courseCode);
+            if (courseOpt.isPresent()) {
+                studentService.leaveWaitlist(studentId, courseOpt.get());
+                System.out.println("Student removed from the waitlist.");
+            } else {
+                System.out.println("Course not found.");
+            }
+        } catch (Exception e) {
+            System.err.println("Could not leave waitlist: " + e.getMessage());
+        }
+    }
+    
     private void unenrollStudent() {
         try {
             String studentId = getStringInput("Enter Student ID: ");
@@ -419,10 +524,10 @@ public class MainMenu {
         if (studentOpt.isPresent()) {
             Student student = studentOpt.get();
             System.out.println("\n--- Enrollments for " + student.getName() + " ---");
-            if (student.getEnrolledCourses().isEmpty()) {
+            if (student.getEnrolledCourseCount() == 0) {
                 System.out.println("No enrollments found.");
             } else {
-                student.getEnrolledCourses().forEach(course -> 
+                student.getEnrolledCoursesView().forEach(course -> 
                     System.out.println("- " + course.getCode() + ": " + course.getTitle()));
             }
         } else {
@@ -500,6 +605,8 @@ public class MainMenu {
         System.out.println("3. Export Students to CSV");
         System.out.println("4. Export Courses to CSV");
         System.out.println("5. Export Enrollments to CSV");
+        System.out.println("6. Save Snapshot");
+        System.out.println("7. Import Enrollments & Grades from CSV");
         System.out.println("0. Back to Main Menu");
         
         int choice = getIntInput("Enter choice: ");
@@ -510,6 +617,8 @@ public class MainMenu {
             case 3 -> exportStudents();
             case 4 -> exportCourses();
             case 5 -> exportEnrollments();
+            case 6 -> saveSnapshot();
+            case 7 -> importEnrollments();
             case 0 -> { return; }
             default -> System.out.println("Invalid choice.");
         }
@@ -518,9 +627,9 @@ public class MainMenu {
     private void importStudents() {
         String filename = getStringInput("Enter CSV filename (in data directory): ");
         try {
-            List<Student> students = importExportService.importStudents(filename);
-            students.forEach(studentService::addStudent);
-            System.out.println("Imported " + students.size() + " students successfully!");
+            ImportReport report = importExportService.importStudents(filename, studentService);
+            System.out.println("Imported " + report.getAccepted() + " students successfully!");
+            printRejections(report);
         } catch (IOException e) {
             System.err.println("Import failed: " + e.getMessage());
         }
@@ -529,20 +638,44 @@ public class MainMenu {
     private void importCourses() {
         String filename = getStringInput("Enter CSV filename (in data directory): ");
         try {
-            List<Course> courses = importExportService.importCourses(filename);
-            courses.forEach(courseService::addCourse);
-            System.out.println("Imported " + courses.size() + " courses successfully!");
+            ImportReport report = importExportService.importCourses(filename, courseService);
+            System.out.println("Imported " + report.getAccepted() + " courses successfully!");
+            printRejections(report);
+        } catch (IOException e) {
+            System.err.println("Import failed: " + e.getMessage());
+        }
+    }
+    
+    private void importEnrollments() {
+        String filename = getStringInput("Enter CSV filename (in data directory): ");
+        try {
+            ImportReport report = importExportService.importEnrollments(filename, transcriptService);
+            System.out.println("Applied " + report.getAccepted() + " enrollment/grade records.");
+            printRejections(report);
         } catch (IOException e) {
             System.err.println("Import failed: " + e.getMessage());
         }
     }
     
+    private void printRejections(ImportReport report) {
+        if (report.getRejected() == 0) {
+            return;
+        }
+        System.out.println("Skipped " + report.getRejected() + " invalid records:");
+        report.getRejections().stream()
+                .limit(10)
+                .forEach(rejection -> System.out.println("  " + rejection));
+        if (report.getRejected() > 10) {
+            System.out.println("  ...");
+        }
+    }
+    
     private void exportStudents() {
         String filename = getStringInput("Enter filename for export: ");
         try {
-            List<Student> students = studentService.getAllStudents();
-            importExportService.exportStudents(students, filename);
-            System.out.println("Exported " + students.size() + " students to " + filename);
+            RegistrySnapshot snapshot = studentService.snapshot();
+            importExportService.exportStudents(snapshot, filename);
+            System.out.println("Exported " + snapshot.getStudentCount() + " students to " + filename);
         } catch (IOException e) {
             System.err.println("Export failed: " + e.getMessage());
         }
@@ -562,20 +695,29 @@ public class MainMenu {
     private void exportEnrollments() {
         String filename = getStringInput("Enter filename for export: ");
         try {
-            List<Student> students = studentService.getAllStudents();
-            importExportService.exportEnrollments(students, filename);
+            importExportService.exportEnrollments(studentService.snapshot(), filename);
             System.out.println("Exported enrollments to " + filename);
         } catch (IOException e) {
             System.err.println("Export failed: " + e.getMessage());
         }
     }
     
+    private void saveSnapshot() {
+        try {
+            SnapshotService.SnapshotInfo info = snapshotService.checkpoint(studentService, courseService, journal);
+            System.out.println("Snapshot saved: " + info);
+        } catch (IOException e) {
+            System.err.println("Snapshot failed: " + e.getMessage());
+        }
+    }
+    
     // Reports and analytics
     private void handleReports() {
         System.out.println("\n--- Reports & Analytics ---");
         System.out.println("1. GPA Distribution");
         System.out.println("2. Top Students");
         System.out.println("3. Course Statistics");
+        System.out.println("4. Course Roster");
         System.out.println("0. Back to Main Menu");
         
         int choice = getIntInput("Enter choice: ");
@@ -584,6 +726,7 @@ public class MainMenu {
             case 1 -> showGPADistribution();
             case 2 -> showTopStudents();
             case 3 -> showCourseStatistics();
+            case 4 -> showCourseRoster();
             case 0 -> { return; }
             default -> System.out.println("Invalid choice.");
         }
@@ -598,7 +741,7 @@ public class MainMenu {
     
     private void showTopStudents() {
         int count = getIntInput("Enter number of top students to show: ");
-        List<Student> topStudents = transcriptService.getTopStudents(count);
+        List<RegistrySnapshot.StudentRecord> topStudents = transcriptService.getTopStudents(count);
         
         System.out.println("\n--- Top " + count + " Students ---");
         System.out.printf("%-15s %-25s %-10s%n", "Reg No", "Name", "GPA");
@@ -607,25 +750,69 @@ public class MainMenu {
         topStudents.forEach(student -> 
             System.out.printf("%-15s %-25s %-10.2f%n", 
                 student.getRegNo(), 
-                student.getName().getFullName(), 
-                student.calculateGPA()));
+                student.getFullName(), 
+                student.getGpa()));
     }
     
     private void showCourseStatistics() {
         System.out.println("\n--- Course Statistics ---");
-        List<Course> courses = courseService.getAllCourses();
+        // One registry version for every figure below, however many changes land meanwhile
+        RegistrySnapshot snapshot = courseService.snapshot();
+        List<RegistrySnapshot.CourseRecord> courses = snapshot.getCourses();
         
         System.out.println("Total Courses: " + courses.size());
         
         // Group by department using streams
         Map<String, Long> departmentCounts = courses.stream()
                 .collect(java.util.stream.Collectors.groupingBy(
-                    Course::getDepartment, 
+                    RegistrySnapshot.CourseRecord::getDepartment, 
                     java.util.stream.Collectors.counting()));
         
+        // Enrollments per department from the same version's student records
+        Map<String, Long> departmentEnrollments = new HashMap<>();
+        for (RegistrySnapshot.StudentRecord student : snapshot.getStudents()) {
+            for (String courseCode : student.getCourseCodes()) {
+                snapshot.getCourse(courseCode).ifPresent(course -> 
+                    departmentEnrollments.merge(course.getDepartment(), 1L, Long::sum));
+            }
+        }
+        
         System.out.println("\nCourses by Department:");
         departmentCounts.forEach((dept, count) -> 
-            System.out.println("- " + dept + ": " + count));
+            System.out.println("- " + dept + ": " + count + " courses, "
+                    + departmentEnrollments.getOrDefault(dept, 0L) + " enrollments"));
+        System.out.println("\n(as of registry version " + snapshot.getVersion() + ")");
+    }
+    
+    private void showCourseRoster() {
+        String courseCode = getStringInput("Enter Course Code: ");
+        Optional<Course> courseOpt = courseService.findById(courseCode);
+        if (courseOpt.isEmpty()) {
+            System.out.println("Course not found.");
+            return;
+        }
+        
+        Course course = courseOpt.get();
+        List<Student> roster = courseService.getRoster(courseCode);
+        System.out.println("\n--- Roster for " + courseCode + " (" + roster.size() + " enrolled) ---");
+        if (course.hasCapacityLimit()) {
+            System.out.println("Seats: " + course.getSeatsTaken() + "/" + course.getCapacity()
+                    + ", waitlist: " + course.getWaitlistSize());
+        }
+        roster.forEach(student -> 
+            System.out.printf("%-15s %-25s%n", student.getRegNo(), student.getName().getFullName()));
+        
+        List<String> waitlist = course.getWaitlist();
+        if (!waitlist.isEmpty()) {
+            System.out.println("\nWaitlist:");
+            for (int i = 0; i < waitlist.size(); i++) {
+                System.out.println((i + 1) + ". " + waitlist.get(i));
+            }
+        }
+        
+        System.out.println("\nGrade Distribution:");
+        courseService.getGradeDistribution(courseCode).forEach((grade, count) -> 
+            System.out.println("- " + grade.name() + ": " + count));
     }
     
     // Backup operations
@@ -635,6 +822,10 @@ public class MainMenu {
         System.out.println("2. List Backups");
         System.out.println("3. Calculate Backup Size");
         System.out.println("4. Clean Old Backups");
+        System.out.println("5. Create Compressed Archive Backup");
+        System.out.println("6. Verify Backups (background)");
+        System.out.println("7. Verify Backup Integrity (re-hash all files)");
+        System.out.println("8. Scheduled Backups (start/stop)");
         System.out.println("0. Back to Main Menu");
         
         int choice = getIntInput("Enter choice: ");
@@ -644,6 +835,10 @@ public class MainMenu {
             case 2 -> listBackups();
             case 3 -> calculateBackupSize();
             case 4 -> cleanOldBackups();
+            case 5 -> createArchiveBackup();
+            case 6 -> verifyBackups();
+            case 7 -> verifyBackupIntegrity();
+            case 8 -> manageScheduledBackups();
             case 0 -> { return; }
             default -> System.out.println("Invalid choice.");
         }
@@ -659,6 +854,15 @@ public class MainMenu {
         }
     }
     
+    private void createArchiveBackup() {
+        try {
+            backupService.createArchiveBackup();
+            System.out.println("Archive backup created successfully!");
+        } catch (IOException e) {
+            System.err.println("Archive backup failed: " + e.getMessage());
+        }
+    }
+    
     private void listBackups() {
         try {
             backupService.listBackups();
@@ -669,13 +873,89 @@ public class MainMenu {
     
     private void calculateBackupSize() {
         try {
-            System.out.println("\n--- Recursive Backup Size Calculation ---");
-            backupService.listBackups();
+            System.out.println("\n--- Backup Sizes ---");
+            backupService.printBackupSizes();
         } catch (IOException e) {
             System.err.println("Failed to calculate backup sizes: " + e.getMessage());
         }
     }
     
+    // Runs on a background thread; results are printed when done and kept in the backup catalogue
+    private void verifyBackups() {
+        backupService.verifyInBackground().whenComplete((results, error) -> {
+            if (error != null) {
+                System.err.println("\nBackup verification failed: " + error.getMessage());
+                return;
+            }
+            long damaged = results.stream().filter(entry -> entry.getStatus() != BackupCatalog.Status.OK).count();
+            System.out.printf("%nVerified %d backups: %d OK, %d damaged%n", results.size(), results.size() - damaged, damaged);
+            results.stream()
+                    .filter(entry -> entry.getStatus() != BackupCatalog.Status.OK)
+                    .forEach(entry -> System.out.println("  DAMAGED: " + entry.getName()));
+        });
+        System.out.println("Verification started in the background; see List Backups for results.");
+    }
+    
+    private void verifyBackupIntegrity() {
+        try {
+            System.out.println("\n--- Backup Integrity Verification ---");
+            List<BackupVerifier.VerifyReport> reports = backupService.verifyAllBackups();
+            long damaged = reports.stream().filter(report -> !report.isIntact()).count();
+            System.out.println(damaged == 0 ? "All verified backups are intact." : damaged + " backup(s) are damaged!");
+        } catch (IOException e) {
+            System.err.println("Verification failed: " + e.getMessage());
+        }
+    }
+    
+    // Backups run on a background thread at low priority and throttled I/O
+    private void manageScheduledBackups() {
+        System.out.println("\n--- Scheduled Backups ---");
+        System.out.println("Status: " + backupScheduler.getStatus());
+        if (backupScheduler.isRunning()) {
+            String answer = getStringInput("Stop scheduled backups? (y/n): ");
+            if (answer.equalsIgnoreCase("y")) {
+                backupScheduler.stop();
+                System.out.println("Scheduled backups stopped.");
+            }
+            return;
+        }
+        
+        String interval = getStringInput("Interval in minutes [" + config.getBackupIntervalMinutes() + "]: ");
+        String keep = getStringInput("Backups to keep [" + config.getBackupRetentionCount() + "]: ");
+        try {
+            long intervalMinutes = interval.isEmpty() ? config.getBackupIntervalMinutes() : Long.parseLong(interval);
+            int keepCount = keep.isEmpty() ? config.getBackupRetentionCount() : Integer.parseInt(keep);
+            backupScheduler.start(intervalMinutes, keepCount);
+            System.out.printf("Backing up every %d minutes, keeping the newest %d backups.%n", intervalMinutes, keepCount);
+        } catch (IllegalArgumentException e) { // Includes NumberFormatException
+            System.out.println("Invalid input: " + e.getMessage());
+        }
+    }
+    
+    private void manageApiServer() {
+        System.out.println("\n--- HTTP API Server ---");
+        if (apiServer.isRunning()) {
+            System.out.println("Status: serving " + apiServer.getUrl());
+            String answer = getStringInput("Stop the API server? (y/n): ");
+            if (answer.equalsIgnoreCase("y")) {
+                apiServer.stop();
+                System.out.println("API server stopped.");
+            }
+            return;
+        }
+        
+        System.out.println("Status: stopped");
+        String port = getStringInput("Port [" + config.getApiPort() + "]: ");
+        try {
+            apiServer.start(config.getApiBindAddress(), port.isEmpty() ? config.getApiPort() : Integer.parseInt(port));
+            System.out.println("Serving " + apiServer.getUrl() + " (no authentication: keep it on a trusted network)");
+        } catch (IllegalArgumentException e) { // Includes NumberFormatException
+            System.out.println("Invalid input: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Failed to start API server: " + e.getMessage());
+        }
+    }
+    
     private void cleanOldBackups() {
         int keepCount = getIntInput("Enter number of backups to keep: ");
         try {
@@ -767,7 +1047,7 @@ public class MainMenu {
             transcriptService.recordGrade("S002", "ENG101", Grade.A);
             transcriptService.recordGrade("S003", "MATH201", Grade.C);
             transcriptService.recordGrade("S003", "ENG101", Grade.B);
-            
+        
         } catch (Exception e) {
             System.err.println("Warning: Failed to load sample data: " + e.getMessage());
         }
@@ -15,6 +15,29 @@ public class AppConfig {
     private final String backupDirectory;
     private final DateTimeFormatter timestampFormat;
     private final String version;
+    private final String journalFile;
+    private final String snapshotFile;
+    private final int journalSyncBatchSize;
+    private final long journalSyncIntervalMillis;
+    private final long journalCompactionThresholdBytes;
+    private final int importChunkBytes;
+    private final int importBatchSize;
+    private final int importParallelism;
+    private final int archiveBlockBytes;
+    private final int archiveParallelism;
+    private final int archiveCompressionLevel;
+    private final int fileTreeParallelism;
+    private final long transferThresholdBytes;
+    private final int verifyParallelism;
+    private final long backupIntervalMinutes;
+    private final int backupRetentionCount;
+    private final long backupMaxBytesPerSecond;
+    private final int serviceLockStripes;
+    private final int maxCreditsPerSemester;
+    private final String apiBindAddress;
+    private final int apiPort;
+    private final int apiWorkerThreads;
+    private final int apiBacklog;
     
     // Private constructor to prevent instantiation
     private AppConfig() {
@@ -22,6 +45,32 @@ public class AppConfig {
         this.backupDirectory = "backups";
         this.timestampFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
         this.version = "1.0.0";
+        this.journalFile = "ccrm.journal";
+        this.snapshotFile = "ccrm.snapshot";
+        this.journalSyncBatchSize = 64;          // fsync at least every 64 records...
+        this.journalSyncIntervalMillis = 20;     // ...or every 20 ms, whichever comes first
+        this.journalCompactionThresholdBytes = 16L * 1024 * 1024;
+        this.importChunkBytes = 8 * 1024 * 1024;
+        this.importBatchSize = 1000;
+        this.importParallelism = Runtime.getRuntime().availableProcessors();
+        this.archiveBlockBytes = 1024 * 1024;
+        this.archiveParallelism = Runtime.getRuntime().availableProcessors();
+        this.archiveCompressionLevel = 6;        // Deflate level, 1 (fastest) to 9 (smallest)
+        // Tree copy/delete threads mostly wait on I/O, so use more of them than there are cores
+        this.fileTreeParallelism = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        this.transferThresholdBytes = 1024 * 1024; // Files this large are copied with transferTo
+        this.verifyParallelism = Runtime.getRuntime().availableProcessors();
+        this.backupIntervalMinutes = 60;
+        this.backupRetentionCount = 10;
+        this.backupMaxBytesPerSecond = 32L * 1024 * 1024; // Scheduled backups only; 0 = unthrottled
+        // Enough per-student locks that two busy threads rarely share one
+        this.serviceLockStripes = Math.max(64, Runtime.getRuntime().availableProcessors() * 16);
+        this.maxCreditsPerSemester = 24;         // Checked on every enrollment; 0 = no cap
+        this.apiBindAddress = "127.0.0.1";       // The API has no authentication; keep it off the network
+        this.apiPort = 8080;
+        // Java 17 fallback only; on 21+ the API runs one virtual thread per request
+        this.apiWorkerThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        this.apiBacklog = 1024;
     }
     
     // Thread-safe singleton getInstance method
@@ -40,6 +89,27 @@ public class AppConfig {
     public String getBackupDirectory() { return backupDirectory; }
     public DateTimeFormatter getTimestampFormat() { return timestampFormat; }
     public String getVersion() { return version; }
+    public int getJournalSyncBatchSize() { return journalSyncBatchSize; }
+    public long getJournalSyncIntervalMillis() { return journalSyncIntervalMillis; }
+    public long getJournalCompactionThresholdBytes() { return journalCompactionThresholdBytes; }
+    public int getImportChunkBytes() { return importChunkBytes; }
+    public int getImportBatchSize() { return importBatchSize; }
+    public int getImportParallelism() { return importParallelism; }
+    public int getArchiveBlockBytes() { return archiveBlockBytes; }
+    public int getArchiveParallelism() { return archiveParallelism; }
+    public int getArchiveCompressionLevel() { return archiveCompressionLevel; }
+    public int getFileTreeParallelism() { return fileTreeParallelism; }
+    public long getTransferThresholdBytes() { return transferThresholdBytes; }
+    public int getVerifyParallelism() { return verifyParallelism; }
+    public long getBackupIntervalMinutes() { return backupIntervalMinutes; }
+    public int getBackupRetentionCount() { return backupRetentionCount; }
+    public long getBackupMaxBytesPerSecond() { return backupMaxBytesPerSecond; }
+    public int getServiceLockStripes() { return serviceLockStripes; }
+    public int getMaxCreditsPerSemester() { return maxCreditsPerSemester; }
+    public String getApiBindAddress() { return apiBindAddress; }
+    public int getApiPort() { return apiPort; }
+    public int getApiWorkerThreads() { return apiWorkerThreads; }
+    public int getApiBacklog() { return apiBacklog; }
     
     public Path getDataPath() {
         return Paths.get(dataDirectory);
@@ -49,6 +119,14 @@ public class AppConfig {
         return Paths.get(backupDirectory);
     }
     
+    public Path getJournalPath() {
+        return getDataPath().resolve(journalFile);
+    }
+    
+    public Path getSnapshotPath() {
+        return getDataPath().resolve(snapshotFile);
+    }
+    
     public String getCurrentTimestamp() {
         return LocalDateTime.now().format(timestampFormat);
     }
@@ -1,12 +1,25 @@
 package edu.ccrm.domain;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * Course class demonstrating Builder pattern and encapsulation
+ * Seats are claimed with compare-and-set, so any number of threads can register for the same
+ * course at once without a lock and without ever overselling it
  */
 public class Course {
+    public static final int MAX_CAPACITY = 0xFFFF; // Stored in 16 bits in snapshots
+    
     private CourseCode code;
     private String title;
     private int credits;
@@ -15,6 +28,30 @@ public class Course {
     private String department;
     private LocalDate createdDate;
     private boolean active;
+    private Seating seating;
+    
+    // Capacity and seats taken share one AtomicLong (capacity in the high half), so a claim
+    // can never race with a capacity change. Shared by instances that replace each other.
+    private static class Seating {
+        private final AtomicLong state;
+        private final Queue<String> waitlist; // Student ids, first come first served
+        // Who is actually waiting; whoever removes an id from here owns its queue entry, so a
+        // student leaving the line and being promoted out of it cannot both succeed
+        private final Set<String> waiting;
+        // Orders joins, so whatever runs inside one sees them in queue order
+        private final ReentrantLock joinLock;
+        
+        Seating(int capacity) {
+            this.state = new AtomicLong(pack(capacity, 0));
+            this.waitlist = new ConcurrentLinkedQueue<>();
+            this.waiting = ConcurrentHashMap.newKeySet();
+            this.joinLock = new ReentrantLock();
+        }
+        
+        static long pack(int capacity, int taken) {
+            return ((long) capacity << 32) | (taken & 0xFFFFFFFFL);
+        }
+    }
     
     // Private constructor for Builder pattern
     private Course(Builder builder) {
@@ -26,6 +63,7 @@ public class Course {
         this.department = builder.department;
         this.createdDate = LocalDate.now();
         this.active = true;
+        this.seating = new Seating(builder.capacity);
     }
     
     // Builder pattern implementation
@@ -36,6 +74,7 @@ public class Course {
         private String instructor;
         private Semester semester;
         private String department;
+        private int capacity; // 0 = unlimited
         
         public Builder(CourseCode code, String title) {
             this.code = Objects.requireNonNull(code, "Course code cannot be null");
@@ -63,6 +102,12 @@ public class Course {
             return this;
         }
         
+        public Builder capacity(int capacity) {
+            checkCapacity(capacity);
+            this.capacity = capacity;
+            return this;
+        }
+        
         public Course build() {
             Objects.requireNonNull(instructor, "Instructor is required");
             Objects.requireNonNull(semester, "Semester is required");
@@ -106,6 +151,166 @@ public class Course {
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
     
+    // Seat capacity; 0 = unlimited
+    public int getCapacity() { return (int) (seating.state.get() >>> 32); }
+    public int getSeatsTaken() { return (int) seating.state.get(); }
+    public boolean hasCapacityLimit() { return getCapacity() > 0; }
+    
+    public int getAvailableSeats() {
+        long state = seating.state.get();
+        int capacity = (int) (state >>> 32);
+        return capacity == 0 ? Integer.MAX_VALUE : Math.max(0, capacity - (int) state);
+    }
+    
+    // Cannot drop below the seats already taken. Raising it promotes nobody by itself; follow
+    // with StudentService.fillWaitlist.
+    public void setCapacity(int capacity) {
+        checkCapacity(capacity);
+        while (true) {
+            long state = seating.state.get();
+            int taken = (int) state;
+            if (capacity > 0 && capacity < taken) {
+                throw new IllegalArgumentException("Capacity " + capacity + " is below the " + taken + " seats already taken");
+            }
+            if (seating.state.compareAndSet(state, Seating.pack(capacity, taken))) {
+                return;
+            }
+        }
+    }
+    
+    private static void checkCapacity(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 0 (unlimited) and " + MAX_CAPACITY);
+        }
+    }
+    
+    // Take one seat if one is free; lock-free, retried only when another claim got in first
+    public boolean tryClaimSeat() {
+        while (true) {
+            long state = seating.state.get();
+            int capacity = (int) (state >>> 32);
+            if (capacity > 0 && (int) state >= capacity) {
+                return false;
+            }
+            if (seating.state.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    // Take a seat even if the course is full; only for putting back an enrollment granted earlier
+    public void takeSeat() {
+        seating.state.incrementAndGet();
+    }
+    
+    public void releaseSeat() {
+        while (true) {
+            long state = seating.state.get();
+            if ((int) state == 0) {
+                throw new IllegalStateException("No seat taken in course: " + code);
+            }
+            if (seating.state.compareAndSet(state, state - 1)) {
+                return;
+            }
+        }
+    }
+    
+    // Waitlist, in the order students joined it
+    public void joinWaitlist(String studentId) {
+        joinWaitlist(studentId, () -> {});
+    }
+    
+    // Joins to one course take turns, and `joined` runs in the joining student's turn, so its calls
+    // come in queue order (e.g. to journal them); keep it short
+    public void joinWaitlist(String studentId, Runnable joined) {
+        Objects.requireNonNull(studentId, "Student ID cannot be null");
+        seating.joinLock.lock();
+        try {
+            if (!seating.waiting.add(studentId)) {
+                throw new IllegalArgumentException("Student already on the waitlist for course: " + code);
+            }
+            seating.waitlist.add(studentId);
+            joined.run();
+        } finally {
+            seating.joinLock.unlock();
+        }
+    }
+    
+    public boolean leaveWaitlist(String studentId) {
+        if (studentId == null || !seating.waiting.remove(studentId)) {
+            return false;
+        }
+        seating.waitlist.remove(studentId);
+        return true;
+    }
+    
+    // Only for fillFromWaitlist's callback: the student's queue entry is already gone, this removes
+    // their place in line. False if they left the waitlist meanwhile.
+    public boolean removeFromWaitlist(String studentId) {
+        return seating.waiting.remove(studentId);
+    }
+    
+    public boolean isWaitlisted(String studentId) { return studentId != null && seating.waiting.contains(studentId); }
+    public boolean hasWaitlist() { return !seating.waiting.isEmpty(); }
+    public int getWaitlistSize() { return seating.waiting.size(); }
+    
+    public List<String> getWaitlist() {
+        List<String> waitlist = new ArrayList<>();
+        for (String studentId : seating.waitlist) {
+            if (seating.waiting.contains(studentId)) {
+                waitlist.add(studentId);
+            }
+        }
+        return waitlist;
+    }
+    
+    // 1-based position on the waitlist, or 0 if not on it
+    public int getWaitlistPosition(String studentId) {
+        if (!isWaitlisted(studentId)) return 0;
+        int position = 1;
+        for (String waiting : seating.waitlist) {
+            if (waiting.equals(studentId)) return position;
+            if (seating.waiting.contains(waiting)) position++;
+        }
+        return 0;
+    }
+    
+    // Hand free seats to waitlisted students in order. `enroll` gets a seat already claimed for the
+    // student and must first take them off the line with removeFromWaitlist, so the service can do
+    // that under the student's own lock; it returns false if they had left the line already or can no
+    // longer take the seat, which then goes to the next.
+    // Call after every seat release and every waitlist join: whichever of the two happens last sees
+    // the other, so a seat is never left free while someone waits. Returns the ids promoted.
+    public List<String> fillFromWaitlist(Predicate<String> enroll) {
+        List<String> promoted = new ArrayList<>();
+        while (hasWaitlist() && tryClaimSeat()) {
+            String next = seating.waitlist.poll();
+            if (next == null) {
+                // A join still between its two steps; it fills the seat itself once queued
+                releaseSeat();
+                break;
+            }
+            boolean enrolled = false;
+            try {
+                enrolled = enroll.test(next);
+            } finally {
+                if (enrolled) {
+                    promoted.add(next);
+                } else {
+                    releaseSeat();
+                }
+            }
+        }
+        return promoted;
+    }
+    
+    // Take over the seats and waitlist of the instance this one replaces, keeping this one's capacity
+    public void adoptSeating(Course previous) {
+        if (previous == this) return;
+        previous.setCapacity(getCapacity()); // Validates against the seats taken before anything changes
+        this.seating = previous.seating;
+    }
+    
     @Override
     public String toString() {
         return String.format("Course{code=%s, title='%s', credits=%d, instructor='%s', semester=%s, department='%s'}", 
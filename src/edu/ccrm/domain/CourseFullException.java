@@ -0,0 +1,24 @@
+package edu.ccrm.domain;
+
+/**
+ * Custom unchecked exception for enrolling in a course with no free seat
+ * Callers that want a place in line use StudentService.enrollOrWaitlist instead
+ */
+public class CourseFullException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    private final String courseCode;
+    private final int capacity;
+    private final int waitlistSize;
+    
+    public CourseFullException(String courseCode, int capacity, int waitlistSize) {
+        super(String.format("Course %s is full (%d seats, %d on the waitlist)", courseCode, capacity, waitlistSize));
+        this.courseCode = courseCode;
+        this.capacity = capacity;
+        this.waitlistSize = waitlistSize;
+    }
+    
+    public String getCourseCode() { return courseCode; }
+    public int getCapacity() { return capacity; }
+    public int getWaitlistSize() { return waitlistSize; }
+}
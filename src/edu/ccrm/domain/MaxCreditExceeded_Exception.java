@@ -5,6 +5,8 @@ package edu.ccrm.domain;
  * Demonstrates custom runtime exception
  */
 public class MaxCreditLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
     private final int currentCredits;
     private final int maxCredits;
     private final int attemptedCredits;
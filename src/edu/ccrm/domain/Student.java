@@ -2,6 +2,7 @@ package edu.ccrm.domain;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -10,20 +11,44 @@ import java.util.stream.Collectors;
  */
 public class Student extends Person {
     private String regNo;
-    private final Set<Course> enrolledCourses;
+    private final Map<Course, Terms> enrolledCourses;
     private final Map<Course, Grade> grades;
+    private final Set<Course> enrolledCoursesView;
+    private final Map<Course, Grade> gradesView;
     private StudentStatus status;
     
+    // Running totals kept in step with enrolledCourses and grades
+    private int totalCredits;
+    private int gradedCredits;
+    private double totalGradePoints;
+    // Credits enrolled per semester, indexed by Semester ordinal, so the credit cap is checked in O(1)
+    private final int[] semesterCredits;
+    
     // Nested enum demonstrating nested types
     public enum StudentStatus {
         ACTIVE, INACTIVE, GRADUATED, SUSPENDED
     }
     
+    // Credits and semester an enrollment is counted under, taken from the course when enrolling or
+    // refreshing; unenrolling takes back exactly these even if the course was edited in between
+    private static final class Terms {
+        private final int credits;
+        private final Semester semester;
+        
+        Terms(Course course) {
+            this.credits = course.getCredits();
+            this.semester = course.getSemester();
+        }
+    }
+    
     public Student(String id, Name name, String email, String regNo) {
         super(id, name, email); // Constructor inheritance
         this.regNo = Objects.requireNonNull(regNo, "Registration number cannot be null");
-        this.enrolledCourses = new HashSet<>();
+        this.enrolledCourses = new HashMap<>();
         this.grades = new HashMap<>();
+        this.enrolledCoursesView = Collections.unmodifiableSet(enrolledCourses.keySet());
+        this.gradesView = Collections.unmodifiableMap(grades);
+        this.semesterCredits = new int[Semester.values().length];
         this.status = StudentStatus.ACTIVE;
     }
     
@@ -50,59 +75,129 @@ public class Student extends Person {
     
     // Defensive copying for collection access
     public Set<Course> getEnrolledCourses() {
-        return new HashSet<>(enrolledCourses);
+        return new HashSet<>(enrolledCourses.keySet());
     }
     
     public Map<Course, Grade> getGrades() {
         return new HashMap<>(grades);
     }
     
+    // Read-only live views: no copy per call, but they reflect later changes
+    public Set<Course> getEnrolledCoursesView() {
+        return enrolledCoursesView;
+    }
+    
+    public Map<Course, Grade> getGradesView() {
+        return gradesView;
+    }
+    
+    public void forEachGrade(BiConsumer<? super Course, ? super Grade> action) {
+        grades.forEach(action);
+    }
+    
+    public Grade getGrade(Course course) { return grades.get(course); }
+    public boolean hasGrades() { return !grades.isEmpty(); }
+    public boolean isEnrolledIn(Course course) { return enrolledCourses.containsKey(course); }
+    public int getEnrolledCourseCount() { return enrolledCourses.size(); }
+    
     // Business logic methods
-    public void enrollInCourse(Course course) {
+    public void enrollInCourse(Course course) throws DuplicateEnrollmentException {
+        enrollInCourse(course, 0);
+    }
+    
+    // maxSemesterCredits caps the credits taken in the course's semester; 0 = no cap
+    public void enrollInCourse(Course course, int maxSemesterCredits) throws DuplicateEnrollmentException {
         Objects.requireNonNull(course, "Course cannot be null");
-        if (enrolledCourses.contains(course)) {
-            throw new IllegalArgumentException("Student already enrolled in course: " + course.getCode());
+        if (enrolledCourses.containsKey(course)) {
+            throw new DuplicateEnrollmentException(getId(), course.getCode().getCode());
+        }
+        checkCreditLimit(course, maxSemesterCredits);
+        Terms terms = new Terms(course);
+        enrolledCourses.put(course, terms);
+        totalCredits += terms.credits;
+        semesterCredits[terms.semester.ordinal()] += terms.credits;
+    }
+    
+    // Throws if enrolling in course would take its semester past maxSemesterCredits (0 = no cap)
+    public void checkCreditLimit(Course course, int maxSemesterCredits) {
+        if (maxSemesterCredits <= 0) return;
+        
+        int current = semesterCredits[course.getSemester().ordinal()];
+        if (current + course.getCredits() > maxSemesterCredits) {
+            throw new MaxCreditLimitExceededException(
+                    String.format("Credit limit exceeded for %s. Current: %d, Max: %d, Attempted to add: %d (%s)",
+                            course.getSemester().getDisplayName(), current, maxSemesterCredits, course.getCredits(), course.getCode()),
+                    current, maxSemesterCredits, course.getCredits());
         }
-        enrolledCourses.add(course);
     }
     
     public void unenrollFromCourse(Course course) {
         Objects.requireNonNull(course, "Course cannot be null");
-        if (!enrolledCourses.contains(course)) {
+        Terms terms = enrolledCourses.remove(course);
+        if (terms == null) {
             throw new IllegalArgumentException("Student not enrolled in course: " + course.getCode());
         }
-        enrolledCourses.remove(course);
-        grades.remove(course);
+        totalCredits -= terms.credits;
+        semesterCredits[terms.semester.ordinal()] -= terms.credits;
+        
+        Grade previous = grades.remove(course);
+        if (previous != null) {
+            gradedCredits -= terms.credits;
+            totalGradePoints -= previous.getGradePoints();
+        }
     }
     
     public void assignGrade(Course course, Grade grade) {
         Objects.requireNonNull(course, "Course cannot be null");
         Objects.requireNonNull(grade, "Grade cannot be null");
-        if (!enrolledCourses.contains(course)) {
+        Terms terms = enrolledCourses.get(course);
+        if (terms == null) {
             throw new IllegalArgumentException("Student not enrolled in course: " + course.getCode());
         }
-        grades.put(course, grade);
+        Grade previous = grades.put(course, grade);
+        if (previous == null) {
+            gradedCredits += terms.credits;
+        } else {
+            totalGradePoints -= previous.getGradePoints();
+        }
+        totalGradePoints += grade.getGradePoints();
     }
     
-    // Calculate GPA using streams
+    // O(1) GPA from the running totals
     public double calculateGPA() {
         if (grades.isEmpty()) return 0.0;
         
-        double totalPoints = grades.values().stream()
-                .mapToDouble(Grade::getGradePoints)
-                .sum();
-        
-        double totalCredits = grades.keySet().stream()
-                .mapToInt(Course::getCredits)
-                .sum();
-        
-        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+        return gradedCredits > 0 ? totalGradePoints / gradedCredits : 0.0;
     }
     
     public int getTotalCredits() {
-        return enrolledCourses.stream()
-                .mapToInt(Course::getCredits)
-                .sum();
+        return totalCredits;
+    }
+    
+    public int getSemesterCredits(Semester semester) {
+        return semesterCredits[semester.ordinal()];
+    }
+    
+    // Count an enrollment under the course's current credits and semester, and hold this instance of
+    // the course from now on; call after the course was edited or replaced. False if not enrolled.
+    // Like a restored enrollment, the new count may go past the semester's credit cap.
+    public boolean refreshCourse(Course course) {
+        Terms previous = enrolledCourses.remove(course);
+        if (previous == null) {
+            return false;
+        }
+        Terms current = new Terms(course);
+        enrolledCourses.put(course, current);
+        totalCredits += current.credits - previous.credits;
+        semesterCredits[previous.semester.ordinal()] -= previous.credits;
+        semesterCredits[current.semester.ordinal()] += current.credits;
+        
+        Grade grade = grades.remove(course);
+        if (grade != null) {
+            grades.put(course, grade);
+            gradedCredits += current.credits - previous.credits;
+        }
+        return true;
     }
     
     // Method overriding
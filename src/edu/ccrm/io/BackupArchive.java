@@ -0,0 +1,449 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Single-file compressed backup archive
+ * Files are cut into fixed-size blocks that are deflated independently on a fork-join pool
+ * (pigz-style) and written in order, each framed with its lengths and CRC-32.
+ * Records can be streamed front to back for a full restore; an index at the end gives the
+ * offset of every file, so one file can be extracted without inflating the others.
+ *
+ * Layout: header | per file: FILE, BLOCK/STORED..., END (size + SHA-256) | INDEX | index offset, magic
+ */
+public class BackupArchive {
+    public static final String EXTENSION = ".cca";
+    private static final int MAGIC = 0x43434131; // "CCA1"
+    private static final int VERSION = 1;
+    private static final int TRAILER_BYTES = 12;
+    private static final int HASH_BYTES = 32;
+    
+    // Record types
+    private static final byte FILE = 'F';
+    private static final byte BLOCK = 'B';   // Deflated block
+    private static final byte STORED = 'S';  // Block that did not shrink, kept as is
+    private static final byte END = 'E';
+    private static final byte INDEX = 'I';
+    
+    private final int blockBytes;
+    private final int parallelism;
+    private final int level;
+    
+    // Static nested class for one file in the archive index
+    public static class IndexEntry {
+        private final BackupManifest.Entry file;
+        private final long offset; // Of the file's FILE record
+        
+        public IndexEntry(BackupManifest.Entry file, long offset) {
+            this.file = file;
+            this.offset = offset;
+        }
+        
+        public BackupManifest.Entry getFile() { return file; }
+        public long getOffset() { return offset; }
+    }
+    
+    // A record waiting to be written: ready bytes, or a block still being compressed
+    private static class Pending {
+        private final Future<byte[]> record;
+        private final String startsFile; // Path of the file a FILE record starts, else null
+        
+        Pending(Future<byte[]> record, String startsFile) {
+            this.record = record;
+            this.startsFile = startsFile;
+        }
+    }
+    
+    public BackupArchive() {
+        this(AppConfig.getInstance().getArchiveBlockBytes(),
+             AppConfig.getInstance().getArchiveParallelism(),
+             AppConfig.getInstance().getArchiveCompressionLevel());
+    }
+    
+    public BackupArchive(int blockBytes, int parallelism, int level) {
+        if (blockBytes <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Block size and parallelism must be positive");
+        }
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + level);
+        }
+        this.blockBytes = blockBytes;
+        this.parallelism = parallelism;
+        this.level = level;
+    }
+    
+    // Archive every regular file under sourceDir; the archive only appears once it is complete
+    public BackupManifest create(Path sourceDir, Path archive) throws IOException {
+        BackupManifest manifest = new BackupManifest(System.currentTimeMillis());
+        Map<String, Long> offsets = new HashMap<>();
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+            
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(sourceDir)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            
+            // Blocks are compressed in parallel but written strictly in order, with a bounded number in flight
+            Deque<Pending> pending = new ArrayDeque<>();
+            MessageDigest digest = BackupManifest.newDigest();
+            byte[] buffer = new byte[blockBytes];
+            for (Path file : files) {
+                String path = BackupManifest.toManifestPath(sourceDir.relativize(file));
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long lastModified = Files.getLastModifiedTime(file).toMillis();
+                    pending.add(new Pending(CompletableFuture.completedFuture(fileRecord(path, lastModified)), path));
+                    
+                    digest.reset();
+                    long size = 0;
+                    int read;
+                    while ((read = readBlock(in, buffer)) > 0) {
+                        digest.update(buffer, 0, read);
+                        size += read;
+                        byte[] block = Arrays.copyOf(buffer, read);
+                        pending.add(new Pending(pool.submit(() -> blockRecord(block)), null));
+                        drain(out, pending, offsets, parallelism * 2);
+                    }
+                    
+                    byte[] hash = digest.digest();
+                    pending.add(new Pending(CompletableFuture.completedFuture(endRecord(size, hash)), null));
+                    manifest.add(new BackupManifest.Entry(path, size, lastModified, HexFormat.of().formatHex(hash)));
+                } catch (NoSuchFileException e) {
+                    continue; // Deleted while the archive was being written
+                }
+            }
+            drain(out, pending, offsets, 0);
+            
+            long indexOffset = out.position();
+            writeFully(out, ByteBuffer.wrap(indexRecord(manifest, offsets)));
+            writeFully(out, ByteBuffer.allocate(TRAILER_BYTES).putLong(indexOffset).putInt(MAGIC).flip());
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+        Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifest;
+    }
+    
+    // Streaming restore: one front-to-back pass, no seeking, so it also works on a pipe
+    public BackupManifest restore(InputStream archive, Path targetDir) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(archive, 64 * 1024));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a backup archive");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported archive version: " + version);
+        }
+        
+        BackupManifest manifest = new BackupManifest(System.currentTimeMillis());
+        while (true) {
+            byte type = in.readByte();
+            if (type == INDEX) {
+                return manifest;
+            }
+            if (type != FILE) {
+                throw new IOException("Corrupt archive: unexpected record type " + type);
+            }
+            manifest.add(extractFile(in, targetDir));
+        }
+    }
+    
+    public BackupManifest restore(Path archive, Path targetDir) throws IOException {
+        try (InputStream in = Files.newInputStream(archive)) {
+            return restore(in, targetDir);
+        }
+    }
+    
+    // The index: every file with its size, hash and offset, read from the end of the archive
+    public List<IndexEntry> readIndex(Path archive) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            return readIndex(channel);
+        }
+    }
+    
+    // Random access: seek straight to one file and inflate only its blocks
+    public BackupManifest.Entry extract(Path archive, String path, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            for (IndexEntry entry : readIndex(channel)) {
+                if (entry.getFile().getPath().equals(path)) {
+                    return extractFile(seekToFile(channel, entry), target, true);
+                }
+            }
+        }
+        throw new NoSuchFileException(path, null, "not in archive " + archive.getFileName());
+    }
+    
+    // Inflate one indexed file without writing it, checking every block CRC and the file's SHA-256
+    // Each call reads through its own channel, so files of one archive can be checked in parallel
+    public BackupManifest.Entry check(Path archive, IndexEntry entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            return extractFile(seekToFile(channel, entry), null, false);
+        }
+    }
+    
+    // Position on an indexed file's FILE record and consume its type byte
+    private static DataInputStream seekToFile(FileChannel channel, IndexEntry entry) throws IOException {
+        channel.position(entry.getOffset());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        if (in.readByte() != FILE) {
+            throw new IOException("Corrupt archive: index points past a file record for " + entry.getFile().getPath());
+        }
+        return in;
+    }
+    
+    private BackupManifest.Entry extractFile(DataInputStream in, Path targetDir) throws IOException {
+        return extractFile(in, targetDir, false);
+    }
+    
+    // Inflate the records of one file (after its type byte) into targetDir, or into exactly target;
+    // with no target at all the file is only checked
+    private BackupManifest.Entry extractFile(DataInputStream in, Path target, boolean exactTarget) throws IOException {
+        String path = in.readUTF();
+        long lastModified = in.readLong();
+        Path file = target == null ? null : exactTarget ? target : resolveInside(target, path);
+        if (file != null && file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        
+        MessageDigest digest = BackupManifest.newDigest();
+        Inflater inflater = new Inflater(true);
+        long size = 0;
+        FileChannel out = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == END) {
+                    break;
+                }
+                if (type != BLOCK && type != STORED) {
+                    throw new IOException("Corrupt archive: unexpected record type " + type + " in " + path);
+                }
+                byte[] block = readBlockRecord(in, type, inflater, path);
+                digest.update(block);
+                size += block.length;
+                if (out != null) {
+                    writeFully(out, ByteBuffer.wrap(block));
+                }
+            }
+        } finally {
+            inflater.end();
+            if (out != null) {
+                out.close();
+            }
+        }
+        
+        long expectedSize = in.readLong();
+        byte[] expectedHash = in.readNBytes(HASH_BYTES);
+        if (size != expectedSize || !MessageDigest.isEqual(digest.digest(), expectedHash)) {
+            throw new IOException("Corrupt archive: checksum mismatch for " + path);
+        }
+        if (file != null) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        }
+        return new BackupManifest.Entry(path, size, lastModified, HexFormat.of().formatHex(expectedHash));
+    }
+    
+    private static byte[] readBlockRecord(DataInputStream in, byte type, Inflater inflater, String path) throws IOException {
+        int rawLength = in.readInt();
+        int storedLength = in.readInt();
+        int crc = in.readInt();
+        byte[] stored = in.readNBytes(storedLength);
+        if (stored.length != storedLength) {
+            throw new EOFException("Truncated block in " + path);
+        }
+        
+        byte[] raw = stored;
+        if (type == BLOCK) {
+            raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                int inflated = 0;
+                while (inflated < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    inflated += n;
+                }
+                if (inflated != rawLength) {
+                    throw new IOException("Corrupt archive: short block in " + path);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt archive: bad block in " + path, e);
+            }
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(raw);
+        if ((int) crc32.getValue() != crc) {
+            throw new IOException("Corrupt archive: CRC mismatch in " + path);
+        }
+        return raw;
+    }
+    
+    private static List<IndexEntry> readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 8 + 1 + TRAILER_BYTES) {
+            throw new IOException("Not a backup archive (too short)");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        readFully(channel, trailer, size - TRAILER_BYTES);
+        long indexOffset = trailer.getLong(0);
+        if (trailer.getInt(8) != MAGIC || indexOffset < 8 || indexOffset >= size - TRAILER_BYTES) {
+            throw new IOException("Not a backup archive, or an incomplete one");
+        }
+        
+        ByteBuffer index = ByteBuffer.allocate((int) (size - TRAILER_BYTES - indexOffset));
+        readFully(channel, index, indexOffset);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+        if (in.readByte() != INDEX) {
+            throw new IOException("Corrupt archive: missing index");
+        }
+        int count = in.readInt();
+        List<IndexEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            String hash = HexFormat.of().formatHex(in.readNBytes(HASH_BYTES));
+            long offset = in.readLong();
+            entries.add(new IndexEntry(new BackupManifest.Entry(path, fileSize, lastModified, hash), offset));
+        }
+        return entries;
+    }
+    
+    // Deflate one block; runs on the pool
+    private byte[] blockRecord(byte[] raw) {
+        Deflater deflater = new Deflater(level, true);
+        byte[] compressed = new byte[raw.length + raw.length / 8 + 64];
+        int length = 0;
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            while (!deflater.finished() && length < raw.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+        
+        boolean deflated = length < raw.length;
+        byte[] payload = deflated ? compressed : raw;
+        int payloadLength = deflated ? length : raw.length;
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        
+        ByteBuffer record = ByteBuffer.allocate(13 + payloadLength);
+        record.put(deflated ? BLOCK : STORED).putInt(raw.length).putInt(payloadLength).putInt((int) crc.getValue());
+        record.put(payload, 0, payloadLength);
+        return record.array();
+    }
+    
+    private static byte[] fileRecord(String path, long lastModified) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FILE);
+        out.writeUTF(path);
+        out.writeLong(lastModified);
+        return bytes.toByteArray();
+    }
+    
+    private static byte[] endRecord(long size, byte[] hash) {
+        return ByteBuffer.allocate(1 + 8 + HASH_BYTES).put(END).putLong(size).put(hash).array();
+    }
+    
+    private static byte[] indexRecord(BackupManifest manifest, Map<String, Long> offsets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(INDEX);
+        out.writeInt(manifest.getFileCount());
+        for (BackupManifest.Entry entry : manifest.getEntries()) {
+            out.writeUTF(entry.getPath());
+            out.writeLong(entry.getSize());
+            out.writeLong(entry.getLastModified());
+            out.write(HexFormat.of().parseHex(entry.getHash()));
+            out.writeLong(offsets.get(entry.getPath()));
+        }
+        return bytes.toByteArray();
+    }
+    
+    // Write completed records from the head of the queue until at most maxPending remain
+    private static void drain(FileChannel out, Deque<Pending> pending, Map<String, Long> offsets, int maxPending) throws IOException {
+        while (pending.size() > maxPending) {
+            Pending next = pending.poll();
+            if (next.startsFile != null) {
+                offsets.put(next.startsFile, out.position());
+            }
+            writeFully(out, ByteBuffer.wrap(await(next.record)));
+        }
+    }
+    
+    private static <V> V await(Future<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Archive interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IOException(cause);
+        }
+    }
+    
+    // Fill the buffer unless the file ends first; returns the number of bytes read, 0 at end
+    private static int readBlock(FileChannel in, byte[] buffer) throws IOException {
+        ByteBuffer window = ByteBuffer.wrap(buffer);
+        while (window.hasRemaining()) {
+            if (in.read(window) < 0) break;
+        }
+        return window.position();
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+    }
+    
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+    
+    // Archive paths are relative and '/'-separated; refuse anything that would land outside targetDir
+    private static Path resolveInside(Path targetDir, String path) throws IOException {
+        Path resolved = targetDir.resolve(path).normalize();
+        if (path.isEmpty() || !resolved.startsWith(targetDir.normalize())) {
+            throw new IOException("Corrupt archive: illegal path " + path);
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,171 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Persisted list of backups with the figures recorded when each was written
+ * Listing backups reads this one small file instead of walking every backup tree.
+ * Stored as catalog.csv in the backup directory and rewritten atomically on every change.
+ */
+public class BackupCatalog {
+    public static final String FILE_NAME = "catalog.csv";
+    
+    private final Path file;
+    private final Map<String, Entry> entries; // By backup name
+    private boolean loaded;
+    
+    public enum Kind { DIRECTORY, ARCHIVE }
+    
+    public enum Status { UNVERIFIED, OK, DAMAGED }
+    
+    // Static nested class for one catalogued backup
+    public static class Entry {
+        private final String name;
+        private final Kind kind;
+        private final long createdMillis;
+        private final int fileCount;
+        private final long totalBytes;  // Size of the backed-up data
+        private final long storedBytes; // Disk space this backup added: changed files, or the archive size
+        private final String checksum;  // BackupManifest.getChecksum(); empty for backups without a manifest
+        private final Status status;
+        private final long verifiedMillis;
+        
+        public Entry(String name, Kind kind, long createdMillis, int fileCount, long totalBytes,
+                     long storedBytes, String checksum, Status status, long verifiedMillis) {
+            this.name = name;
+            this.kind = kind;
+            this.createdMillis = createdMillis;
+            this.fileCount = fileCount;
+            this.totalBytes = totalBytes;
+            this.storedBytes = storedBytes;
+            this.checksum = checksum;
+            this.status = status;
+            this.verifiedMillis = verifiedMillis;
+        }
+        
+        public String getName() { return name; }
+        public Kind getKind() { return kind; }
+        public long getCreatedMillis() { return createdMillis; }
+        public int getFileCount() { return fileCount; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getStoredBytes() { return storedBytes; }
+        public String getChecksum() { return checksum; }
+        public Status getStatus() { return status; }
+        public long getVerifiedMillis() { return verifiedMillis; }
+        
+        public Entry withStatus(Status status, long verifiedMillis) {
+            return new Entry(name, kind, createdMillis, fileCount, totalBytes, storedBytes, checksum, status, verifiedMillis);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s (%s, %d files, %d bytes, %s)", name, kind, fileCount, totalBytes, status);
+        }
+    }
+    
+    public BackupCatalog(Path file) {
+        this.file = file;
+        this.entries = new HashMap<>();
+    }
+    
+    public synchronized Entry get(String name) throws IOException {
+        load();
+        return entries.get(name);
+    }
+    
+    // Newest first
+    public synchronized List<Entry> getEntries() throws IOException {
+        load();
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::getCreatedMillis).thenComparing(Entry::getName).reversed());
+        return sorted;
+    }
+    
+    public synchronized void put(Entry entry) throws IOException {
+        load();
+        entries.put(entry.getName(), entry);
+        save();
+    }
+    
+    // Several changes with one rewrite of the file
+    public synchronized void update(Collection<Entry> added, Collection<String> removed) throws IOException {
+        load();
+        for (String name : removed) {
+            entries.remove(name);
+        }
+        for (Entry entry : added) {
+            entries.put(entry.getName(), entry);
+        }
+        save();
+    }
+    
+    // Record a verification result, unless the backup was removed in the meantime
+    public synchronized Entry updateStatus(String name, Status status, long verifiedMillis) throws IOException {
+        load();
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        Entry updated = entry.withStatus(status, verifiedMillis);
+        entries.put(name, updated);
+        save();
+        return updated;
+    }
+    
+    public synchronized void remove(String name) throws IOException {
+        load();
+        if (entries.remove(name) != null) {
+            save();
+        }
+    }
+    
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.exists(file)) {
+            return;
+        }
+        
+        try (CsvReader csv = new CsvReader(Files.newByteChannel(file))) {
+            if (csv.next()) { // Skip header
+                while (csv.next()) {
+                    if (csv.getFieldCount() < 9) {
+                        throw new IOException("Invalid catalog record at line " + csv.getLineNumber() + ": " + file);
+                    }
+                    Entry entry = new Entry(csv.getString(0), Kind.valueOf(csv.getString(1)),
+                            Long.parseLong(csv.getString(2)), csv.getInt(3), Long.parseLong(csv.getString(4)),
+                            Long.parseLong(csv.getString(5)), csv.getString(6), Status.valueOf(csv.getString(7)),
+                            Long.parseLong(csv.getString(8)));
+                    entries.put(entry.getName(), entry);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid catalog " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        try (CsvWriter csv = new CsvWriter(file)) {
+            csv.record("Name", "Kind", "Created", "Files", "TotalBytes", "StoredBytes", "Checksum", "Status", "Verified");
+            for (Entry entry : getEntries()) {
+                csv.field(entry.getName());
+                csv.field(entry.getKind().name());
+                csv.field(entry.getCreatedMillis());
+                csv.field(entry.getFileCount());
+                csv.field(entry.getTotalBytes());
+                csv.field(entry.getStoredBytes());
+                csv.field(entry.getChecksum());
+                csv.field(entry.getStatus().name());
+                csv.field(entry.getVerifiedMillis());
+                csv.endRecord();
+            }
+            csv.commit();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Per-backup list of files with their size, modification time and SHA-256 content hash
+ * Stored as manifest.csv next to the backed-up tree; it is written last, so a backup
+ * without a manifest is incomplete and never used as the base of an incremental one.
+ *
+ * Layout: a "CCRM-MANIFEST,version,createdMillis" line, a header line, then one record per file
+ */
+public class BackupManifest {
+    public static final String FILE_NAME = "manifest.csv";
+    private static final String MAGIC = "CCRM-MANIFEST";
+    private static final int VERSION = 1;
+    
+    private final long createdMillis;
+    private final Map<String, Entry> entries; // By relative path, '/'-separated
+    private final Map<String, Entry> entriesByHash;
+    
+    // Static nested class for one backed-up file
+    public static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        
+        public Entry(String path, long size, long lastModified, String hash) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+        
+        public String getPath() { return path; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public String getHash() { return hash; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s (%d bytes, %s)", path, size, hash);
+        }
+    }
+    
+    public BackupManifest(long createdMillis) {
+        this.createdMillis = createdMillis;
+        this.entries = new LinkedHashMap<>();
+        this.entriesByHash = new HashMap<>();
+    }
+    
+    public void add(Entry entry) {
+        entries.put(entry.getPath(), entry);
+        entriesByHash.putIfAbsent(entry.getHash(), entry);
+    }
+    
+    public Entry get(String path) { return entries.get(path); }
+    
+    // Any file with this content, so renamed or duplicated files can be shared too
+    public Entry findByHash(String hash) { return entriesByHash.get(hash); }
+    
+    public Collection<Entry> getEntries() { return Collections.unmodifiableCollection(entries.values()); }
+    public long getCreatedMillis() { return createdMillis; }
+    public int getFileCount() { return entries.size(); }
+    
+    public long getTotalBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.getSize();
+        }
+        return total;
+    }
+    
+    // One hash over every path, size and content hash: equal for the same data whatever the backup format
+    public String getChecksum() {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparing(Entry::getPath));
+        MessageDigest digest = newDigest();
+        for (Entry entry : sorted) {
+            digest.update((entry.getPath() + '\0' + entry.getSize() + '\0' + entry.getHash() + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    // Relative path with '/' separators, the same on every platform
+    static String toManifestPath(Path relative) {
+        StringBuilder path = new StringBuilder();
+        for (Path name : relative) {
+            if (path.length() > 0) path.append('/');
+            path.append(name);
+        }
+        return path.toString();
+    }
+    
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every Java platform
+        }
+    }
+    
+    public void write(Path file) throws IOException {
+        try (CsvWriter csv = new CsvWriter(file)) {
+            csv.field(MAGIC);
+            csv.field(VERSION);
+            csv.field(createdMillis);
+            csv.endRecord();
+            csv.record("Path", "Size", "LastModified", "SHA256");
+            for (Entry entry : entries.values()) {
+                csv.field(entry.getPath());
+                csv.field(entry.getSize());
+                csv.field(entry.getLastModified());
+                csv.field(entry.getHash());
+                csv.endRecord();
+            }
+            csv.commit();
+        }
+    }
+    
+    public static BackupManifest read(Path file) throws IOException {
+        try (CsvReader csv = new CsvReader(Files.newByteChannel(file))) {
+            if (!csv.next() || csv.getFieldCount() < 3 || !MAGIC.equals(csv.getString(0))) {
+                throw new IOException("Not a backup manifest: " + file);
+            }
+            if (csv.getInt(1) != VERSION) {
+                throw new IOException("Unsupported manifest version " + csv.getString(1) + ": " + file);
+            }
+            BackupManifest manifest = new BackupManifest(Long.parseLong(csv.getString(2)));
+            
+            if (csv.next()) { // Skip header
+                while (csv.next()) {
+                    if (csv.getFieldCount() < 4) {
+                        throw new IOException("Invalid manifest record at line " + csv.getLineNumber() + ": " + file);
+                    }
+                    manifest.add(new Entry(csv.getString(0), Long.parseLong(csv.getString(1)),
+                            Long.parseLong(csv.getString(2)), csv.getString(3)));
+                }
+            }
+            return manifest;
+        }
+    }
+}
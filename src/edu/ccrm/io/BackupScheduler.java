@@ -0,0 +1,143 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.util.TokenBucket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Periodic incremental backups on a background thread, followed by retention
+ * Each run freezes a point-in-time view of the data directory (see BackupService.freezeDataDirectory),
+ * backs that up while the application keeps working, and then keeps only the newest `keepCount`
+ * backups. Copying is paced by a token bucket so a backup never saturates the disk.
+ */
+public class BackupScheduler implements Closeable {
+    private final BackupService backupService;
+    private final Journal journal;
+    private final TokenBucket throttle;
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> schedule;
+    private int keepCount;
+    private volatile long lastRunMillis;
+    private volatile String lastResult = "never run";
+    
+    public BackupScheduler(BackupService backupService, Journal journal) {
+        this(backupService, journal, AppConfig.getInstance().getBackupMaxBytesPerSecond());
+    }
+    
+    // journal may be null; bytesPerSecond <= 0 means unthrottled
+    public BackupScheduler(BackupService backupService, Journal journal, long bytesPerSecond) {
+        this.backupService = backupService;
+        this.journal = journal;
+        // One second's worth of burst, but at least a copy buffer, so small files pass straight through
+        this.throttle = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, Math.max(bytesPerSecond, 64 * 1024)) : null;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup-scheduler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    // Back up every intervalMinutes, the first run one interval from now; replaces any earlier schedule
+    public synchronized void start(long intervalMinutes, int keepCount) {
+        if (intervalMinutes <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (keepCount <= 0) {
+            throw new IllegalArgumentException("Keep count must be positive");
+        }
+        stop();
+        this.keepCount = keepCount;
+        // Fixed delay: a slow (throttled) run pushes the next one back instead of piling up
+        schedule = executor.scheduleWithFixedDelay(this::runQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+    
+    public synchronized void stop() {
+        if (schedule != null) {
+            schedule.cancel(false); // A run in progress finishes
+            schedule = null;
+        }
+    }
+    
+    public synchronized boolean isRunning() {
+        return schedule != null;
+    }
+    
+    // Run once now on the scheduler thread, with the current keep count (none deleted if never started)
+    public Future<BackupCatalog.Entry> runNow() {
+        return executor.submit(this::runOnce);
+    }
+    
+    public String getStatus() {
+        StringBuilder status = new StringBuilder();
+        synchronized (this) {
+            if (schedule != null) {
+                status.append(String.format("Scheduled, next run in %d s, keeping %d backups",
+                        schedule.getDelay(TimeUnit.SECONDS), keepCount));
+            } else {
+                status.append("Not scheduled");
+            }
+        }
+        if (lastRunMillis > 0) {
+            status.append(String.format("; last run %tF %<tT: %s", lastRunMillis, lastResult));
+        } else {
+            status.append("; ").append(lastResult);
+        }
+        return status.toString();
+    }
+    
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (IOException | RuntimeException e) {
+            // Never let an exception escape: it would cancel the schedule for good
+            System.err.println("Scheduled backup failed: " + e.getMessage());
+        }
+    }
+    
+    private BackupCatalog.Entry runOnce() throws IOException {
+        long start = System.nanoTime();
+        lastRunMillis = System.currentTimeMillis();
+        try {
+            Path view = backupService.freezeDataDirectory(journal);
+            BackupCatalog.Entry entry;
+            try {
+                entry = backupService.createIncrementalBackup(view, throttle);
+            } finally {
+                new ParallelFileTree().delete(view);
+            }
+            
+            int keep;
+            synchronized (this) {
+                keep = keepCount;
+            }
+            List<String> deleted = keep > 0 ? backupService.applyRetention(keep) : List.of();
+            lastResult = String.format("%s, %d files, %d bytes copied in %d ms, %d old backups deleted",
+                    entry.getName(), entry.getFileCount(), entry.getStoredBytes(),
+                    (System.nanoTime() - start) / 1_000_000, deleted.size());
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            lastResult = "failed: " + e.getMessage();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void close() {
+        stop();
+        executor.shutdown();
+        try {
+            // Let a running backup finish so it is not left without a manifest
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package edu.ccrm.io;
 
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.util.TokenBucket;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 /**
@@ -11,54 +22,333 @@ import java.util.stream.Stream;
  * Demonstrates recursive file operations and Path manipulation
  */
 public class BackupService {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Coarsest common mtime resolution (FAT); files touched this close to a backup are always re-read
+    private static final long MTIME_GRANULARITY_MILLIS = 2000;
+    // Siblings of the data directory used by restore
+    private static final String STAGING_SUFFIX = ".restoring";
+    private static final String READY_SUFFIX = ".restore-ready";
+    private static final String PREVIOUS_SUFFIX = ".previous";
+    // Sibling of the data directory holding the frozen view a scheduled backup copies from
+    private static final String VIEW_SUFFIX = ".backup-view";
+    
     private final AppConfig config;
+    private final BackupCatalog catalog;
+    private ExecutorService verifier;
     
     public BackupService() {
         this.config = AppConfig.getInstance();
+        this.catalog = new BackupCatalog(config.getBackupPath().resolve(BackupCatalog.FILE_NAME));
     }
     
-    // Create backup with timestamp
+    // Create an incremental backup of the data directory with timestamp
     public Path createBackup() throws IOException {
+        BackupCatalog.Entry entry = createIncrementalBackup(config.getDataPath(), null);
+        Path backupDir = config.getBackupPath().resolve(entry.getName());
+        
+        System.out.println("Backup created at: " + backupDir.toAbsolutePath());
+        System.out.printf("%d files, %d bytes copied, %d bytes linked from the previous backup%n",
+                entry.getFileCount(), entry.getStoredBytes(), entry.getTotalBytes() - entry.getStoredBytes());
+        return backupDir;
+    }
+    
+    // Incremental backup of dataDir (the data directory or a frozen view of it), stored as data/
+    // Files unchanged since the latest complete backup are hard-linked from it instead of copied,
+    // so every backup is still a full tree but only changed files cost time and disk.
+    // Bytes copied are paced by the throttle when one is given.
+    public synchronized BackupCatalog.Entry createIncrementalBackup(Path dataDir, TokenBucket throttle) throws IOException {
+        long startedMillis = System.currentTimeMillis();
         String timestamp = config.getCurrentTimestamp();
         Path backupDir = config.getBackupPath().resolve("backup_" + timestamp);
+        if (Files.exists(backupDir)) {
+            throw new FileAlreadyExistsException(backupDir.toString(), null, "A backup was already taken this second");
+        }
+        
+        // Find the base before creating the new directory, so it can never be its own base
+        Path previousDir = findLatestCompleteBackup();
+        BackupManifest previous = null;
+        if (previousDir != null) {
+            try {
+                previous = BackupManifest.read(previousDir.resolve(BackupManifest.FILE_NAME));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable manifest, taking a full backup: " + e.getMessage());
+                previousDir = null;
+            }
+        }
         
         // Create backup directory
         Files.createDirectories(backupDir);
         
-        // Copy data directory to backup
-        Path dataDir = config.getDataPath();
+        BackupManifest manifest = new BackupManifest(startedMillis);
+        long bytesCopied = 0;
+        
+        // Copy changed files of the data directory, link the rest
         if (Files.exists(dataDir)) {
-            copyDirectory(dataDir, backupDir.resolve("data"));
+            Path targetRoot = backupDir.resolve("data");
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(dataDir)) {
+                paths = walk.sorted().toList();
+            }
+            
+            for (Path sourcePath : paths) {
+                Path relative = dataDir.relativize(sourcePath);
+                Path targetPath = targetRoot.resolve(relative);
+                if (Files.isDirectory(sourcePath)) {
+                    Files.createDirectories(targetPath);
+                    continue;
+                }
+                
+                BackupManifest.Entry entry;
+                try {
+                    entry = backupFile(sourcePath, targetPath, BackupManifest.toManifestPath(relative),
+                            previous, previousDir, throttle);
+                } catch (NoSuchFileException e) {
+                    continue; // Deleted while the backup was running
+                }
+                if (entry == null) {
+                    continue;
+                }
+                if (!isShared(entry, previous)) {
+                    bytesCopied += entry.getSize();
+                }
+                manifest.add(entry);
+            }
         }
         
-        System.out.println("Backup created at: " + backupDir.toAbsolutePath());
-        return backupDir;
+        // Written last: only a backup with a manifest is complete
+        manifest.write(backupDir.resolve(BackupManifest.FILE_NAME));
+        BackupCatalog.Entry entry = new BackupCatalog.Entry(backupDir.getFileName().toString(),
+                BackupCatalog.Kind.DIRECTORY, startedMillis, manifest.getFileCount(), manifest.getTotalBytes(),
+                bytesCopied, manifest.getChecksum(), BackupCatalog.Status.UNVERIFIED, 0);
+        catalog.put(entry);
+        return entry;
     }
     
-    // Recursive directory copy using NIO.2
-    private void copyDirectory(Path source, Path target) throws IOException {
-        try (Stream<Path> paths = Files.walk(source)) {
-            paths.forEach(sourcePath -> {
-                try {
-                    Path targetPath = target.resolve(source.relativize(sourcePath));
-                    if (Files.isDirectory(sourcePath)) {
-                        Files.createDirectories(targetPath);
-                    } else {
-                        Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException("Failed to copy: " + sourcePath, e);
+    // Point-in-time view of the data directory for a backup taken while the application keeps running
+    // Inside Journal.whileFrozen every file is hard-linked into a sibling directory; the snapshot and
+    // CSV files are only ever replaced by rename, so a link keeps the version it was made from. The
+    // journal is appended and truncated in place, so its synced prefix is copied instead. Snapshot plus
+    // journal prefix recover to the state after every change journaled before the freeze. Delete the
+    // view when done.
+    public Path freezeDataDirectory(Journal journal) throws IOException {
+        Path dataDir = config.getDataPath();
+        Path view = sibling(dataDir, VIEW_SUFFIX);
+        if (Files.exists(view)) {
+            deleteDirectoryRecursively(view); // Left over from a run that did not finish
+        }
+        Files.createDirectories(dataDir);
+        
+        try {
+            if (journal == null) {
+                linkTree(dataDir, view, null);
+            } else {
+                journal.whileFrozen((journalFile, syncedLength) -> {
+                    linkTree(dataDir, view, journalFile);
+                    copyPrefix(journalFile, view.resolve(dataDir.relativize(journalFile)), syncedLength);
+                    return null;
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteDirectoryRecursively(view);
+            throw e;
+        }
+        return view;
+    }
+    
+    // Hard-link (or, where links are unsupported, copy) every finished file; skips in-progress temp files
+    private static void linkTree(Path source, Path target, Path excluded) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(source)) {
+            paths = walk.sorted().toList();
+        }
+        for (Path path : paths) {
+            Path targetPath = target.resolve(source.relativize(path));
+            if (Files.isDirectory(path)) {
+                Files.createDirectories(targetPath);
+                continue;
+            }
+            String name = path.getFileName().toString();
+            if (path.equals(excluded) || name.endsWith(".tmp")) {
+                continue;
+            }
+            try {
+                Files.createLink(targetPath, path);
+            } catch (NoSuchFileException e) {
+                // Replaced or deleted since the walk
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(path, targetPath, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+    
+    // Copy the first length bytes of a file, keeping its mtime
+    private static void copyPrefix(Path source, Path target, long length) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            while (position < length) {
+                long sent = in.transferTo(position, length - position, out);
+                if (sent <= 0) {
+                    break;
                 }
-            });
+                position += sent;
+            }
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+    
+    // Create a backup as one compressed archive file, compressed in parallel blocks
+    public synchronized Path createArchiveBackup() throws IOException {
+        Path backupRoot = config.getBackupPath();
+        Files.createDirectories(backupRoot);
+        Path archive = backupRoot.resolve("backup_" + config.getCurrentTimestamp() + BackupArchive.EXTENSION);
+        
+        Path dataDir = config.getDataPath();
+        Files.createDirectories(dataDir);
+        long start = System.nanoTime();
+        BackupManifest manifest = new BackupArchive().create(dataDir, archive);
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        
+        long archiveBytes = Files.size(archive);
+        long dataBytes = manifest.getTotalBytes();
+        catalog.put(new BackupCatalog.Entry(archive.getFileName().toString(), BackupCatalog.Kind.ARCHIVE,
+                manifest.getCreatedMillis(), manifest.getFileCount(), dataBytes, archiveBytes,
+                manifest.getChecksum(), BackupCatalog.Status.UNVERIFIED, 0));
+        System.out.println("Archive created at: " + archive.toAbsolutePath());
+        System.out.printf("%d files, %d bytes -> %d bytes (%.1f%%) in %.2f s, %.1f MB/s%n",
+                manifest.getFileCount(), dataBytes, archiveBytes,
+                dataBytes == 0 ? 100.0 : archiveBytes * 100.0 / dataBytes,
+                seconds, dataBytes / seconds / (1024 * 1024));
+        return archive;
+    }
+    
+    // Directory backups and archive files alike
+    private static boolean isBackup(Path path) {
+        return Files.isDirectory(path) || path.getFileName().toString().endsWith(BackupArchive.EXTENSION);
+    }
+    
+    // Newest backup directory that has a manifest, or null
+    private Path findLatestCompleteBackup() throws IOException {
+        Path backupDir = config.getBackupPath();
+        if (!Files.exists(backupDir)) {
+            return null;
+        }
+        
+        try (Stream<Path> backups = Files.list(backupDir)) {
+            return backups.filter(backup -> Files.isRegularFile(backup.resolve(BackupManifest.FILE_NAME)))
+                    .max((p1, p2) -> p1.getFileName().toString().compareTo(p2.getFileName().toString()))
+                    .orElse(null);
+        }
+    }
+    
+    // Back up one regular file and return its manifest entry (null for anything that is not a regular file)
+    private BackupManifest.Entry backupFile(Path source, Path target, String path, BackupManifest previous,
+                                            Path previousDir, TokenBucket throttle) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        
+        // Same size and mtime as last time: trust the recorded hash without reading the file.
+        // Only for files last modified well before that backup started; a later write within
+        // the same timestamp tick would otherwise go unnoticed.
+        BackupManifest.Entry known = previous != null ? previous.get(path) : null;
+        if (known != null && known.getSize() == size && known.getLastModified() == lastModified
+                && lastModified < previous.getCreatedMillis() - MTIME_GRANULARITY_MILLIS
+                && link(previousDir, known, target)) {
+            return known;
+        }
+        
+        // Changed or new: copy and hash in one pass, so the hash describes exactly the bytes stored
+        String hash = copyAndHash(source, target, throttle);
+        long copiedSize = Files.size(target);
+        
+        // Same content under a new mtime or name: share the previous backup's copy instead
+        BackupManifest.Entry same = previous != null ? previous.findByHash(hash) : null;
+        if (same != null && same.getSize() == copiedSize) {
+            Files.delete(target);
+            if (link(previousDir, same, target)) {
+                return new BackupManifest.Entry(path, copiedSize, lastModified, hash);
+            }
+            copyAndHash(source, target, throttle); // Links unsupported here
+        }
+        return new BackupManifest.Entry(path, copiedSize, lastModified, hash);
+    }
+    
+    // Whether an entry's content was already stored by the previous backup
+    private static boolean isShared(BackupManifest.Entry entry, BackupManifest previous) {
+        return previous != null && previous.findByHash(entry.getHash()) != null;
+    }
+    
+    // Hard-link the previous backup's copy of an entry; false if the file system cannot
+    private static boolean link(Path previousDir, BackupManifest.Entry entry, Path target) throws IOException {
+        Path existing = previousDir.resolve("data").resolve(entry.getPath());
+        if (!Files.isRegularFile(existing)) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(target);
+            Files.createLink(target, existing);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+    }
+    
+    // Copy a file while computing its SHA-256; returns the hash as hex
+    private static String copyAndHash(Path source, Path target, TokenBucket throttle) throws IOException {
+        MessageDigest digest = BackupManifest.newDigest();
+        // Never write through an existing target: it may be a hard link into an older backup
+        Files.deleteIfExists(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                if (throttle != null) {
+                    acquire(throttle, buffer.limit());
+                }
+                digest.update(buffer.array(), 0, buffer.limit());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private static void acquire(TokenBucket throttle, long bytes) throws IOException {
+        try {
+            throttle.acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Backup interrupted");
         }
     }
     
-    // Recursive method to calculate total size of backup directory
+    // Parallel directory copy; large files go through transferTo
+    private void copyDirectory(Path source, Path target) throws IOException {
+        ParallelFileTree.TransferStats stats = new ParallelFileTree(this::printProgress).copy(source, target);
+        System.out.println("\rCopied " + stats);
+    }
+    
+    private void printProgress(long files, long bytes) {
+        System.out.printf("\r  %d files, %d bytes...", files, bytes);
+    }
+    
+    // Size of the backed-up data, from the catalogue when the backup is in it
     public long calculateBackupSize(Path backupPath) throws IOException {
         if (!Files.exists(backupPath)) {
             return 0;
         }
         
+        BackupCatalog.Entry entry = catalog.get(backupPath.getFileName().toString());
+        if (entry != null && isInBackupDirectory(backupPath)) {
+            return entry.getTotalBytes();
+        }
         return calculateDirectorySizeRecursive(backupPath);
     }
     
@@ -81,90 +371,422 @@ public class BackupService {
         return 0;
     }
     
-    // List all backup directories
-    public void listBackups() throws IOException {
+    private boolean isInBackupDirectory(Path backupPath) {
+        Path parent = backupPath.toAbsolutePath().normalize().getParent();
+        return parent != null && parent.equals(config.getBackupPath().toAbsolutePath().normalize());
+    }
+    
+    // All backups, newest first, from the catalogue
+    // Only the backup directory itself is listed; backups missing from the catalogue
+    // (made by older versions or copied in by hand) are scanned once and added
+    public List<BackupCatalog.Entry> getBackups() throws IOException {
         Path backupDir = config.getBackupPath();
-        
         if (!Files.exists(backupDir)) {
+            return List.of();
+        }
+        
+        Set<String> onDisk = new HashSet<>();
+        List<BackupCatalog.Entry> added = new ArrayList<>();
+        try (Stream<Path> backups = Files.list(backupDir)) {
+            for (Path backup : backups.filter(BackupService::isBackup).toList()) {
+                String name = backup.getFileName().toString();
+                onDisk.add(name);
+                if (catalog.get(name) == null) {
+                    added.add(scanBackup(backup));
+                }
+            }
+        }
+        
+        List<String> removed = new ArrayList<>();
+        for (BackupCatalog.Entry entry : catalog.getEntries()) {
+            if (!onDisk.contains(entry.getName())) {
+                removed.add(entry.getName());
+            }
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            catalog.update(added, removed);
+        }
+        return catalog.getEntries();
+    }
+    
+    // Catalogue entry for a backup that has none yet
+    private BackupCatalog.Entry scanBackup(Path backup) throws IOException {
+        String name = backup.getFileName().toString();
+        if (Files.isRegularFile(backup)) {
+            BackupManifest manifest = readArchiveManifest(backup);
+            return new BackupCatalog.Entry(name, BackupCatalog.Kind.ARCHIVE, manifest.getCreatedMillis(),
+                    manifest.getFileCount(), manifest.getTotalBytes(), Files.size(backup),
+                    manifest.getChecksum(), BackupCatalog.Status.UNVERIFIED, 0);
+        }
+        
+        Path manifestFile = backup.resolve(BackupManifest.FILE_NAME);
+        if (Files.isRegularFile(manifestFile)) {
+            BackupManifest manifest = BackupManifest.read(manifestFile);
+            // How much of it is shared with other backups is no longer known
+            return new BackupCatalog.Entry(name, BackupCatalog.Kind.DIRECTORY, manifest.getCreatedMillis(),
+                    manifest.getFileCount(), manifest.getTotalBytes(), manifest.getTotalBytes(),
+                    manifest.getChecksum(), BackupCatalog.Status.UNVERIFIED, 0);
+        }
+        
+        // Plain copy from before manifests existed: one walk for count and size
+        BasicFileAttributes attrs = Files.readAttributes(backup, BasicFileAttributes.class);
+        int files = 0;
+        long bytes = 0;
+        try (Stream<Path> walk = Files.walk(backup)) {
+            for (Path file : walk.filter(Files::isRegularFile).toList()) {
+                files++;
+                bytes += Files.size(file);
+            }
+        }
+        return new BackupCatalog.Entry(name, BackupCatalog.Kind.DIRECTORY, attrs.creationTime().toMillis(),
+                files, bytes, bytes, "", BackupCatalog.Status.UNVERIFIED, 0);
+    }
+    
+    private static BackupManifest readArchiveManifest(Path archive) throws IOException {
+        List<BackupArchive.IndexEntry> index = new BackupArchive().readIndex(archive);
+        BackupManifest manifest = new BackupManifest(Files.getLastModifiedTime(archive).toMillis());
+        for (BackupArchive.IndexEntry entry : index) {
+            manifest.add(entry.getFile());
+        }
+        return manifest;
+    }
+    
+    // List all backup directories and archives
+    public void listBackups() throws IOException {
+        List<BackupCatalog.Entry> backups = getBackups();
+        if (backups.isEmpty()) {
             System.out.println("No backups found.");
             return;
         }
         
         System.out.println("Available Backups:");
-        System.out.println("-".repeat(50));
+        System.out.println("-".repeat(90));
         
-        try (Stream<Path> backups = Files.list(backupDir)) {
-            backups.filter(Files::isDirectory)
-                    .sorted((p1, p2) -> p2.getFileName().toString().compareTo(p1.getFileName().toString()))
-                    .forEach(backup -> {
-                        try {
-                            BasicFileAttributes attrs = Files.readAttributes(backup, BasicFileAttributes.class);
-                            long size = calculateBackupSize(backup);
-                            
-                            System.out.printf("%-30s %10s %10d bytes%n",
-                                    backup.getFileName().toString(),
-                                    attrs.creationTime().toString().substring(0, 19),
-                                    size);
-                        } catch (IOException e) {
-                            System.err.println("Error reading backup info: " + e.getMessage());
-                        }
-                    });
+        for (BackupCatalog.Entry backup : backups) {
+            System.out.printf("%-34s %-19s %7d files %14d bytes  %s%n",
+                    backup.getName(), formatMillis(backup.getCreatedMillis()),
+                    backup.getFileCount(), backup.getTotalBytes(), backup.getStatus());
         }
     }
     
-    // Clean old backups (keep only last N)
-    public void cleanOldBackups(int keepCount) throws IOException {
-        Path backupDir = config.getBackupPath();
-        
-        if (!Files.exists(backupDir)) {
+    // Data size against the disk space each backup actually added (unchanged files are shared)
+    public void printBackupSizes() throws IOException {
+        List<BackupCatalog.Entry> backups = getBackups();
+        if (backups.isEmpty()) {
+            System.out.println("No backups found.");
             return;
         }
         
-        try (Stream<Path> backups = Files.list(backupDir)) {
-            backups.filter(Files::isDirectory)
-                    .sorted((p1, p2) -> p2.getFileName().toString().compareTo(p1.getFileName().toString()))
-                    .skip(keepCount)
-                    .forEach(backup -> {
-                        try {
-                            deleteDirectoryRecursively(backup);
-                            System.out.println("Deleted old backup: " + backup.getFileName());
-                        } catch (IOException e) {
-                            System.err.println("Failed to delete backup: " + backup.getFileName());
-                        }
-                    });
+        System.out.printf("%-34s %14s %14s%n", "Backup", "Data bytes", "Stored bytes");
+        System.out.println("-".repeat(64));
+        long totalData = 0;
+        long totalStored = 0;
+        for (BackupCatalog.Entry backup : backups) {
+            System.out.printf("%-34s %14d %14d%n", backup.getName(), backup.getTotalBytes(), backup.getStoredBytes());
+            totalData += backup.getTotalBytes();
+            totalStored += backup.getStoredBytes();
         }
+        System.out.println("-".repeat(64));
+        System.out.printf("%-34s %14d %14d%n", "Total (" + backups.size() + " backups)", totalData, totalStored);
     }
     
-    // Recursive directory deletion
-    private void deleteDirectoryRecursively(Path path) throws IOException {
-        if (Files.isDirectory(path)) {
-            try (Stream<Path> children = Files.list(path)) {
-                for (Path child : children.toList()) {
-                    deleteDirectoryRecursively(child); // Recursive call
+    // Quick check of every catalogued backup on a background thread: the manifest still matches the
+    // recorded checksum and every file is there with its recorded size. Results go into the catalogue.
+    public synchronized CompletableFuture<List<BackupCatalog.Entry>> verifyInBackground() {
+        if (verifier == null) {
+            verifier = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "backup-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                List<BackupCatalog.Entry> results = new ArrayList<>();
+                for (BackupCatalog.Entry entry : getBackups()) {
+                    BackupCatalog.Status status = quickVerify(entry) ? BackupCatalog.Status.OK : BackupCatalog.Status.DAMAGED;
+                    BackupCatalog.Entry checked = catalog.updateStatus(entry.getName(), status, System.currentTimeMillis());
+                    if (checked != null) {
+                        results.add(checked);
+                    }
+                }
+                return results;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, verifier);
+    }
+    
+    private boolean quickVerify(BackupCatalog.Entry entry) {
+        Path backup = config.getBackupPath().resolve(entry.getName());
+        try {
+            if (entry.getKind() == BackupCatalog.Kind.ARCHIVE) {
+                return Files.size(backup) == entry.getStoredBytes()
+                        && readArchiveManifest(backup).getChecksum().equals(entry.getChecksum());
+            }
+            
+            Path manifestFile = backup.resolve(BackupManifest.FILE_NAME);
+            if (entry.getChecksum().isEmpty()) {
+                BackupCatalog.Entry rescanned = scanBackup(backup);
+                return rescanned.getFileCount() == entry.getFileCount() && rescanned.getTotalBytes() == entry.getTotalBytes();
+            }
+            BackupManifest manifest = BackupManifest.read(manifestFile);
+            if (!manifest.getChecksum().equals(entry.getChecksum())) {
+                return false;
+            }
+            Path dataDir = backup.resolve("data");
+            for (BackupManifest.Entry file : manifest.getEntries()) {
+                if (Files.size(dataDir.resolve(file.getPath())) != file.getSize()) {
+                    return false;
                 }
             }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false; // Missing or unreadable counts as damaged
+        }
+    }
+    
+    // Full integrity check: re-hash every file of every backup in parallel and compare with its manifest
+    // One verifier for the whole run, so files hard-linked between backups are only read once
+    public List<BackupVerifier.VerifyReport> verifyAllBackups() throws IOException {
+        BackupVerifier verifier = new BackupVerifier();
+        List<BackupVerifier.VerifyReport> reports = new ArrayList<>();
+        long start = System.nanoTime();
+        long bytes = 0;
+        
+        for (BackupCatalog.Entry entry : getBackups()) {
+            if (entry.getChecksum().isEmpty()) {
+                System.out.println(entry.getName() + ": skipped, made before backups had manifests");
+                continue;
+            }
+            BackupVerifier.VerifyReport report = verifyBackup(verifier, config.getBackupPath().resolve(entry.getName()));
+            reports.add(report);
+            bytes += report.getBytesChecked();
+        }
+        
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.printf("Verified %d backups, %d bytes in %.2f s (%.1f MB/s)%n",
+                reports.size(), bytes, seconds, bytes / seconds / (1024 * 1024));
+        return reports;
+    }
+    
+    public BackupVerifier.VerifyReport verifyBackup(Path backup) throws IOException {
+        return verifyBackup(new BackupVerifier(), backup);
+    }
+    
+    private BackupVerifier.VerifyReport verifyBackup(BackupVerifier verifier, Path backup) throws IOException {
+        BackupVerifier.VerifyReport report = verifier.verify(backup);
+        catalog.updateStatus(backup.getFileName().toString(),
+                report.isIntact() ? BackupCatalog.Status.OK : BackupCatalog.Status.DAMAGED, System.currentTimeMillis());
+        
+        System.out.println(report);
+        report.getMissing().forEach(path -> System.out.println("  missing:    " + path));
+        report.getCorrupted().forEach(path -> System.out.println("  corrupted:  " + path));
+        report.getUnexpected().forEach(path -> System.out.println("  unexpected: " + path));
+        return report;
+    }
+    
+    private static String formatMillis(long millis) {
+        return Instant.ofEpochMilli(millis).toString().substring(0, 19).replace('T', ' ');
+    }
+    
+    // Clean old backups (keep only last N)
+    public void cleanOldBackups(int keepCount) throws IOException {
+        for (String name : applyRetention(keepCount)) {
+            System.out.println("Deleted old backup: " + name);
+        }
+    }
+    
+    // Delete all but the newest keepCount backups; returns the names deleted
+    public synchronized List<String> applyRetention(int keepCount) throws IOException {
+        List<BackupCatalog.Entry> backups = getBackups();
+        List<String> deleted = new ArrayList<>();
+        for (BackupCatalog.Entry backup : backups.subList(Math.min(Math.max(keepCount, 0), backups.size()), backups.size())) {
+            try {
+                deleteDirectoryRecursively(config.getBackupPath().resolve(backup.getName()));
+                catalog.remove(backup.getName());
+                deleted.add(backup.getName());
+            } catch (IOException e) {
+                System.err.println("Failed to delete backup: " + backup.getName());
+            }
         }
-        Files.delete(path);
+        return deleted;
     }
     
-    // Restore from backup
-    public void restoreFromBackup(Path backupPath) throws IOException {
+    // Parallel tree deletion; works on a single archive file too
+    private void deleteDirectoryRecursively(Path path) throws IOException {
+        new ParallelFileTree().delete(path);
+    }
+    
+    // Restore from a backup directory or archive without ever leaving the data directory half-written
+    // The backup is unpacked into a staging directory next to the data directory and fsynced;
+    // only then is the current data moved aside (kept for rollbackRestore) and the staging
+    // directory renamed into place. Until that rename the old data stays fully usable.
+    // The journal on the data directory must be closed first (IllegalStateException otherwise), and
+    // services loaded from the old data thrown away: recover fresh ones from the restored directory.
+    public synchronized void restoreFromBackup(Path backupPath) throws IOException {
         if (!Files.exists(backupPath)) {
             throw new IOException("Backup not found: " + backupPath);
         }
+        Journal.withDirectoryClosed(config.getDataPath(), () -> {
+            restoreClosed(backupPath);
+            return null;
+        });
+    }
+    
+    private void restoreClosed(Path backupPath) throws IOException {
+        Path currentData = config.getDataPath();
+        Path staging = sibling(currentData, STAGING_SUFFIX);
+        completeInterruptedRestore();
+        if (Files.exists(staging)) {
+            deleteDirectoryRecursively(staging);
+        }
         
-        Path dataBackup = backupPath.resolve("data");
-        if (Files.exists(dataBackup)) {
-            Path currentData = config.getDataPath();
-            
-            // Remove current data directory
+        try {
+            Files.createDirectories(staging);
+            if (Files.isRegularFile(backupPath)) {
+                // Stream the archive into the staging directory
+                new BackupArchive().restore(backupPath, staging);
+            } else {
+                Path dataBackup = backupPath.resolve("data");
+                if (!Files.isDirectory(dataBackup)) {
+                    throw new IOException("Backup has no data directory: " + backupPath);
+                }
+                copyDirectory(dataBackup, staging);
+            }
+            syncTree(staging);
+        } catch (IOException | RuntimeException e) {
+            deleteDirectoryRecursively(staging);
+            throw e;
+        }
+        
+        Path previous = sibling(currentData, PREVIOUS_SUFFIX);
+        if (Files.exists(previous)) {
+            deleteDirectoryRecursively(previous); // Only one generation is kept
+        }
+        markReady();
+        swapIn(staging);
+        System.out.println("Data restored from: " + backupPath.getFileName()
+                + " (previous data kept in " + sibling(currentData, PREVIOUS_SUFFIX).getFileName() + ")");
+    }
+    
+    // Swap the data directory kept by the last restore back in; the data it replaces is kept in turn
+    // Same contract as restoreFromBackup: close the journal first, recover services afterwards
+    public synchronized void rollbackRestore() throws IOException {
+        Journal.withDirectoryClosed(config.getDataPath(), () -> {
+            rollbackClosed();
+            return null;
+        });
+    }
+    
+    private void rollbackClosed() throws IOException {
+        Path currentData = config.getDataPath();
+        Path previous = sibling(currentData, PREVIOUS_SUFFIX);
+        Path staging = sibling(currentData, STAGING_SUFFIX);
+        completeInterruptedRestore();
+        if (!Files.isDirectory(previous)) {
+            throw new IOException("No previous data directory to roll back to");
+        }
+        if (Files.exists(staging)) {
+            deleteDirectoryRecursively(staging);
+        }
+        
+        // The marker goes first: from the moment previous becomes staging it is the only copy of
+        // that data, and without a marker finishInterruptedRestore would take it for a partial one
+        markReady();
+        Files.move(previous, staging, StandardCopyOption.ATOMIC_MOVE);
+        swapIn(staging);
+        System.out.println("Rolled back to the data directory from before the last restore.");
+    }
+    
+    // Complete or discard a restore cut short by a crash; call before anything opens the data directory
+    // No marker: the staging directory may be partial and is dropped. Marker: staging was complete
+    // and fsynced (or is the previous data being rolled back), so the renames not yet done are redone.
+    public synchronized void finishInterruptedRestore() throws IOException {
+        Journal.withDirectoryClosed(config.getDataPath(), () -> {
+            completeInterruptedRestore();
+            return null;
+        });
+    }
+    
+    private void completeInterruptedRestore() throws IOException {
+        Path currentData = config.getDataPath();
+        Path staging = sibling(currentData, STAGING_SUFFIX);
+        Path marker = sibling(currentData, READY_SUFFIX);
+        
+        if (!Files.exists(marker)) {
+            if (Files.exists(staging)) {
+                deleteDirectoryRecursively(staging);
+            }
+            return;
+        }
+        if (Files.exists(staging)) {
             if (Files.exists(currentData)) {
-                deleteDirectoryRecursively(currentData);
+                Files.move(currentData, sibling(currentData, PREVIOUS_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
             }
-            
-            // Copy backup to current data directory
-            copyDirectory(dataBackup, currentData);
-            System.out.println("Data restored from: " + backupPath.getFileName());
+            Files.move(staging, currentData, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(parentOf(currentData));
+        }
+        Files.delete(marker);
+        System.out.println("Completed a restore that was interrupted.");
+    }
+    
+    // Durably mark staging as complete; from here on a crash finishes the swap instead of dropping it
+    private void markReady() throws IOException {
+        Path currentData = config.getDataPath();
+        Files.createFile(sibling(currentData, READY_SUFFIX));
+        syncDirectory(parentOf(currentData));
+    }
+    
+    // Two atomic renames: data -> previous, staging -> data. The caller has already written the
+    // marker (markReady) and cleared previous, so finishInterruptedRestore can redo them after a crash.
+    private void swapIn(Path staging) throws IOException {
+        Path currentData = config.getDataPath();
+        Path previous = sibling(currentData, PREVIOUS_SUFFIX);
+        Path marker = sibling(currentData, READY_SUFFIX);
+        
+        if (Files.exists(currentData)) {
+            Files.move(currentData, previous, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(staging, currentData, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(parentOf(currentData));
+        Files.delete(marker);
+    }
+    
+    private static Path sibling(Path directory, String suffix) {
+        return directory.resolveSibling(directory.getFileName() + suffix);
+    }
+    
+    private static Path parentOf(Path path) {
+        return path.toAbsolutePath().normalize().getParent();
+    }
+    
+    // fsync every file and directory so the renames can never expose data that is not on disk yet
+    private static void syncTree(Path root) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            paths = walk.toList();
+        }
+        for (Path path : paths) {
+            if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+        }
+        for (Path path : paths) {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                syncDirectory(path);
+            }
+        }
+    }
+    
+    // Makes renames and new entries in a directory durable; not every platform can open a directory
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // e.g. Windows, where directory metadata is written through anyway
         }
     }
-}
\ No newline at end of file
+}
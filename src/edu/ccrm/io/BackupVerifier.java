@@ -0,0 +1,257 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Integrity check of backups against the manifest written with them
+ * Every file is re-hashed on a pool of `parallelism` threads. Incremental backups share unchanged
+ * files through hard links, so hashes are cached by file identity (inode) for the lifetime of the
+ * verifier: checking every backup reads each distinct file once, not once per backup.
+ */
+public class BackupVerifier {
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    
+    private final int parallelism;
+    private final Map<Object, CachedHash> hashesByFileKey;
+    
+    // Hash of one physical file, valid while its size and mtime are unchanged
+    private static class CachedHash {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        
+        CachedHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+    
+    // Static nested class with the outcome of verifying one backup
+    public static class VerifyReport {
+        private final String backupName;
+        private final int filesChecked;
+        private final long bytesChecked;
+        private final long bytesRead; // Less than bytesChecked when shared files came from the cache
+        private final long nanos;
+        private final List<String> missing;
+        private final List<String> corrupted;
+        private final List<String> unexpected;
+        
+        public VerifyReport(String backupName, int filesChecked, long bytesChecked, long bytesRead, long nanos,
+                            List<String> missing, List<String> corrupted, List<String> unexpected) {
+            this.backupName = backupName;
+            this.filesChecked = filesChecked;
+            this.bytesChecked = bytesChecked;
+            this.bytesRead = bytesRead;
+            this.nanos = nanos;
+            this.missing = List.copyOf(missing);
+            this.corrupted = List.copyOf(corrupted);
+            this.unexpected = List.copyOf(unexpected);
+        }
+        
+        public String getBackupName() { return backupName; }
+        public int getFilesChecked() { return filesChecked; }
+        public long getBytesChecked() { return bytesChecked; }
+        public long getBytesRead() { return bytesRead; }
+        public long getMillis() { return nanos / 1_000_000; }
+        public List<String> getMissing() { return missing; }
+        public List<String> getCorrupted() { return corrupted; }
+        public List<String> getUnexpected() { return unexpected; }
+        
+        // Extra files are reported but do not make a backup unusable
+        public boolean isIntact() { return missing.isEmpty() && corrupted.isEmpty(); }
+        
+        public double getMegabytesPerSecond() { return bytesChecked / Math.max(1e-9, nanos / 1e9) / (1024 * 1024); }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: %s, %d files, %d bytes (%d read) in %d ms, %.1f MB/s, %d missing, %d corrupted, %d unexpected",
+                    backupName, isIntact() ? "OK" : "DAMAGED", filesChecked, bytesChecked, bytesRead, getMillis(),
+                    getMegabytesPerSecond(), missing.size(), corrupted.size(), unexpected.size());
+        }
+    }
+    
+    // Result of checking one file
+    private static class FileCheck {
+        private final String path;
+        private final boolean missing;
+        private final boolean corrupted;
+        private final long bytesRead;
+        
+        FileCheck(String path, boolean missing, boolean corrupted, long bytesRead) {
+            this.path = path;
+            this.missing = missing;
+            this.corrupted = corrupted;
+            this.bytesRead = bytesRead;
+        }
+    }
+    
+    public BackupVerifier() {
+        this(AppConfig.getInstance().getVerifyParallelism());
+    }
+    
+    public BackupVerifier(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.hashesByFileKey = new ConcurrentHashMap<>();
+    }
+    
+    // Verify a backup directory (against its manifest.csv) or an archive (against its index)
+    public VerifyReport verify(Path backup) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return Files.isRegularFile(backup) ? verifyArchive(backup, pool) : verifyDirectory(backup, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private VerifyReport verifyDirectory(Path backup, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        Path manifestFile = backup.resolve(BackupManifest.FILE_NAME);
+        if (!Files.isRegularFile(manifestFile)) {
+            throw new IOException("Backup has no manifest to verify against: " + backup.getFileName());
+        }
+        BackupManifest manifest = BackupManifest.read(manifestFile);
+        Path dataDir = backup.resolve("data");
+        
+        List<Future<FileCheck>> checks = new ArrayList<>(manifest.getFileCount());
+        for (BackupManifest.Entry entry : manifest.getEntries()) {
+            checks.add(pool.submit(() -> checkFile(dataDir, entry)));
+        }
+        
+        // Files on disk the manifest does not know about
+        List<String> unexpected = new ArrayList<>();
+        if (Files.isDirectory(dataDir)) {
+            try (Stream<Path> walk = Files.walk(dataDir)) {
+                for (Path file : walk.filter(Files::isRegularFile).toList()) {
+                    String path = BackupManifest.toManifestPath(dataDir.relativize(file));
+                    if (manifest.get(path) == null) {
+                        unexpected.add(path);
+                    }
+                }
+            }
+        }
+        
+        return collect(backup, manifest.getEntries(), checks, unexpected, start);
+    }
+    
+    private VerifyReport verifyArchive(Path archive, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        BackupArchive reader = new BackupArchive();
+        List<BackupArchive.IndexEntry> index = reader.readIndex(archive);
+        
+        List<BackupManifest.Entry> entries = new ArrayList<>(index.size());
+        List<Future<FileCheck>> checks = new ArrayList<>(index.size());
+        for (BackupArchive.IndexEntry entry : index) {
+            entries.add(entry.getFile());
+            checks.add(pool.submit(() -> {
+                String path = entry.getFile().getPath();
+                try {
+                    BackupManifest.Entry actual = reader.check(archive, entry);
+                    boolean intact = actual.getHash().equals(entry.getFile().getHash())
+                            && actual.getSize() == entry.getFile().getSize();
+                    return new FileCheck(path, false, !intact, actual.getSize());
+                } catch (IOException e) {
+                    return new FileCheck(path, false, true, 0);
+                }
+            }));
+        }
+        return collect(archive, entries, checks, List.of(), start);
+    }
+    
+    private VerifyReport collect(Path backup, Collection<BackupManifest.Entry> entries, List<Future<FileCheck>> checks,
+                                 List<String> unexpected, long start) throws IOException {
+        List<String> missing = new ArrayList<>();
+        List<String> corrupted = new ArrayList<>();
+        long bytesChecked = 0;
+        long bytesRead = 0;
+        Iterator<BackupManifest.Entry> entryIterator = entries.iterator();
+        for (Future<FileCheck> future : checks) {
+            BackupManifest.Entry entry = entryIterator.next();
+            FileCheck check = await(future);
+            if (check.missing) {
+                missing.add(check.path);
+            } else if (check.corrupted) {
+                corrupted.add(check.path);
+            }
+            bytesChecked += entry.getSize();
+            bytesRead += check.bytesRead;
+        }
+        return new VerifyReport(backup.getFileName().toString(), checks.size(), bytesChecked, bytesRead,
+                System.nanoTime() - start, missing, corrupted, unexpected);
+    }
+    
+    private FileCheck checkFile(Path dataDir, BackupManifest.Entry entry) {
+        Path file = dataDir.resolve(entry.getPath());
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return new FileCheck(entry.getPath(), true, false, 0);
+            }
+            if (attrs.size() != entry.getSize()) {
+                return new FileCheck(entry.getPath(), false, true, 0);
+            }
+            
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            Object fileKey = attrs.fileKey();
+            CachedHash cached = fileKey != null ? hashesByFileKey.get(fileKey) : null;
+            long bytesRead = 0;
+            String hash;
+            if (cached != null && cached.size == attrs.size() && cached.lastModified == lastModified) {
+                hash = cached.hash;
+            } else {
+                hash = hash(file);
+                bytesRead = attrs.size();
+                if (fileKey != null) {
+                    hashesByFileKey.put(fileKey, new CachedHash(attrs.size(), lastModified, hash));
+                }
+            }
+            return new FileCheck(entry.getPath(), false, !hash.equals(entry.getHash()), bytesRead);
+        } catch (NoSuchFileException e) {
+            return new FileCheck(entry.getPath(), true, false, 0);
+        } catch (IOException e) {
+            return new FileCheck(entry.getPath(), false, true, 0); // Unreadable counts as corrupted
+        }
+    }
+    
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = BackupManifest.newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private static <V> V await(Future<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IOException(cause);
+        }
+    }
+}
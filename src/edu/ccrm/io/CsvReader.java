@@ -0,0 +1,329 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming RFC 4180 CSV reader
+ * A byte-level state machine over a reusable buffer: quoted fields, doubled-quote escapes,
+ * embedded newlines and LF or CRLF line endings. Fields of the current record are unescaped
+ * into one shared byte array and only become Strings when asked for.
+ *
+ * Works on UTF-8 (or any ASCII-compatible) input, since the delimiters never occur inside a multi-byte character.
+ * Reads either a channel or one in-memory slice, e.g. a memory-mapped chunk of a larger file.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    // Parser states; shared with ParallelCsvImporter, which must agree on where records end
+    static final int FIELD_START = 0;
+    static final int UNQUOTED = 1;
+    static final int QUOTED = 2;
+    static final int QUOTE_IN_QUOTED = 3; // Saw '"' inside a quoted field: escape or closing quote
+    static final int STATE_COUNT = 4;
+    
+    private final ReadableByteChannel source; // null when reading a slice
+    private final ByteBuffer slice;
+    private final byte[] data;
+    private final ByteBuffer window;
+    private int pos;
+    private int limit;
+    private boolean started;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+    
+    private byte[] record;
+    private int recordLength;
+    private int[] fieldEnds;
+    private int fieldCount;
+    private boolean quotedField;
+    private long line;
+    private long recordLine;
+    
+    public CsvReader(ReadableByteChannel source) {
+        this(source, null, 1);
+    }
+    
+    // Read the remaining bytes of a buffer, numbering lines from firstLine
+    public CsvReader(ByteBuffer slice, long firstLine) {
+        this(null, slice, firstLine);
+    }
+    
+    private CsvReader(ReadableByteChannel source, ByteBuffer slice, long firstLine) {
+        this.source = source;
+        this.slice = slice;
+        this.data = new byte[BUFFER_SIZE];
+        this.window = ByteBuffer.wrap(data);
+        this.record = new byte[256];
+        this.fieldEnds = new int[16];
+        this.line = firstLine;
+    }
+    
+    // Advance to the next non-blank record; false at end of input
+    public boolean next() throws IOException {
+        if (!started) {
+            started = true;
+            skipByteOrderMark();
+        }
+        while (true) {
+            if (!readRecord()) {
+                return false;
+            }
+            if (!isBlankRecord()) {
+                return true;
+            }
+        }
+    }
+    
+    private boolean readRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        quotedField = false;
+        recordLine = line;
+        int state = FIELD_START;
+        
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if ((pos < limit || fill()) && data[pos] == '\n') pos++;
+        }
+        
+        while (true) {
+            if (pos == limit && !fill()) {
+                if (state == QUOTED) {
+                    throw new IllegalArgumentException("Unterminated quoted field in record starting at line " + recordLine);
+                }
+                if (state == FIELD_START && fieldCount == 0) {
+                    return false; // Clean end of input
+                }
+                endField();
+                return true;
+            }
+            
+            if (state == QUOTED) {
+                // Copy the run up to the next quote in one go, counting embedded newlines
+                int start = pos;
+                while (pos < limit && data[pos] != '"') {
+                    if (data[pos] == '\n') line++;
+                    pos++;
+                }
+                append(start, pos);
+                if (pos < limit) {
+                    pos++;
+                    state = QUOTE_IN_QUOTED;
+                }
+                continue;
+            }
+            
+            if (state != QUOTE_IN_QUOTED) {
+                // Unquoted text: copy the run up to the next delimiter in one go
+                int start = pos;
+                byte b;
+                while (pos < limit && (b = data[pos]) != ',' && b != '\n' && b != '\r' && b != '"') {
+                    pos++;
+                }
+                if (pos > start) {
+                    append(start, pos);
+                    state = UNQUOTED;
+                }
+                if (pos == limit) {
+                    continue;
+                }
+            }
+            
+            byte b = data[pos++];
+            if (b == ',') {
+                endField();
+                state = FIELD_START;
+            } else if (b == '\n' || b == '\r') {
+                endField();
+                line++;
+                skipLineFeed = b == '\r';
+                return true;
+            } else if (b == '"' && state == FIELD_START) {
+                quotedField = true;
+                state = QUOTED;
+            } else if (b == '"' && state == QUOTE_IN_QUOTED) {
+                appendByte(b); // "" is an escaped quote
+                state = QUOTED;
+            } else {
+                appendByte(b); // Lenient: a stray quote, or text after a closing quote, is kept as is
+                state = UNQUOTED;
+            }
+        }
+    }
+    
+    // The state readRecord is in after byte b, one byte at a time; a newline or carriage return
+    // seen in any state but QUOTED ends the record
+    static int stateAfter(int state, byte b) {
+        if (state == QUOTED) {
+            return b == '"' ? QUOTE_IN_QUOTED : QUOTED;
+        }
+        if (b == ',' || b == '\n' || b == '\r') {
+            return FIELD_START;
+        }
+        if (b == '"') {
+            return state == UNQUOTED ? UNQUOTED : QUOTED; // Opens a field or escapes one; stray otherwise
+        }
+        return UNQUOTED;
+    }
+    
+    private void append(int start, int end) {
+        int length = end - start;
+        ensureRecordCapacity(length);
+        System.arraycopy(data, start, record, recordLength, length);
+        recordLength += length;
+    }
+    
+    private void appendByte(byte b) {
+        ensureRecordCapacity(1);
+        record[recordLength++] = b;
+    }
+    
+    private void ensureRecordCapacity(int extra) {
+        if (recordLength + extra > record.length) {
+            byte[] grown = new byte[Math.max(record.length * 2, recordLength + extra)];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+    }
+    
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            int[] grown = new int[fieldEnds.length * 2];
+            System.arraycopy(fieldEnds, 0, grown, 0, fieldCount);
+            fieldEnds = grown;
+        }
+        fieldEnds[fieldCount++] = recordLength;
+    }
+    
+    // Refill the whole buffer; the previous contents have all been consumed
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        window.clear();
+        int read;
+        do {
+            read = read();
+        } while (read == 0);
+        if (read < 0) {
+            endOfInput = true;
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+    
+    // Read more input into the window, copying out of the slice when there is no channel
+    private int read() throws IOException {
+        if (source != null) {
+            return source.read(window);
+        }
+        if (!slice.hasRemaining()) {
+            return -1;
+        }
+        int length = Math.min(slice.remaining(), window.remaining());
+        slice.get(data, window.position(), length);
+        window.position(window.position() + length);
+        return length;
+    }
+    
+    private void skipByteOrderMark() throws IOException {
+        window.clear();
+        while (window.position() < 3) {
+            if (read() < 0) {
+                endOfInput = true;
+                break;
+            }
+        }
+        pos = 0;
+        limit = window.position();
+        if (limit >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+            pos = 3;
+        }
+    }
+    
+    // A line with nothing but whitespace, like the blank lines the old split parser filtered out
+    private boolean isBlankRecord() {
+        if (fieldCount != 1 || quotedField) {
+            return false;
+        }
+        for (int i = 0; i < recordLength; i++) {
+            if ((record[i] & 0xFF) > ' ') return false;
+        }
+        return true;
+    }
+    
+    // Accessors for the current record
+    public int getFieldCount() { return fieldCount; }
+    
+    // Line on which the current record starts (1-based, counting the header)
+    public long getLineNumber() { return recordLine; }
+    
+    // Field value with surrounding whitespace trimmed, as String.trim() would
+    public String getString(int field) {
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field, start);
+        return new String(record, start, end - start, StandardCharsets.UTF_8);
+    }
+    
+    // Parse a trimmed decimal int straight from the field bytes
+    public int getInt(int field) {
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field, start);
+        if (start == end) {
+            throw invalidNumber(field);
+        }
+        
+        boolean negative = record[start] == '-';
+        int i = negative || record[start] == '+' ? start + 1 : start;
+        if (i == end) {
+            throw invalidNumber(field);
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = record[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidNumber(field);
+            }
+            value = value * 10 + digit;
+            if (value > limit) {
+                throw invalidNumber(field);
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+    
+    private NumberFormatException invalidNumber(int field) {
+        return new NumberFormatException("For input string: \"" + getString(field) + "\" at line " + recordLine);
+    }
+    
+    private int trimmedStart(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + field + " of " + fieldCount + " at line " + recordLine);
+        }
+        int start = field == 0 ? 0 : fieldEnds[field - 1];
+        int end = fieldEnds[field];
+        while (start < end && (record[start] & 0xFF) <= ' ') start++;
+        return start;
+    }
+    
+    private int trimmedEnd(int field, int start) {
+        int end = fieldEnds[field];
+        while (end > start && (record[end - 1] & 0xFF) <= ' ') end--;
+        return end;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+
+/**
+ * Streaming CSV writer with constant memory use
+ * Fields are UTF-8 encoded by hand into one reusable buffer that is flushed to a file channel.
+ * Output goes to a temp file that only replaces the target on commit(), so readers never see a partial export.
+ * Fields containing a comma, quote or line break are quoted per RFC 4180.
+ */
+public class CsvWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000 };
+    
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer window;
+    private int count;
+    private final byte[] digits;
+    private boolean firstField;
+    private boolean committed;
+    
+    public CsvWriter(Path target) throws IOException {
+        this.target = target;
+        // A temp file of its own, so concurrent exports to the same target never write into each other
+        this.temp = Files.createTempFile(directoryOf(target), target.getFileName() + ".", ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.window = ByteBuffer.wrap(buffer);
+        this.digits = new byte[20];
+        this.firstField = true;
+    }
+    
+    // Write a whole header or row of plain strings
+    public void record(String... fields) throws IOException {
+        for (String field : fields) {
+            field(field);
+        }
+        endRecord();
+    }
+    
+    public void field(String value) throws IOException {
+        separator();
+        if (value == null) {
+            return;
+        }
+        if (needsQuotes(value)) {
+            put((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') put((byte) '"');
+                i = putChar(value, i);
+            }
+            put((byte) '"');
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                i = putChar(value, i);
+            }
+        }
+    }
+    
+    public void field(long value) throws IOException {
+        separator();
+        putLong(value);
+    }
+    
+    // Fixed-point decimal, rounded half-up like %.Nf
+    public void field(double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported number of decimals: " + decimals);
+        }
+        separator();
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            put((byte) '-');
+        }
+        putLong(scaled / scale);
+        if (decimals > 0) {
+            put((byte) '.');
+            long fraction = scaled % scale;
+            for (long unit = scale / 10; unit > 0; unit /= 10) {
+                put((byte) ('0' + fraction / unit % 10));
+            }
+        }
+    }
+    
+    // ISO-8601 date (yyyy-MM-dd) without going through a DateTimeFormatter
+    public void field(LocalDate date) throws IOException {
+        separator();
+        if (date == null) {
+            return;
+        }
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            putAscii(date.toString());
+            return;
+        }
+        putLong(year);
+        put((byte) '-');
+        putTwoDigits(date.getMonthValue());
+        put((byte) '-');
+        putTwoDigits(date.getDayOfMonth());
+    }
+    
+    public void endRecord() throws IOException {
+        put((byte) '\n');
+        firstField = true;
+    }
+    
+    // Flush, fsync and atomically move the temp file over the target
+    public void commit() throws IOException {
+        flush();
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        // The rename is only durable once the directory is; until then a crash can bring back the old file
+        BackupService.syncDirectory(directoryOf(target));
+    }
+    
+    // Without a commit the temp file is discarded and the target is left untouched
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static Path directoryOf(Path target) {
+        return target.toAbsolutePath().normalize().getParent();
+    }
+    
+    private void separator() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            put((byte) ',');
+        }
+    }
+    
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+    
+    // Encode the char at i (and its low surrogate, if any) as UTF-8; returns the index of the last char consumed
+    private int putChar(String value, int i) throws IOException {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            put((byte) (0xF0 | (codePoint >> 18)));
+            put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            put((byte) (0x80 | (codePoint & 0x3F)));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            put((byte) '?'); // Unpaired surrogate, as String.getBytes would
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+        return i;
+    }
+    
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            put(digits[--length]);
+        }
+    }
+    
+    private void putAscii(String value) throws IOException {
+        for (byte b : value.getBytes(StandardCharsets.US_ASCII)) {
+            put(b);
+        }
+    }
+    
+    private void putTwoDigits(int value) throws IOException {
+        put((byte) ('0' + value / 10));
+        put((byte) ('0' + value % 10));
+    }
+    
+    private void put(byte b) throws IOException {
+        if (count == buffer.length) {
+            flush();
+        }
+        buffer[count++] = b;
+    }
+    
+    private void flush() throws IOException {
+        window.clear().limit(count);
+        while (window.hasRemaining()) {
+            channel.write(window);
+        }
+        count = 0;
+    }
+}
@@ -2,11 +2,12 @@ package edu.ccrm.io;
 
 import edu.ccrm.domain.*;
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.service.*;
 import java.io.IOException;
 import java.nio.file.*;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 /**
  * CSV Import/Export service using NIO.2 and Streams
@@ -14,11 +15,9 @@ import java.util.stream.Stream;
  */
 public class ImportExportService {
     private final AppConfig config;
-    private final DateTimeFormatter dateFormat;
     
     public ImportExportService() {
         this.config = AppConfig.getInstance();
-        this.dateFormat = DateTimeFormatter.ISO_LOCAL_DATE;
     }
     
     // Create data directory if it doesn't exist
@@ -29,36 +28,38 @@ public class ImportExportService {
         }
     }
     
-    // Import students from CSV using Streams and NIO.2
+    // Import students from CSV, streaming records through CsvReader
     public List<Student> importStudents(String filename) throws IOException {
-        ensureDataDirectory();
-        Path filePath = config.getDataPath().resolve(filename);
-        
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found: " + filePath);
-        }
-        
-        try (Stream<String> lines = Files.lines(filePath)) {
-            return lines
-                    .skip(1) // Skip header
-                    .filter(line -> !line.trim().isEmpty())
-                    .map(this::parseStudentFromCSV)
-                    .toList(); // Java 16+ toList()
+        Path filePath = resolveImportFile(filename);
+        List<Student> students = new ArrayList<>();
+        
+        try (CsvReader csv = new CsvReader(Files.newByteChannel(filePath))) {
+            if (csv.next()) { // Skip header
+                while (csv.next()) {
+                    students.add(parseStudent(csv));
+                }
+            }
         }
+        return students;
     }
     
-    private Student parseStudentFromCSV(String csvLine) {
-        String[] parts = csvLine.split(",");
-        if (parts.length < 4) {
-            throw new IllegalArgumentException("Invalid CSV format for student: " + csvLine);
+    // Parallel, batched import straight into the service; bad lines and duplicates are reported, not thrown
+    public ImportReport importStudents(String filename, StudentService studentService) throws IOException {
+        return importInBatches(filename, this::parseStudent, studentService::addStudents);
+    }
+    
+    private Student parseStudent(CsvReader csv) {
+        if (csv.getFieldCount() < 4) {
+            throw new IllegalArgumentException("Invalid CSV format for student at line " + csv.getLineNumber());
         }
         
-        String id = parts[0].trim();
-        String regNo = parts[1].trim();
-        String[] nameParts = parts[2].trim().split(" ", 2);
-        String firstName = nameParts[0];
-        String lastName = nameParts.length > 1 ? nameParts[1] : "";
-        String email = parts[3].trim();
+        String id = csv.getString(0);
+        String regNo = csv.getString(1);
+        String fullName = csv.getString(2);
+        int space = fullName.indexOf(' ');
+        String firstName = space < 0 ? fullName : fullName.substring(0, space);
+        String lastName = space < 0 ? "" : fullName.substring(space + 1);
+        String email = csv.getString(3);
         
         Name name = new Name(firstName, lastName);
         return new Student(id, name, email, regNo);
@@ -66,62 +67,129 @@ public class ImportExportService {
     
     // Import courses from CSV
     public List<Course> importCourses(String filename) throws IOException {
-        ensureDataDirectory();
-        Path filePath = config.getDataPath().resolve(filename);
-        
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found: " + filePath);
-        }
-        
-        try (Stream<String> lines = Files.lines(filePath)) {
-            return lines
-                    .skip(1) // Skip header
-                    .filter(line -> !line.trim().isEmpty())
-                    .map(this::parseCourseFromCSV)
-                    .toList();
+        Path filePath = resolveImportFile(filename);
+        List<Course> courses = new ArrayList<>();
+        
+        try (CsvReader csv = new CsvReader(Files.newByteChannel(filePath))) {
+            if (csv.next()) { // Skip header
+                while (csv.next()) {
+                    courses.add(parseCourse(csv));
+                }
+            }
         }
+        return courses;
     }
     
-    private Course parseCourseFromCSV(String csvLine) {
-        String[] parts = csvLine.split(",");
-        if (parts.length < 6) {
-            throw new IllegalArgumentException("Invalid CSV format for course: " + csvLine);
+    public ImportReport importCourses(String filename, CourseService courseService) throws IOException {
+        return importInBatches(filename, this::parseCourse, courseService::addCourses);
+    }
+    
+    private Course parseCourse(CsvReader csv) {
+        if (csv.getFieldCount() < 6) {
+            throw new IllegalArgumentException("Invalid CSV format for course at line " + csv.getLineNumber());
         }
         
-        CourseCode code = new CourseCode(parts[0].trim());
-        String title = parts[1].trim();
-        int credits = Integer.parseInt(parts[2].trim());
-        String instructor = parts[3].trim();
-        Semester semester = Semester.valueOf(parts[4].trim().toUpperCase());
-        String department = parts[5].trim();
+        CourseCode code = new CourseCode(csv.getString(0));
+        String title = csv.getString(1);
+        int credits = csv.getInt(2);
+        String instructor = csv.getString(3);
+        Semester semester = Semester.valueOf(csv.getString(4).toUpperCase());
+        String department = csv.getString(5);
+        // Column 6 is CreatedDate; older exports have no Capacity column and mean unlimited
+        int capacity = csv.getFieldCount() > 7 ? csv.getInt(7) : 0;
         
         return new Course.Builder(code, title)
                 .credits(credits)
                 .instructor(instructor)
                 .semester(semester)
                 .department(department)
+                .capacity(capacity)
                 .build();
     }
     
-    // Export students to CSV
-    public void exportStudents(List<Student> students, String filename) throws IOException {
+    // Bulk enrollment/grade load from the enrollment export format (StudentID,StudentName,CourseCode,CourseTitle,Grade,...)
+    // A blank or missing Grade column only enrolls; rows that cannot be applied end up in the report
+    public ImportReport importEnrollments(String filename, TranscriptService transcriptService) throws IOException {
+        return importInBatches(filename, this::parseGradeEntry, transcriptService::recordGrades);
+    }
+    
+    private GradeEntry parseGradeEntry(CsvReader csv) {
+        if (csv.getFieldCount() < 3) {
+            throw new IllegalArgumentException("Invalid CSV format for enrollment at line " + csv.getLineNumber());
+        }
+        
+        String studentId = csv.getString(0);
+        String courseCode = csv.getString(2).toUpperCase();
+        String gradeName = csv.getFieldCount() > 4 ? csv.getString(4) : "";
+        Grade grade = null;
+        if (!gradeName.isEmpty()) {
+            try {
+                grade = Grade.valueOf(gradeName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown grade: " + gradeName);
+            }
+        }
+        return new GradeEntry(studentId, courseCode, grade);
+    }
+    
+    // A parsed record and the line it came from
+    private static class Row<T> {
+        private final T value;
+        private final long line;
+        
+        Row(T value, long line) {
+            this.value = value;
+            this.line = line;
+        }
+    }
+    
+    // Parse in parallel, apply each batch through a bulk service call and map its failures back to line numbers
+    private <T> ImportReport importInBatches(String filename, Function<CsvReader, T> parser,
+                                             Function<List<T>, BatchResult> apply) throws IOException {
+        Function<CsvReader, Row<T>> rowParser = csv -> new Row<>(parser.apply(csv), csv.getLineNumber());
+        return new ParallelCsvImporter().importFile(resolveImportFile(filename), rowParser, (batch, report) -> {
+            List<T> values = new ArrayList<>(batch.size());
+            for (Row<T> row : batch) {
+                values.add(row.value);
+            }
+            
+            BatchResult result = apply.apply(values);
+            report.accept(result.getSucceeded());
+            for (BatchResult.Failure failure : result.getFailures()) {
+                report.reject(batch.get(failure.getIndex()).line, failure.getReason());
+            }
+        });
+    }
+    
+    private Path resolveImportFile(String filename) throws IOException {
         ensureDataDirectory();
         Path filePath = config.getDataPath().resolve(filename);
         
-        StringBuilder csv = new StringBuilder();
-        csv.append("ID,RegNo,Name,Email,Status,CreatedDate\n");
-        
-        students.forEach(student -> {
-            csv.append(String.format("%s,%s,%s,%s,%s,%s\n",
-                    student.getId(),
-                    student.getRegNo(),
-                    student.getName().getFullName(),
-                    student.getEmail(),
-                    student.getStatus(),
-                    student.getCreatedDate().format(dateFormat)));
-        });
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        return filePath;
+    }
+    
+    // Export students to CSV, streaming one row at a time
+    // Reads one registry version (StudentService.snapshot()), so writers never change a row mid-export
+    public void exportStudents(RegistrySnapshot snapshot, String filename) throws IOException {
+        ensureDataDirectory();
+        Path filePath = config.getDataPath().resolve(filename);
         
-        Files.writeString(filePath, csv.toString(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (CsvWriter csv = new CsvWriter(filePath)) {
+            csv.record("ID", "RegNo", "Name", "Email", "Status", "CreatedDate");
+            for (RegistrySnapshot.StudentRecord student : snapshot.getStudents()) {
+                csv.field(student.getId());
+                csv.field(student.getRegNo());
+                csv.field(student.getFullName());
+                csv.field(student.getEmail());
+                csv.field(String.valueOf(student.getStatus()));
+                csv.field(student.getCreatedDate());
+                csv.endRecord();
+            }
+            csv.commit();
+        }
     }
     
     // Export courses to CSV
@@ -129,43 +197,46 @@ public class ImportExportService {
         ensureDataDirectory();
         Path filePath = config.getDataPath().resolve(filename);
         
-        StringBuilder csv = new StringBuilder();
-        csv.append("Code,Title,Credits,Instructor,Semester,Department,CreatedDate\n");
-        
-        courses.forEach(course -> {
-            csv.append(String.format("%s,%s,%d,%s,%s,%s,%s\n",
-                    course.getCode().getCode(),
-                    course.getTitle(),
-                    course.getCredits(),
-                    course.getInstructor(),
-                    course.getSemester(),
-                    course.getDepartment(),
-                    course.getCreatedDate().format(dateFormat)));
-        });
-        
-        Files.writeString(filePath, csv.toString(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (CsvWriter csv = new CsvWriter(filePath)) {
+            csv.record("Code", "Title", "Credits", "Instructor", "Semester", "Department", "CreatedDate", "Capacity");
+            for (Course course : courses) {
+                csv.field(course.getCode().getCode());
+                csv.field(course.getTitle());
+                csv.field(course.getCredits());
+                csv.field(course.getInstructor());
+                csv.field(course.getSemester().toString());
+                csv.field(course.getDepartment());
+                csv.field(course.getCreatedDate());
+                csv.field(course.getCapacity());
+                csv.endRecord();
+            }
+            csv.commit();
+        }
     }
     
-    // Export enrollments with grades
-    public void exportEnrollments(List<Student> students, String filename) throws IOException {
+    // Export graded enrollments, in enrollment order, from one registry version
+    public void exportEnrollments(RegistrySnapshot snapshot, String filename) throws IOException {
         ensureDataDirectory();
         Path filePath = config.getDataPath().resolve(filename);
         
-        StringBuilder csv = new StringBuilder();
-        csv.append("StudentID,StudentName,CourseCode,CourseTitle,Grade,GradePoints\n");
-        
-        students.forEach(student -> {
-            student.getGrades().forEach((course, grade) -> {
-                csv.append(String.format("%s,%s,%s,%s,%s,%.1f\n",
-                        student.getId(),
-                        student.getName().getFullName(),
-                        course.getCode().getCode(),
-                        course.getTitle(),
-                        grade.name(),
-                        grade.getGradePoints()));
-            });
-        });
-        
-        Files.writeString(filePath, csv.toString(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (CsvWriter csv = new CsvWriter(filePath)) {
+            csv.record("StudentID", "StudentName", "CourseCode", "CourseTitle", "Grade", "GradePoints");
+            for (RegistrySnapshot.StudentRecord student : snapshot.getStudents()) {
+                for (String courseCode : student.getCourseCodes()) {
+                    Grade grade = student.getGrades().get(courseCode);
+                    if (grade == null) {
+                        continue;
+                    }
+                    csv.field(student.getId());
+                    csv.field(student.getFullName());
+                    csv.field(courseCode);
+                    csv.field(snapshot.getCourse(courseCode).map(RegistrySnapshot.CourseRecord::getTitle).orElse(""));
+                    csv.field(grade.name());
+                    csv.field(grade.getGradePoints(), 1);
+                    csv.endRecord();
+                }
+            }
+            csv.commit();
+        }
     }
-}
\ No newline at end of file
+}
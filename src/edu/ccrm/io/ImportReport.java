@@ -0,0 +1,67 @@
+package edu.ccrm.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many records were accepted and which lines were rejected
+ */
+public class ImportReport {
+    private static final int MAX_KEPT_REJECTIONS = 1000;
+    
+    private int accepted;
+    private int rejected;
+    private final List<Rejection> rejections;
+    
+    // Static nested class for one rejected record
+    public static class Rejection {
+        private final long line;
+        private final String reason;
+        
+        public Rejection(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+        
+        public long getLine() { return line; }
+        public String getReason() { return reason; }
+        
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + reason;
+        }
+    }
+    
+    public ImportReport() {
+        this.rejections = new ArrayList<>();
+    }
+    
+    public void accept(int count) {
+        accepted += count;
+    }
+    
+    // Only the first MAX_KEPT_REJECTIONS are kept so a bad dump cannot exhaust memory
+    public void reject(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_KEPT_REJECTIONS) {
+            rejections.add(new Rejection(line, reason));
+        }
+    }
+    
+    public int getAccepted() { return accepted; }
+    public int getRejected() { return rejected; }
+    
+    // Rejections by line number, whether the parser or the sink rejected them
+    public List<Rejection> getRejections() {
+        List<Rejection> sorted = new ArrayList<>(rejections);
+        sorted.sort(Comparator.comparingLong(Rejection::getLine));
+        return Collections.unmodifiableList(sorted);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ImportReport{accepted=%d, rejected=%d}", accepted, rejected);
+    }
+}
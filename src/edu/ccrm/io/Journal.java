@@ -0,0 +1,689 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary write-ahead journal of service mutations
+ * Records are framed as [length][crc32][payload] and fsynced in groups
+ * The header carries the id of the snapshot checkpoint the records apply on top of
+ *
+ * Records are appended by the services' ChangeLog while they hold the changed student's lock, so
+ * the journal's order is the order changes were made to each student. Appending only copies the
+ * record into a buffer under a short lock; fsyncs run under a separate one, so writers keep
+ * appending while a group is being forced, and every writer waiting on the same fsync shares it.
+ */
+public class Journal implements Closeable {
+    private static final int MAGIC = 0x43434A31; // "CCJ1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int FRAME_BYTES = 8;
+    private static final int PENDING_CAPACITY = 64 * 1024;
+    // Directories with an open journal (or a restore in progress), so neither can move one out
+    // from under the other
+    private static final Set<Path> DIRECTORIES_IN_USE = ConcurrentHashMap.newKeySet();
+    
+    // Operation codes; never renumber, journals on disk depend on them
+    public enum Op {
+        ADD_STUDENT(1), UPDATE_STUDENT(2), DEACTIVATE_STUDENT(3),
+        ENROLL(4), RECORD_GRADE(6),
+        ADD_COURSE(7), UPDATE_COURSE(8), DEACTIVATE_COURSE(9),
+        LEAVE_WAITLIST(11),
+        // Outcomes: unenroll and join without promoting anyone; each promotion has its own record
+        DROP(13), QUEUE(14), PROMOTE(15);
+        
+        private final byte code;
+        
+        Op(int code) { this.code = (byte) code; }
+        
+        public byte getCode() { return code; }
+        
+        static Op fromCode(byte code) {
+            for (Op op : values()) {
+                if (op.code == code) return op;
+            }
+            throw new IllegalArgumentException("Unknown journal op: " + code);
+        }
+    }
+    
+    // Work that needs the journal file to hold still; see whileFrozen
+    @FunctionalInterface
+    public interface FrozenAction<T> {
+        T run(Path journalFile, long syncedLength) throws IOException;
+    }
+    
+    // Work that needs no journaled change in progress; see whileQuiescent
+    @FunctionalInterface
+    public interface QuiescentAction<T> {
+        T run() throws IOException;
+    }
+    
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    // Reusable encode buffer; exposes its backing array to avoid a copy per record
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() { super(256); }
+        
+        ByteBuffer frame() {
+            CRC32 crc = new CRC32();
+            crc.update(buf, FRAME_BYTES, count - FRAME_BYTES);
+            ByteBuffer framed = ByteBuffer.wrap(buf, 0, count);
+            framed.putInt(0, count - FRAME_BYTES);
+            framed.putInt(4, (int) crc.getValue());
+            return framed;
+        }
+    }
+    
+    private final Path file;
+    private final Path directory;
+    private final int syncBatchSize;
+    private final long compactionThresholdBytes;
+    private final RecordBuffer recordBuffer;
+    private final DataOutputStream recordOut;
+    private final ByteBuffer pending;
+    private final ScheduledExecutorService syncScheduler;
+    // appendLock guards the encode and pending buffers; syncLock is held to write out and force a
+    // group, and to replace or truncate the file. Always take syncLock first.
+    private final ReentrantLock appendLock;
+    private final ReentrantLock syncLock;
+    // Held shared by journaled changes, exclusively by whileQuiescent
+    private final ReentrantReadWriteLock changeGate;
+    private FileChannel channel;
+    // Sequence numbers: records appended so far, and how many of those are known to be on disk
+    private volatile long appendedRecords;
+    private volatile long syncedRecords;
+    private long checkpointId;
+    private boolean closed;
+    
+    public Journal() throws IOException {
+        this(AppConfig.getInstance().getJournalPath(),
+                AppConfig.getInstance().getJournalSyncBatchSize(),
+                AppConfig.getInstance().getJournalSyncIntervalMillis(),
+                AppConfig.getInstance().getJournalCompactionThresholdBytes());
+    }
+    
+    // syncBatchSize = 1 makes every append durable before it returns
+    public Journal(Path file, int syncBatchSize, long syncIntervalMillis, long compactionThresholdBytes) throws IOException {
+        if (syncBatchSize <= 0) throw new IllegalArgumentException("Sync batch size must be positive");
+        this.file = file;
+        this.syncBatchSize = syncBatchSize;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.recordBuffer = new RecordBuffer();
+        this.recordOut = new DataOutputStream(recordBuffer);
+        this.pending = ByteBuffer.allocate(PENDING_CAPACITY);
+        this.appendLock = new ReentrantLock();
+        this.syncLock = new ReentrantLock();
+        this.changeGate = new ReentrantReadWriteLock();
+        this.directory = file.toAbsolutePath().normalize().getParent();
+        
+        Files.createDirectories(directory);
+        if (!DIRECTORIES_IN_USE.add(directory)) {
+            throw new IOException("Another journal or a restore is using " + directory);
+        }
+        try {
+            this.channel = openChannel();
+        } catch (IOException | RuntimeException e) {
+            DIRECTORIES_IN_USE.remove(directory);
+            throw e;
+        }
+        
+        // Group commit: a background tick bounds how long an unsynced record can wait
+        this.syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ccrm-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (syncIntervalMillis > 0) {
+            syncScheduler.scheduleAtFixedRate(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    // Run an action on a directory that no journal has open, keeping any from opening until it is done
+    // Restores use this: they move the data directory, which must not happen under an open journal.
+    static <T> T withDirectoryClosed(Path directory, QuiescentAction<T> action) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        if (!DIRECTORIES_IN_USE.add(key)) {
+            throw new IllegalStateException("Close the journal in " + key + " (and drop the services using it) first");
+        }
+        try {
+            return action.run();
+        } finally {
+            DIRECTORIES_IN_USE.remove(key);
+        }
+    }
+    
+    private FileChannel openChannel() throws IOException {
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (opened.size() < HEADER_BYTES) {
+            // New (or never fully initialised) journal
+            opened.truncate(0);
+            writeFully(opened, header(checkpointId));
+            opened.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                opened.read(header, header.position());
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                opened.close();
+                throw new IOException("Not a CCRM journal: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                opened.close();
+                throw new IOException("Unsupported journal version: " + version);
+            }
+            checkpointId = header.getLong();
+        }
+        opened.position(opened.size());
+        return opened;
+    }
+    
+    private static ByteBuffer header(long checkpointId) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(checkpointId).flip();
+        return header;
+    }
+    
+    public long getCheckpointId() {
+        appendLock.lock();
+        try {
+            return checkpointId;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    // Discard all records once a snapshot with the given checkpoint id holds their effect
+    public void reset(long newCheckpointId) throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            pending.clear();
+            channel.truncate(0);
+            writeFully(channel.position(0), header(newCheckpointId));
+            channel.force(true);
+            checkpointId = newCheckpointId;
+            syncedRecords = appendedRecords;
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+    
+    // Journaled services hold this (shared) from the start of a change until its records are appended.
+    // whileQuiescent takes it exclusively, so a checkpoint never falls between a change and its record.
+    public Lock changeLock() {
+        return changeGate.readLock();
+    }
+    
+    // Run an action while no journaled change is in progress; new changes wait until it is done
+    public <T> T whileQuiescent(QuiescentAction<T> action) throws IOException {
+        changeGate.writeLock().lock();
+        try {
+            return action.run();
+        } finally {
+            changeGate.writeLock().unlock();
+        }
+    }
+    
+    // Mutation records
+    // The enrollments and grades a new student arrives with are appended together with it
+    public void logAddStudent(Student student) throws IOException {
+        appendLock.lock();
+        try {
+            put(Op.ADD_STUDENT, out -> writeStudent(out, student));
+            putEnrollmentChanges(null, student);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    // previous is the instance student replaced (or student itself); enrollments and grades that
+    // differ between the two are appended together with the update
+    public void logUpdateStudent(Student previous, Student student) throws IOException {
+        appendLock.lock();
+        try {
+            put(Op.UPDATE_STUDENT, out -> writeStudent(out, student));
+            putEnrollmentChanges(previous, student);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    private void putEnrollmentChanges(Student previous, Student student) throws IOException {
+        if (previous == student) {
+            return;
+        }
+        String studentId = student.getId();
+        if (previous != null) {
+            for (Course course : previous.getEnrolledCoursesView()) {
+                if (!student.isEnrolledIn(course)) {
+                    put(Op.DROP, pair(studentId, course.getCode().getCode()));
+                }
+            }
+        }
+        for (Course course : student.getEnrolledCoursesView()) {
+            if (previous == null || !previous.isEnrolledIn(course)) {
+                put(Op.ENROLL, pair(studentId, course.getCode().getCode()));
+            }
+        }
+        for (Map.Entry<Course, Grade> entry : student.getGradesView().entrySet()) {
+            if (previous == null || previous.getGrade(entry.getKey()) != entry.getValue()) {
+                put(Op.RECORD_GRADE, out -> writeGrade(out, studentId, entry.getKey().getCode().getCode(), entry.getValue()));
+            }
+        }
+    }
+    
+    public void logDeactivateStudent(String studentId) throws IOException {
+        append(Op.DEACTIVATE_STUDENT, out -> out.writeUTF(studentId));
+    }
+    
+    public void logEnroll(String studentId, String courseCode) throws IOException {
+        append(Op.ENROLL, pair(studentId, courseCode));
+    }
+    
+    // The seat freed goes to nobody on replay; promotions into it are logged separately
+    public void logDrop(String studentId, String courseCode) throws IOException {
+        append(Op.DROP, pair(studentId, courseCode));
+    }
+    
+    public void logQueue(String studentId, String courseCode) throws IOException {
+        append(Op.QUEUE, pair(studentId, courseCode));
+    }
+    
+    public void logLeaveWaitlist(String studentId, String courseCode) throws IOException {
+        append(Op.LEAVE_WAITLIST, pair(studentId, courseCode));
+    }
+    
+    public void logPromote(String studentId, String courseCode) throws IOException {
+        append(Op.PROMOTE, pair(studentId, courseCode));
+    }
+    
+    public void logGrade(String studentId, String courseCode, Grade grade) throws IOException {
+        append(Op.RECORD_GRADE, out -> writeGrade(out, studentId, courseCode, grade));
+    }
+    
+    public void logAddCourse(Course course) throws IOException {
+        append(Op.ADD_COURSE, out -> writeCourse(out, course));
+    }
+    
+    public void logUpdateCourse(Course course) throws IOException {
+        append(Op.UPDATE_COURSE, out -> writeCourse(out, course));
+    }
+    
+    public void logDeactivateCourse(String courseCode) throws IOException {
+        append(Op.DEACTIVATE_COURSE, out -> out.writeUTF(courseCode));
+    }
+    
+    // Never waits for an fsync, so it is safe under a service lock; see commit
+    private void append(Op op, RecordBody body) throws IOException {
+        appendLock.lock();
+        try {
+            put(op, body);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    // Caller holds appendLock
+    private void put(Op op, RecordBody body) throws IOException {
+        ByteBuffer record = encode(op, body);
+        if (record.remaining() > pending.remaining()) {
+            flushPending();
+        }
+        if (record.remaining() > pending.capacity()) {
+            writeFully(channel, record);
+        } else {
+            pending.put(record);
+        }
+        appendedRecords++;
+    }
+    
+    private static RecordBody pair(String studentId, String courseCode) {
+        return out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseCode);
+        };
+    }
+    
+    private ByteBuffer encode(Op op, RecordBody body) throws IOException {
+        recordBuffer.reset();
+        recordOut.writeLong(0); // frame placeholder, filled in by frame()
+        recordOut.writeByte(op.getCode());
+        body.write(recordOut);
+        return recordBuffer.frame();
+    }
+    
+    // Apply the sync policy once a change's records are appended and no service lock is held: wait
+    // for an fsync when syncBatchSize records are waiting for one, else leave them to the next group
+    public void commit() throws IOException {
+        if (appendedRecords - syncedRecords >= syncBatchSize) {
+            sync();
+        }
+    }
+    
+    // Make every record appended so far durable. Threads that arrive while a group is being forced
+    // queue on syncLock and then usually find their records already covered by it.
+    public void sync() throws IOException {
+        long target = appendedRecords;
+        syncLock.lock();
+        try {
+            if (syncedRecords >= target) {
+                return;
+            }
+            long group;
+            appendLock.lock();
+            try {
+                flushPending();
+                group = appendedRecords;
+            } finally {
+                appendLock.unlock();
+            }
+            channel.force(false); // Appends carry on meanwhile
+            syncedRecords = group;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    private void syncQuietly() {
+        syncLock.lock();
+        try {
+            if (channel.isOpen()) {
+                sync();
+            }
+        } catch (IOException e) {
+            System.err.println("Journal sync failed: " + e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    private void flushPending() throws IOException {
+        if (pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        writeFully(channel, pending);
+        pending.clear();
+    }
+    
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+    
+    // Replay into services that are NOT journaled themselves; returns the number of records applied.
+    // Throws if a record cannot be applied, leaving the services partly recovered.
+    public int replay(StudentService studentService, CourseService courseService) throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            return replayLocked(studentService, courseService);
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+    
+    private int replayLocked(StudentService studentService, CourseService courseService) throws IOException {
+        flushPending();
+        long validLength = HEADER_BYTES;
+        int applied = 0;
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            in.skipNBytes(HEADER_BYTES); // Validated when the channel was opened
+            
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > channel.size() - validLength - FRAME_BYTES) {
+                    break; // Garbage length: torn tail
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                try {
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                
+                // A good record that does not apply means the state has diverged from what was logged;
+                // skipping it would silently drop it and everything that depends on it
+                try {
+                    apply(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), studentService, courseService);
+                    applied++;
+                } catch (RuntimeException | DuplicateEnrollmentException e) {
+                    throw new IOException("Cannot replay journal record at offset " + validLength + ": " + e.getMessage(), e);
+                }
+                validLength += FRAME_BYTES + length;
+            }
+        }
+        
+        // Drop a torn or corrupt tail so new records follow the last good one
+        if (channel.size() > validLength) {
+            System.err.println("Truncating journal tail at offset " + validLength);
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(channel.size());
+        return applied;
+    }
+    
+    private static void apply(DataInputStream in, StudentService studentService, CourseService courseService)
+            throws IOException, DuplicateEnrollmentException {
+        Op op = Op.fromCode(in.readByte());
+        switch (op) {
+            case ADD_STUDENT -> studentService.addStudent(readStudent(in));
+            case UPDATE_STUDENT -> {
+                Student replacement = readStudent(in);
+                // Update in place so enrollments and grades carry over, as with the CLI flow
+                Student student = studentService.findById(replacement.getId()).orElse(replacement);
+                student.setName(replacement.getName());
+                student.setEmail(replacement.getEmail());
+                student.setRegNo(replacement.getRegNo());
+                student.setStatus(replacement.getStatus());
+                student.setActive(replacement.isActive());
+                studentService.updateStudent(student);
+            }
+            case DEACTIVATE_STUDENT -> studentService.deactivateStudent(in.readUTF());
+            case ENROLL -> {
+                // Granted when logged; the credit cap or capacity may have been lowered since
+                String studentId = in.readUTF();
+                studentService.restoreEnrollment(studentId, requireCourse(courseService, in.readUTF()));
+            }
+            case DROP -> {
+                String studentId = in.readUTF();
+                studentService.restoreUnenrollment(studentId, requireCourse(courseService, in.readUTF()));
+            }
+            case QUEUE -> {
+                String studentId = in.readUTF();
+                requireCourse(courseService, in.readUTF()).joinWaitlist(studentId);
+            }
+            case PROMOTE -> {
+                String studentId = in.readUTF();
+                Course course = requireCourse(courseService, in.readUTF());
+                if (!course.leaveWaitlist(studentId)) {
+                    throw new IllegalArgumentException("Student " + studentId + " not on the waitlist for course: " + course.getCode());
+                }
+                studentService.restoreEnrollment(studentId, course);
+            }
+            case RECORD_GRADE -> {
+                String studentId = in.readUTF();
+                Course course = requireCourse(courseService, in.readUTF());
+                studentService.assignGrade(studentId, course, Grade.valueOf(in.readUTF()));
+            }
+            case ADD_COURSE -> {
+                Course course = readCourse(in);
+                courseService.addCourse(course);
+            }
+            case UPDATE_COURSE -> {
+                Course replacement = readCourse(in);
+                Course course = courseService.findById(replacement.getCode().getCode()).orElse(replacement);
+                course.setTitle(replacement.getTitle());
+                course.setCredits(replacement.getCredits());
+                course.setInstructor(replacement.getInstructor());
+                course.setSemester(replacement.getSemester());
+                course.setDepartment(replacement.getDepartment());
+                course.setActive(replacement.isActive());
+                course.setCapacity(replacement.getCapacity());
+                courseService.updateCourse(course);
+            }
+            case DEACTIVATE_COURSE -> courseService.deactivateCourse(in.readUTF());
+            case LEAVE_WAITLIST -> {
+                String studentId = in.readUTF();
+                studentService.leaveWaitlist(studentId, requireCourse(courseService, in.readUTF()));
+            }
+        }
+    }
+    
+    private static Course requireCourse(CourseService courseService, String courseCode) {
+        return courseService.findById(courseCode)
+                .orElseThrow(() -> new IllegalArgumentException("Course not found: " + courseCode));
+    }
+    
+    public boolean needsCompaction() throws IOException {
+        return size() > compactionThresholdBytes;
+    }
+    
+    // Run an action while no record can be appended and no reset can replace the file
+    // Everything logged so far is synced first, so the first syncedLength bytes of the file are exactly
+    // the records of every mutation made before this call: a point-in-time view for backups.
+    public <T> T whileFrozen(FrozenAction<T> action) throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            flushPending();
+            channel.force(false);
+            syncedRecords = appendedRecords;
+            return action.run(file, channel.size());
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+    
+    public long size() throws IOException {
+        appendLock.lock();
+        try {
+            return channel.size() + pending.position();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        syncScheduler.shutdownNow();
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (channel.isOpen()) {
+                    flushPending();
+                    channel.force(false);
+                    syncedRecords = appendedRecords;
+                }
+            } finally {
+                channel.close();
+                DIRECTORIES_IN_USE.remove(directory);
+            }
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+    
+    // Field encoders
+    private static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        out.writeUTF(student.getId());
+        out.writeUTF(student.getRegNo());
+        out.writeUTF(student.getName().getFirstName());
+        out.writeUTF(student.getName().getLastName());
+        out.writeUTF(student.getEmail());
+        out.writeUTF(Optional.ofNullable(student.getStatus()).map(Enum::name).orElse(""));
+        out.writeBoolean(student.isActive());
+    }
+    
+    private static Student readStudent(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String regNo = in.readUTF();
+        Name name = new Name(in.readUTF(), in.readUTF());
+        Student student = new Student(id, name, in.readUTF(), regNo);
+        String status = in.readUTF();
+        student.setStatus(status.isEmpty() ? null : Student.StudentStatus.valueOf(status));
+        student.setActive(in.readBoolean());
+        return student;
+    }
+    
+    private static void writeCourse(DataOutputStream out, Course course) throws IOException {
+        out.writeUTF(course.getCode().getCode());
+        out.writeUTF(course.getTitle());
+        out.writeInt(course.getCredits());
+        out.writeUTF(course.getInstructor());
+        out.writeUTF(course.getSemester().name());
+        out.writeUTF(course.getDepartment());
+        out.writeBoolean(course.isActive());
+        out.writeInt(course.getCapacity());
+    }
+    
+    private static Course readCourse(DataInputStream in) throws IOException {
+        Course course = new Course.Builder(new CourseCode(in.readUTF()), in.readUTF())
+                .credits(in.readInt())
+                .instructor(in.readUTF())
+                .semester(Semester.valueOf(in.readUTF()))
+                .department(in.readUTF())
+                .build();
+        course.setActive(in.readBoolean());
+        if (in.available() >= 4) { // Records from before capacities existed end here
+            course.setCapacity(in.readInt());
+        }
+        return course;
+    }
+    
+    private static void writeGrade(DataOutputStream out, String studentId, String courseCode, Grade grade) throws IOException {
+        out.writeUTF(studentId);
+        out.writeUTF(courseCode);
+        out.writeUTF(grade.name());
+    }
+}
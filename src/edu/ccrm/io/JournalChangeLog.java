@@ -0,0 +1,94 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.ChangeLog;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Appends each service change to the journal as it is made
+ * Runs under the services' locks, so it only appends; the fsync comes later, in Journal.commit
+ */
+class JournalChangeLog implements ChangeLog {
+    private final Journal journal;
+    
+    JournalChangeLog(Journal journal) {
+        this.journal = journal;
+    }
+    
+    @FunctionalInterface
+    private interface JournalWrite {
+        void write() throws IOException;
+    }
+    
+    // The in-memory change has already happened; surface a failed journal write to the caller
+    private static void record(JournalWrite write) {
+        try {
+            write.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal record", e);
+        }
+    }
+    
+    @Override
+    public void studentAdded(Student student) {
+        record(() -> journal.logAddStudent(student));
+    }
+    
+    @Override
+    public void studentUpdated(Student previous, Student student) {
+        record(() -> journal.logUpdateStudent(previous, student));
+    }
+    
+    @Override
+    public void studentDeactivated(String studentId) {
+        record(() -> journal.logDeactivateStudent(studentId));
+    }
+    
+    @Override
+    public void enrolled(String studentId, Course course) {
+        record(() -> journal.logEnroll(studentId, course.getCode().getCode()));
+    }
+    
+    @Override
+    public void unenrolled(String studentId, Course course) {
+        record(() -> journal.logDrop(studentId, course.getCode().getCode()));
+    }
+    
+    @Override
+    public void graded(String studentId, Course course, Grade grade) {
+        record(() -> journal.logGrade(studentId, course.getCode().getCode(), grade));
+    }
+    
+    @Override
+    public void waitlistJoined(String studentId, Course course) {
+        record(() -> journal.logQueue(studentId, course.getCode().getCode()));
+    }
+    
+    @Override
+    public void waitlistLeft(String studentId, Course course) {
+        record(() -> journal.logLeaveWaitlist(studentId, course.getCode().getCode()));
+    }
+    
+    @Override
+    public void promoted(String studentId, Course course) {
+        record(() -> journal.logPromote(studentId, course.getCode().getCode()));
+    }
+    
+    @Override
+    public void courseAdded(Course course) {
+        record(() -> journal.logAddCourse(course));
+    }
+    
+    @Override
+    public void courseUpdated(Course course) {
+        record(() -> journal.logUpdateCourse(course));
+    }
+    
+    @Override
+    public void courseDeactivated(String courseCode) {
+        record(() -> journal.logDeactivateCourse(courseCode));
+    }
+}
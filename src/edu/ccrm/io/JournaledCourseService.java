@@ -0,0 +1,112 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.BatchResult;
+import edu.ccrm.service.ChangeLog;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.RegistrySnapshot;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static edu.ccrm.io.JournaledStudentService.journaled;
+
+/**
+ * Decorator that records every successful CourseService mutation in the journal
+ * The wrapped service appends the records under its catalogue write lock, as JournaledStudentService
+ * describes; reads go straight to it
+ */
+public class JournaledCourseService implements CourseService {
+    private final CourseService delegate;
+    private final Journal journal;
+    private final ChangeLog journalLog;
+    
+    public JournaledCourseService(CourseService delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.journalLog = new JournalChangeLog(journal);
+        delegate.setChangeLog(journalLog);
+    }
+    
+    @Override
+    public void addCourse(Course course) {
+        journaled(journal, () -> delegate.addCourse(course));
+    }
+    
+    @Override
+    public BatchResult addCourses(Collection<Course> courses) {
+        return journaled(journal, () -> delegate.addCourses(courses));
+    }
+    
+    @Override
+    public List<Course> getAllCourses() {
+        return delegate.getAllCourses();
+    }
+    
+    @Override
+    public void updateCourse(Course course) {
+        journaled(journal, () -> delegate.updateCourse(course));
+    }
+    
+    @Override
+    public void deactivateCourse(String courseCode) {
+        journaled(journal, () -> delegate.deactivateCourse(courseCode));
+    }
+    
+    @Override
+    public List<Course> findByInstructor(String instructor) {
+        return delegate.findByInstructor(instructor);
+    }
+    
+    @Override
+    public List<Course> findByDepartment(String department) {
+        return delegate.findByDepartment(department);
+    }
+    
+    @Override
+    public List<Course> findBySemester(Semester semester) {
+        return delegate.findBySemester(semester);
+    }
+    
+    @Override
+    public List<Course> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+    
+    @Override
+    public List<Student> getRoster(String courseCode) {
+        return delegate.getRoster(courseCode);
+    }
+    
+    @Override
+    public int getEnrollmentCount(String courseCode) {
+        return delegate.getEnrollmentCount(courseCode);
+    }
+    
+    @Override
+    public Map<Grade, Long> getGradeDistribution(String courseCode) {
+        return delegate.getGradeDistribution(courseCode);
+    }
+    
+    @Override
+    public RegistrySnapshot snapshot() {
+        return delegate.snapshot();
+    }
+    
+    // Changes still go to the journal first; changeLog hears of each one once its record is appended
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        delegate.setChangeLog(journalLog.andThen(changeLog));
+    }
+    
+    @Override
+    public List<Course> search(String query) {
+        return delegate.search(query);
+    }
+    
+    @Override
+    public Optional<Course> findById(String courseCode) {
+        return delegate.findById(courseCode);
+    }
+}
@@ -0,0 +1,167 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.BatchResult;
+import edu.ccrm.service.ChangeLog;
+import edu.ccrm.service.RegistrySnapshot;
+import edu.ccrm.service.StudentService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * Decorator that records every successful StudentService mutation in the journal
+ * The wrapped service appends the records itself, through a ChangeLog, under the same per-student
+ * lock as the change, so the journal replays each student's changes in the order they were made
+ * and writers working on different students never wait for each other. This class only holds the
+ * journal's change lock around each call and applies the sync policy once the call returns.
+ * Reads go straight to the wrapped service.
+ */
+public class JournaledStudentService implements StudentService {
+    private final StudentService delegate;
+    private final Journal journal;
+    private final ChangeLog journalLog;
+    
+    public JournaledStudentService(StudentService delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.journalLog = new JournalChangeLog(journal);
+        delegate.setChangeLog(journalLog);
+    }
+    
+    @Override
+    public void addStudent(Student student) {
+        journaled(journal, () -> delegate.addStudent(student));
+    }
+    
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        return journaled(journal, () -> delegate.addStudents(students));
+    }
+    
+    @Override
+    public List<Student> getAllStudents() {
+        return delegate.getAllStudents();
+    }
+    
+    @Override
+    public void updateStudent(Student student) {
+        journaled(journal, () -> delegate.updateStudent(student));
+    }
+    
+    @Override
+    public void deactivateStudent(String studentId) {
+        journaled(journal, () -> delegate.deactivateStudent(studentId));
+    }
+    
+    @Override
+    public Optional<Student> findByRegNo(String regNo) {
+        return delegate.findByRegNo(regNo);
+    }
+    
+    @Override
+    public void enrollStudentInCourse(String studentId, Course course) throws DuplicateEnrollmentException {
+        journaled(journal, () -> delegate.enrollStudentInCourse(studentId, course));
+    }
+    
+    @Override
+    public void restoreEnrollment(String studentId, Course course) throws DuplicateEnrollmentException {
+        journaled(journal, () -> delegate.restoreEnrollment(studentId, course));
+    }
+    
+    @Override
+    public void unenrollStudentFromCourse(String studentId, Course course) {
+        journaled(journal, () -> delegate.unenrollStudentFromCourse(studentId, course));
+    }
+    
+    @Override
+    public void restoreUnenrollment(String studentId, Course course) {
+        journaled(journal, () -> delegate.restoreUnenrollment(studentId, course));
+    }
+    
+    @Override
+    public boolean joinWaitlist(String studentId, Course course) throws DuplicateEnrollmentException {
+        return journaled(journal, () -> delegate.joinWaitlist(studentId, course));
+    }
+    
+    @Override
+    public void leaveWaitlist(String studentId, Course course) {
+        journaled(journal, () -> delegate.leaveWaitlist(studentId, course));
+    }
+    
+    @Override
+    public List<String> fillWaitlist(Course course) {
+        return journaled(journal, () -> delegate.fillWaitlist(course));
+    }
+    
+    @Override
+    public void assignGrade(String studentId, Course course, Grade grade) {
+        journaled(journal, () -> delegate.assignGrade(studentId, course, grade));
+    }
+    
+    @Override
+    public List<Student> search(String query) {
+        return delegate.search(query);
+    }
+    
+    @Override
+    public Optional<Student> findById(String id) {
+        return delegate.findById(id);
+    }
+    
+    @Override
+    public <T> Optional<T> readStudent(String studentId, Function<? super Student, ? extends T> reader) {
+        return delegate.readStudent(studentId, reader);
+    }
+    
+    @Override
+    public RegistrySnapshot snapshot() {
+        return delegate.snapshot();
+    }
+    
+    // Changes still go to the journal first; changeLog hears of each one once its record is appended
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        delegate.setChangeLog(journalLog.andThen(changeLog));
+    }
+    
+    @FunctionalInterface
+    interface Change<T, E extends Exception> {
+        T apply() throws E;
+    }
+    
+    @FunctionalInterface
+    interface VoidChange<E extends Exception> {
+        void apply() throws E;
+    }
+    
+    // Run a change under the journal's change lock (shared, so changes run side by side), then wait
+    // for an fsync if the sync policy asks for one, after every service lock has been released
+    static <T, E extends Exception> T journaled(Journal journal, Change<T, E> change) throws E {
+        T result;
+        Lock lock = journal.changeLock();
+        lock.lock();
+        try {
+            result = change.apply();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync journal", e);
+        }
+        return result;
+    }
+    
+    static <E extends Exception> void journaled(Journal journal, VoidChange<E> change) throws E {
+        journaled(journal, () -> {
+            change.apply();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,275 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parallel import of large CSV files
+ * Memory-maps the file, cuts it into newline-aligned chunks and parses them on a fork-join pool.
+ * Records reach the sink in file order and in batches while later chunks are still being parsed,
+ * so at most a few chunks' worth of records is held in memory at once.
+ */
+public class ParallelCsvImporter {
+    private final int chunkBytes;
+    private final int parallelism;
+    private final int batchSize;
+    
+    // A newline-aligned byte range of the file and the line it starts on
+    private static class Chunk {
+        private final long start;
+        private final long end;
+        private final long firstLine;
+        
+        Chunk(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+    }
+    
+    private static class ChunkResult<T> {
+        private final List<T> records = new ArrayList<>();
+        private final List<ImportReport.Rejection> rejections = new ArrayList<>();
+    }
+    
+    public ParallelCsvImporter() {
+        this(AppConfig.getInstance().getImportChunkBytes(),
+             AppConfig.getInstance().getImportParallelism(),
+             AppConfig.getInstance().getImportBatchSize());
+    }
+    
+    public ParallelCsvImporter(int chunkBytes, int parallelism, int batchSize) {
+        if (chunkBytes <= 0 || parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Chunk size, parallelism and batch size must be positive");
+        }
+        this.chunkBytes = chunkBytes;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+    
+    // Parse every record after the header line; records the parser rejects are reported with their line number
+    // Each batch handed to the sink is only valid for the duration of the call
+    public <T> ImportReport importFile(Path file, Function<CsvReader, T> parser, Consumer<List<T>> sink) throws IOException {
+        return importFile(file, parser, (batch, report) -> {
+            sink.accept(batch);
+            report.accept(batch.size());
+        });
+    }
+    
+    // Variant whose sink does its own accounting, so it can reject records of a batch itself
+    public <T> ImportReport importFile(Path file, Function<CsvReader, T> parser,
+                                       BiConsumer<List<T>, ImportReport> sink) throws IOException {
+        ImportReport report = new ImportReport();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, pool);
+            
+            // Keep a bounded window of chunks in flight and hand results over strictly in order
+            Deque<ForkJoinTask<ChunkResult<T>>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < chunks.size() || !inFlight.isEmpty()) {
+                while (next < chunks.size() && inFlight.size() < parallelism * 2) {
+                    Chunk chunk = chunks.get(next++);
+                    inFlight.add(pool.submit(() -> parse(channel, chunk, parser)));
+                }
+                deliver(await(inFlight.poll()), report, sink);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return report;
+    }
+    
+    // Chunk boundaries: the first record-ending newline after each nominal chunkBytes offset, found
+    // with CsvReader's own state machine, so the chunks cut where a single reader would end a record
+    private List<Chunk> split(FileChannel channel, ForkJoinPool pool) throws IOException {
+        long size = channel.size();
+        int segments = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+        long textStart = hasByteOrderMark(channel, size) ? 3 : 0;
+        
+        // Pass 1, in parallel: per segment, the parser state it ends in and the lines it ends for
+        // each state it could start in; chained together they give the state at every segment start
+        List<ForkJoinTask<long[]>> counts = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            long start = (long) i * chunkBytes;
+            long end = Math.min(size, start + chunkBytes);
+            counts.add(pool.submit(() -> count(channel, start, end, size, textStart)));
+        }
+        
+        // Pass 2: scan forward from each nominal offset to the first record boundary
+        List<Chunk> chunks = new ArrayList<>(segments);
+        long chunkStart = 0;
+        long chunkLine = 1;
+        int state = CsvReader.FIELD_START;
+        long linesBefore = 0;
+        for (int i = 1; i < segments; i++) {
+            long[] previous = await(counts.get(i - 1));
+            linesBefore += previous[CsvReader.STATE_COUNT + state];
+            state = (int) previous[state];
+            
+            long segmentStart = (long) i * chunkBytes;
+            long segmentEnd = Math.min(size, segmentStart + chunkBytes);
+            MappedByteBuffer segment = map(channel, segmentStart, segmentEnd, size);
+            int scanState = state;
+            long lines = linesBefore;
+            for (int p = (int) Math.max(0, textStart - segmentStart), limit = (int) (segmentEnd - segmentStart); p < limit; p++) {
+                byte b = segment.get(p);
+                if (b == '\r' && scanState != CsvReader.QUOTED && !lineFeedAt(segment, p + 1)) {
+                    lines++;
+                } else if (b == '\n') {
+                    lines++;
+                    if (scanState != CsvReader.QUOTED) {
+                        long boundary = segmentStart + p + 1;
+                        chunks.add(new Chunk(chunkStart, boundary, chunkLine));
+                        chunkStart = boundary;
+                        chunkLine = lines + 1;
+                        break;
+                    }
+                }
+                scanState = CsvReader.stateAfter(scanState, b);
+            }
+            // No boundary in this segment: the current chunk simply absorbs it
+        }
+        if (chunkStart < size) {
+            chunks.add(new Chunk(chunkStart, size, chunkLine));
+        }
+        return chunks;
+    }
+    
+    // { end state when starting in state 0, 1, ..., lines ended when starting in state 0, 1, ... }.
+    // Like the reader, a line ends at every newline and at a carriage return outside quotes that
+    // is not followed by one. Bytes before textStart (a byte order mark the reader skips) are skipped too
+    private static long[] count(FileChannel channel, long start, long end, long size, long textStart) throws IOException {
+        MappedByteBuffer segment = map(channel, start, end, size);
+        int[] states = new int[CsvReader.STATE_COUNT];
+        for (int s = 0; s < states.length; s++) {
+            states[s] = s;
+        }
+        long newlines = 0;
+        long[] carriageReturns = new long[states.length];
+        int from = (int) Math.max(0, Math.min(end, textStart) - start);
+        boolean plainRun = false;
+        for (int p = from, limit = (int) (end - start); p < limit; p++) {
+            byte b = segment.get(p);
+            if (b != '"' && b != ',' && b != '\n' && b != '\r') {
+                plainRun = true; // Any number of plain bytes acts like one, so runs are applied once
+                continue;
+            }
+            if (plainRun) {
+                plainRun = false;
+                applyPlainByte(states);
+            }
+            if (b == '\n') {
+                newlines++;
+            } else if (b == '\r' && !lineFeedAt(segment, p + 1)) {
+                for (int s = 0; s < states.length; s++) {
+                    if (states[s] != CsvReader.QUOTED) carriageReturns[s]++;
+                }
+            }
+            for (int s = 0; s < states.length; s++) {
+                states[s] = CsvReader.stateAfter(states[s], b);
+            }
+        }
+        if (plainRun) {
+            applyPlainByte(states);
+        }
+        
+        long[] result = new long[2 * states.length];
+        for (int s = 0; s < states.length; s++) {
+            result[s] = states[s];
+            result[states.length + s] = newlines + carriageReturns[s];
+        }
+        return result;
+    }
+    
+    // The bytes [start, end) plus the one after them, so a carriage return at the end can see
+    // whether a line feed follows it
+    private static MappedByteBuffer map(FileChannel channel, long start, long end, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, end + 1) - start);
+    }
+    
+    private static boolean lineFeedAt(MappedByteBuffer segment, int p) {
+        return p < segment.limit() && segment.get(p) == '\n';
+    }
+    
+    private static void applyPlainByte(int[] states) {
+        for (int s = 0; s < states.length; s++) {
+            states[s] = CsvReader.stateAfter(states[s], (byte) 'x');
+        }
+    }
+    
+    private static boolean hasByteOrderMark(FileChannel channel, long size) throws IOException {
+        if (size < 3) {
+            return false;
+        }
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3);
+        return head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF;
+    }
+    
+    private static <T> ChunkResult<T> parse(FileChannel channel, Chunk chunk, Function<CsvReader, T> parser) throws IOException {
+        long length = chunk.end - chunk.start;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("No record boundary within 2 GB after offset " + chunk.start);
+        }
+        
+        ChunkResult<T> result = new ChunkResult<>();
+        CsvReader csv = new CsvReader(channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, length), chunk.firstLine);
+        try {
+            if (chunk.start == 0) {
+                csv.next(); // Skip header
+            }
+            while (csv.next()) {
+                try {
+                    result.records.add(parser.apply(csv));
+                } catch (RuntimeException e) {
+                    result.rejections.add(new ImportReport.Rejection(csv.getLineNumber(), reason(e)));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed quoting: nothing after it in this chunk can be trusted
+            result.rejections.add(new ImportReport.Rejection(csv.getLineNumber(), reason(e)));
+        }
+        return result;
+    }
+    
+    private <T> void deliver(ChunkResult<T> result, ImportReport report, BiConsumer<List<T>, ImportReport> sink) {
+        List<T> records = result.records;
+        for (int from = 0; from < records.size(); from += batchSize) {
+            sink.accept(records.subList(from, Math.min(records.size(), from + batchSize)), report);
+        }
+        for (ImportReport.Rejection rejection : result.rejections) {
+            report.reject(rejection.getLine(), rejection.getReason());
+        }
+    }
+    
+    private static <V> V await(ForkJoinTask<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IOException(cause);
+        }
+    }
+    
+    private static String reason(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+}
@@ -0,0 +1,291 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fork-join directory tree copy and delete
+ * Every directory is one task that forks its subdirectories and files, so on trees with many
+ * files the per-file I/O latency overlaps across up to `parallelism` threads.
+ * Large files are copied with FileChannel.transferTo, which lets the OS move the bytes directly.
+ */
+public class ParallelFileTree {
+    private static final long PROGRESS_INTERVAL_NANOS = 500_000_000L;
+    
+    private final int parallelism;
+    private final long transferThreshold;
+    private final ProgressListener listener;
+    
+    // Called now and then from worker threads with running totals
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long files, long bytes);
+    }
+    
+    // Static nested class summarizing one copy or delete
+    public static class TransferStats {
+        private final long files;
+        private final long directories;
+        private final long bytes;
+        private final long nanos;
+        
+        public TransferStats(long files, long directories, long bytes, long nanos) {
+            this.files = files;
+            this.directories = directories;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+        
+        public long getFiles() { return files; }
+        public long getDirectories() { return directories; }
+        public long getBytes() { return bytes; }
+        public long getMillis() { return nanos / 1_000_000; }
+        
+        public double getFilesPerSecond() { return files / Math.max(1e-9, nanos / 1e9); }
+        public double getMegabytesPerSecond() { return bytes / Math.max(1e-9, nanos / 1e9) / (1024 * 1024); }
+        
+        @Override
+        public String toString() {
+            return String.format("%d files, %d directories, %d bytes in %d ms (%.0f files/s, %.1f MB/s)",
+                    files, directories, bytes, getMillis(), getFilesPerSecond(), getMegabytesPerSecond());
+        }
+    }
+    
+    // Running totals shared by the tasks of one operation
+    private class Progress {
+        private final LongAdder files = new LongAdder();
+        private final LongAdder directories = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final long start = System.nanoTime();
+        private final AtomicLong lastReport = new AtomicLong(start);
+        
+        void fileDone(long size) {
+            files.increment();
+            bytes.add(size);
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            // Only the thread that wins the CAS reports, so the listener is never flooded
+            if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                listener.onProgress(files.sum(), bytes.sum());
+            }
+        }
+        
+        TransferStats finish() {
+            TransferStats stats = new TransferStats(files.sum(), directories.sum(), bytes.sum(), System.nanoTime() - start);
+            if (listener != null) {
+                listener.onProgress(stats.getFiles(), stats.getBytes());
+            }
+            return stats;
+        }
+    }
+    
+    public ParallelFileTree() {
+        this(null);
+    }
+    
+    public ParallelFileTree(ProgressListener listener) {
+        this(AppConfig.getInstance().getFileTreeParallelism(),
+             AppConfig.getInstance().getTransferThresholdBytes(), listener);
+    }
+    
+    public ParallelFileTree(int parallelism, long transferThreshold, ProgressListener listener) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.transferThreshold = transferThreshold;
+        this.listener = listener;
+    }
+    
+    // Copy source into target (created if missing), replacing existing files
+    public TransferStats copy(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source)) {
+            throw new NotDirectoryException(source.toString());
+        }
+        Progress progress = new Progress();
+        run(new CopyTask(source, target, progress));
+        return progress.finish();
+    }
+    
+    // Delete a file or a whole tree; symbolic links are removed, never followed
+    public TransferStats delete(Path root) throws IOException {
+        Progress progress = new Progress();
+        if (Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+            run(new DeleteTask(root, progress));
+        } else {
+            long size = Files.size(root);
+            Files.delete(root);
+            progress.fileDone(size);
+        }
+        return progress.finish();
+    }
+    
+    private void run(RecursiveAction task) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private class CopyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path source;
+        private final Path target;
+        private final Progress progress;
+        
+        CopyTask(Path source, Path target, Progress progress) {
+            this.source = source;
+            this.target = target;
+            this.progress = progress;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                Files.createDirectories(target);
+                progress.directories.increment();
+                
+                List<RecursiveAction> children = new ArrayList<>();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+                    for (Path entry : entries) {
+                        Path entryTarget = target.resolve(entry.getFileName().toString());
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                        if (attrs.isDirectory()) {
+                            children.add(new CopyTask(entry, entryTarget, progress));
+                        } else {
+                            children.add(new FileCopyTask(entry, entryTarget, attrs.size(), progress));
+                        }
+                    }
+                }
+                invokeAll(children);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy " + source, e);
+            }
+        }
+    }
+    
+    private class FileCopyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path source;
+        private final Path target;
+        private final long size;
+        private final Progress progress;
+        
+        FileCopyTask(Path source, Path target, long size, Progress progress) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+            this.progress = progress;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                progress.fileDone(size >= transferThreshold ? transfer(source, target) : copySmall(source, target));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy " + source, e);
+            }
+        }
+    }
+    
+    private static long copySmall(Path source, Path target) throws IOException {
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(target);
+    }
+    
+    // Zero-copy where the OS supports it; the target is recreated, never written through (it may be a hard link)
+    private static long transfer(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long sent = in.transferTo(position, size - position, out);
+                if (sent <= 0 && in.size() <= position) {
+                    break; // Truncated while copying
+                }
+                position += sent;
+            }
+            return position;
+        }
+    }
+    
+    private static class DeleteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path directory;
+        private final Progress progress;
+        
+        DeleteTask(Path directory, Progress progress) {
+            this.directory = directory;
+            this.progress = progress;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                List<RecursiveAction> children = new ArrayList<>();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (attrs.isDirectory()) {
+                            children.add(new DeleteTask(entry, progress));
+                        } else {
+                            children.add(new FileDeleteTask(entry, attrs.size(), progress));
+                        }
+                    }
+                }
+                invokeAll(children);
+                Files.delete(directory); // Empty now
+                progress.directories.increment();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete " + directory, e);
+            }
+        }
+    }
+    
+    private static class FileDeleteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path file;
+        private final long size;
+        private final Progress progress;
+        
+        FileDeleteTask(Path file, long size, Progress progress) {
+            this.file = file;
+            this.size = size;
+            this.progress = progress;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                Files.delete(file);
+                progress.fileDone(size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.service.BatchResult;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Versioned binary snapshot of students, courses, enrollments and grades
+ * Strings are dictionary-encoded and entities are fixed-width records read through a memory map
+ *
+ * Layout: header | string offsets | string bytes (4-byte aligned) | courses | students | enrollments | waitlists
+ */
+public class SnapshotService {
+    private static final int MAGIC = 0x43435331; // "CCS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    // code, title, instructor, department, credits (ints) + semester, active (bytes) + capacity (unsigned short)
+    private static final int COURSE_RECORD_BYTES = 24;
+    // id, regNo, first name, last name, email (ints) + status, active (bytes) + padding
+    private static final int STUDENT_RECORD_BYTES = 24;
+    // student ordinal, course ordinal (ints) + grade (byte) + padding
+    private static final int ENROLLMENT_RECORD_BYTES = 12;
+    // student ordinal, course ordinal (ints), in waitlist order; counted in the header's last int
+    private static final int WAITLIST_RECORD_BYTES = 8;
+    private static final byte NONE = -1;
+    
+    private final AppConfig config;
+    
+    // Summary of a loaded or written snapshot
+    public static class SnapshotInfo {
+        private final long checkpointId;
+        private final int courses;
+        private final int students;
+        private final int enrollments;
+        
+        public SnapshotInfo(long checkpointId, int courses, int students, int enrollments) {
+            this.checkpointId = checkpointId;
+            this.courses = courses;
+            this.students = students;
+            this.enrollments = enrollments;
+        }
+        
+        public long getCheckpointId() { return checkpointId; }
+        public int getCourses() { return courses; }
+        public int getStudents() { return students; }
+        public int getEnrollments() { return enrollments; }
+        public int getRecordCount() { return courses + students + enrollments; }
+        
+        @Override
+        public String toString() {
+            return String.format("Snapshot{checkpoint=%d, courses=%d, students=%d, enrollments=%d}",
+                    checkpointId, courses, students, enrollments);
+        }
+    }
+    
+    public SnapshotService() {
+        this.config = AppConfig.getInstance();
+    }
+    
+    // Load the snapshot (if any) and the journal records written after it
+    public int recover(StudentService studentService, CourseService courseService, Journal journal) throws IOException {
+        Path snapshotPath = config.getSnapshotPath();
+        long checkpointId = 0;
+        int recovered = 0;
+        
+        if (Files.exists(snapshotPath)) {
+            SnapshotInfo info = load(studentService, courseService, snapshotPath);
+            checkpointId = info.getCheckpointId();
+            recovered += info.getRecordCount();
+        }
+        
+        if (journal != null) {
+            if (journal.getCheckpointId() < checkpointId) {
+                // Crashed between writing the snapshot and resetting the journal: records are already in the snapshot
+                journal.reset(checkpointId);
+            } else {
+                if (journal.getCheckpointId() > checkpointId) {
+                    System.err.println("Warning: snapshot for checkpoint " + journal.getCheckpointId()
+                            + " is missing; replaying journal on top of checkpoint " + checkpointId);
+                }
+                recovered += journal.replay(studentService, courseService);
+            }
+        }
+        return recovered;
+    }
+    
+    // Write a new snapshot and start an empty journal on top of it
+    public SnapshotInfo checkpoint(StudentService studentService, CourseService courseService, Journal journal) throws IOException {
+        Path snapshotPath = config.getSnapshotPath();
+        long checkpointId = Math.max(journal == null ? 0 : journal.getCheckpointId(), peekCheckpointId(snapshotPath)) + 1;
+        
+        if (journal == null) {
+            return save(studentService, courseService, checkpointId, snapshotPath);
+        }
+        // No journaled change is in progress meanwhile, so none falls between the snapshot and the
+        // reset; new ones wait and land in the new journal
+        return journal.whileQuiescent(() -> {
+            journal.sync();
+            SnapshotInfo info = save(studentService, courseService, checkpointId, snapshotPath);
+            journal.reset(checkpointId);
+            return info;
+        });
+    }
+    
+    // Write to a temp file, fsync, then atomically replace the previous snapshot
+    public SnapshotInfo save(StudentService studentService, CourseService courseService,
+                             long checkpointId, Path path) throws IOException {
+        List<Course> courses = courseService.getAllCourses();
+        List<Student> students = studentService.getAllStudents();
+        
+        // Dictionary-encode every string once
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<Course, Integer> courseOrdinals = new HashMap<>(courses.size() * 2);
+        for (Course course : courses) {
+            courseOrdinals.put(course, courseOrdinals.size());
+            intern(dictionary, strings, course.getCode().getCode());
+            intern(dictionary, strings, course.getTitle());
+            intern(dictionary, strings, course.getInstructor());
+            intern(dictionary, strings, course.getDepartment());
+        }
+        int enrollmentCount = 0;
+        Map<String, Integer> studentOrdinals = new HashMap<>(students.size() * 2);
+        for (Student student : students) {
+            studentOrdinals.put(student.getId(), studentOrdinals.size());
+            intern(dictionary, strings, student.getId());
+            intern(dictionary, strings, student.getRegNo());
+            intern(dictionary, strings, student.getName().getFirstName());
+            intern(dictionary, strings, student.getName().getLastName());
+            intern(dictionary, strings, student.getEmail());
+            enrollmentCount += student.getEnrolledCourseCount();
+        }
+        
+        List<int[]> waitlisted = new ArrayList<>();
+        for (Course course : courses) {
+            for (String studentId : course.getWaitlist()) {
+                Integer ordinal = studentOrdinals.get(studentId);
+                if (ordinal != null) {
+                    waitlisted.add(new int[] {ordinal, courseOrdinals.get(course)});
+                }
+            }
+        }
+        
+        byte[][] encoded = new byte[strings.size()][];
+        int stringBytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+        }
+        
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checkpointId);
+            out.writeInt(encoded.length);
+            out.writeInt(stringBytes);
+            out.writeInt(courses.size());
+            out.writeInt(students.size());
+            out.writeInt(enrollmentCount);
+            out.writeInt(waitlisted.size());
+            
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+            for (int pad = align(stringBytes) - stringBytes; pad > 0; pad--) {
+                out.writeByte(0);
+            }
+            
+            for (Course course : courses) {
+                out.writeInt(dictionary.get(course.getCode().getCode()));
+                out.writeInt(dictionary.get(course.getTitle()));
+                out.writeInt(dictionary.get(course.getInstructor()));
+                out.writeInt(dictionary.get(course.getDepartment()));
+                out.writeInt(course.getCredits());
+                out.writeByte(course.getSemester().ordinal());
+                out.writeBoolean(course.isActive());
+                out.writeShort(course.getCapacity());
+            }
+            for (Student student : students) {
+                out.writeInt(dictionary.get(student.getId()));
+                out.writeInt(dictionary.get(student.getRegNo()));
+                out.writeInt(dictionary.get(student.getName().getFirstName()));
+                out.writeInt(dictionary.get(student.getName().getLastName()));
+                out.writeInt(dictionary.get(student.getEmail()));
+                out.writeByte(student.getStatus() == null ? NONE : student.getStatus().ordinal());
+                out.writeBoolean(student.isActive());
+                out.writeShort(0);
+            }
+            for (int ordinal = 0; ordinal < students.size(); ordinal++) {
+                Student student = students.get(ordinal);
+                for (Course course : student.getEnrolledCoursesView()) {
+                    Grade grade = student.getGrade(course);
+                    out.writeInt(ordinal);
+                    out.writeInt(courseOrdinals.get(course));
+                    out.writeByte(grade == null ? NONE : grade.ordinal());
+                    out.writeByte(0);
+                    out.writeShort(0);
+                }
+            }
+            for (int[] entry : waitlisted) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+            }
+        }
+        
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename is only durable once the directory is; until then a crash can bring back the old file
+        BackupService.syncDirectory(path.toAbsolutePath().normalize().getParent());
+        return new SnapshotInfo(checkpointId, courses.size(), students.size(), enrollmentCount);
+    }
+    
+    // Memory-map the snapshot and feed it into (non-journaled) services, in one bulk add of the
+    // courses and one of the students, so the services size their maps and build indexes once
+    public SnapshotInfo load(StudentService studentService, CourseService courseService, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Truncated snapshot: " + path);
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map: " + path);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            if (map.getInt(0) != MAGIC) throw new IOException("Not a CCRM snapshot: " + path);
+            int version = map.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported snapshot version: " + version);
+            long checkpointId = map.getLong(8);
+            int stringCount = map.getInt(16);
+            int stringBytes = map.getInt(20);
+            int courseCount = map.getInt(24);
+            int studentCount = map.getInt(28);
+            int enrollmentCount = map.getInt(32);
+            int waitlistCount = map.getInt(36);
+            
+            int offsetsPos = HEADER_BYTES;
+            int bytesPos = offsetsPos + 4 * (stringCount + 1);
+            int coursesPos = bytesPos + align(stringBytes);
+            int studentsPos = coursesPos + courseCount * COURSE_RECORD_BYTES;
+            int enrollmentsPos = studentsPos + studentCount * STUDENT_RECORD_BYTES;
+            int waitlistsPos = enrollmentsPos + enrollmentCount * ENROLLMENT_RECORD_BYTES;
+            long expected = (long) waitlistsPos + (long) waitlistCount * WAITLIST_RECORD_BYTES;
+            if (expected != size) throw new IOException("Corrupt snapshot, expected " + expected + " bytes but found " + size);
+            
+            String[] strings = readStrings(map, stringCount, offsetsPos, bytesPos);
+            Semester[] semesters = Semester.values();
+            Student.StudentStatus[] statuses = Student.StudentStatus.values();
+            Grade[] grades = Grade.values();
+            
+            Course[] courses = new Course[courseCount];
+            for (int i = 0; i < courseCount; i++) {
+                int pos = coursesPos + i * COURSE_RECORD_BYTES;
+                Course course = new Course.Builder(new CourseCode(strings[map.getInt(pos)]), strings[map.getInt(pos + 4)])
+                        .instructor(strings[map.getInt(pos + 8)])
+                        .department(strings[map.getInt(pos + 12)])
+                        .credits(map.getInt(pos + 16))
+                        .semester(semesters[map.get(pos + 20)])
+                        .capacity(map.getChar(pos + 22))
+                        .build();
+                course.setActive(map.get(pos + 21) != 0);
+                courses[i] = course;
+            }
+            requireAllAdded(courseService.addCourses(Arrays.asList(courses)));
+            
+            Student[] students = new Student[studentCount];
+            for (int i = 0; i < studentCount; i++) {
+                int pos = studentsPos + i * STUDENT_RECORD_BYTES;
+                Name name = new Name(strings[map.getInt(pos + 8)], strings[map.getInt(pos + 12)]);
+                Student student = new Student(strings[map.getInt(pos)], name, strings[map.getInt(pos + 16)], strings[map.getInt(pos + 4)]);
+                byte status = map.get(pos + 20);
+                student.setStatus(status == NONE ? null : statuses[status]);
+                student.setActive(map.get(pos + 21) != 0);
+                students[i] = student;
+            }
+            
+            // Enrollments go onto the students before they are registered, which claims their seats.
+            // They are restored as saved, without the credit cap, which may have been lowered since;
+            // journal replay restores enrollments the same way (StudentService.restoreEnrollment).
+            for (int i = 0; i < enrollmentCount; i++) {
+                int pos = enrollmentsPos + i * ENROLLMENT_RECORD_BYTES;
+                Student student = students[map.getInt(pos)];
+                Course course = courses[map.getInt(pos + 4)];
+                try {
+                    student.enrollInCourse(course);
+                } catch (DuplicateEnrollmentException e) {
+                    throw new IOException("Corrupt snapshot: " + e.getMessage(), e);
+                }
+                byte grade = map.get(pos + 8);
+                if (grade != NONE) {
+                    student.assignGrade(course, grades[grade]);
+                }
+            }
+            requireAllAdded(studentService.addStudents(Arrays.asList(students)));
+            
+            // After the enrollments, so every seat taken is already accounted for
+            for (int i = 0; i < waitlistCount; i++) {
+                int pos = waitlistsPos + i * WAITLIST_RECORD_BYTES;
+                courses[map.getInt(pos + 4)].joinWaitlist(students[map.getInt(pos)].getId());
+            }
+            
+            return new SnapshotInfo(checkpointId, courseCount, studentCount, enrollmentCount);
+        }
+    }
+    
+    private static void requireAllAdded(BatchResult result) throws IOException {
+        if (result.getFailed() > 0) {
+            throw new IOException("Corrupt snapshot: " + result.getFailures().get(0));
+        }
+    }
+    
+    private static String[] readStrings(ByteBuffer map, int count, int offsetsPos, int bytesPos) {
+        String[] strings = new String[count];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int start = map.getInt(offsetsPos + 4 * i);
+            int length = map.getInt(offsetsPos + 4 * (i + 1)) - start;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            map.get(bytesPos + start, scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+    
+    // Checkpoint id in the snapshot header, or 0 if there is no readable snapshot
+    private static long peekCheckpointId(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC ? header.getLong(8) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    private static void intern(Map<String, Integer> dictionary, List<String> strings, String value) {
+        if (!dictionary.containsKey(value)) {
+            dictionary.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+    
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+}
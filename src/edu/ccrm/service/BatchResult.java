@@ -0,0 +1,54 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-record outcome of a batch operation
+ * Failures are identified by their index in the submitted batch, in ascending order
+ */
+public class BatchResult {
+    private int succeeded;
+    private final List<Failure> failures;
+    
+    // Static nested class for one failed record
+    public static class Failure {
+        private final int index;
+        private final String reason;
+        
+        public Failure(int index, String reason) {
+            this.index = index;
+            this.reason = reason;
+        }
+        
+        public int getIndex() { return index; }
+        public String getReason() { return reason; }
+        
+        @Override
+        public String toString() {
+            return "#" + index + ": " + reason;
+        }
+    }
+    
+    public BatchResult() {
+        this.failures = new ArrayList<>();
+    }
+    
+    public void succeed() {
+        succeeded++;
+    }
+    
+    public void fail(int index, String reason) {
+        failures.add(new Failure(index, reason));
+    }
+    
+    public int getSucceeded() { return succeeded; }
+    public int getFailed() { return failures.size(); }
+    public List<Failure> getFailures() { return Collections.unmodifiableList(failures); }
+    
+    @Override
+    public String toString() {
+        return String.format("BatchResult{succeeded=%d, failed=%d}", succeeded, failures.size());
+    }
+}
@@ -0,0 +1,116 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+import java.util.Objects;
+
+/**
+ * Receives every committed change from the services, e.g. to write it to a journal
+ * Each call is made right after the change, under the lock that orders changes to that student (or
+ * the catalogue's write lock for courses), so calls for one student arrive in the order the changes
+ * were made. Implementations must be quick and must never call back into a service.
+ *
+ * Calls describe outcomes, not requests: a seat freed by unenrolled() goes to nobody by itself, and
+ * each waitlisted student who takes a seat gets a promoted() call of their own. Replaying the calls
+ * in order rebuilds the same state without re-running any seat or credit check.
+ */
+public interface ChangeLog {
+    ChangeLog NONE = new ChangeLog() {};
+    
+    // Enrollments and grades the student arrives with are part of the change
+    default void studentAdded(Student student) {}
+    // previous is the instance replaced, or the same instance if it was edited in place
+    default void studentUpdated(Student previous, Student student) {}
+    default void studentDeactivated(String studentId) {}
+    default void enrolled(String studentId, Course course) {}
+    default void unenrolled(String studentId, Course course) {}
+    default void graded(String studentId, Course course, Grade grade) {}
+    default void waitlistJoined(String studentId, Course course) {}
+    // Left on their own, or skipped by a promotion they could no longer take
+    default void waitlistLeft(String studentId, Course course) {}
+    default void promoted(String studentId, Course course) {}
+    
+    default void courseAdded(Course course) {}
+    default void courseUpdated(Course course) {}
+    default void courseDeactivated(String courseCode) {}
+    
+    // Report each change to this log, then to next
+    default ChangeLog andThen(ChangeLog next) {
+        Objects.requireNonNull(next, "Change log cannot be null");
+        ChangeLog first = this;
+        return new ChangeLog() {
+            @Override
+            public void studentAdded(Student student) {
+                first.studentAdded(student);
+                next.studentAdded(student);
+            }
+            
+            @Override
+            public void studentUpdated(Student previous, Student student) {
+                first.studentUpdated(previous, student);
+                next.studentUpdated(previous, student);
+            }
+            
+            @Override
+            public void studentDeactivated(String studentId) {
+                first.studentDeactivated(studentId);
+                next.studentDeactivated(studentId);
+            }
+            
+            @Override
+            public void enrolled(String studentId, Course course) {
+                first.enrolled(studentId, course);
+                next.enrolled(studentId, course);
+            }
+            
+            @Override
+            public void unenrolled(String studentId, Course course) {
+                first.unenrolled(studentId, course);
+                next.unenrolled(studentId, course);
+            }
+            
+            @Override
+            public void graded(String studentId, Course course, Grade grade) {
+                first.graded(studentId, course, grade);
+                next.graded(studentId, course, grade);
+            }
+            
+            @Override
+            public void waitlistJoined(String studentId, Course course) {
+                first.waitlistJoined(studentId, course);
+                next.waitlistJoined(studentId, course);
+            }
+            
+            @Override
+            public void waitlistLeft(String studentId, Course course) {
+                first.waitlistLeft(studentId, course);
+                next.waitlistLeft(studentId, course);
+            }
+            
+            @Override
+            public void promoted(String studentId, Course course) {
+                first.promoted(studentId, course);
+                next.promoted(studentId, course);
+            }
+            
+            @Override
+            public void courseAdded(Course course) {
+                first.courseAdded(course);
+                next.courseAdded(course);
+            }
+            
+            @Override
+            public void courseUpdated(Course course) {
+                first.courseUpdated(course);
+                next.courseUpdated(course);
+            }
+            
+            @Override
+            public void courseDeactivated(String courseCode) {
+                first.courseDeactivated(courseCode);
+                next.courseDeactivated(courseCode);
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.util.SecondaryIndex;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe CourseService to pair with ConcurrentStudentService
+ * The catalogue changes rarely and is read constantly, so the secondary and search indexes sit
+ * behind a read-write lock: any number of readers, one writer. Lookups by code and roster
+ * queries go straight to concurrent maps and take no lock at all.
+ */
+public class ConcurrentCourseService implements CourseService {
+    private final Map<String, Course> courses;
+    private final CourseSearchEngine searchEngine;
+    // Secondary indexes; instructor and department keys are lower-cased
+    private final SecondaryIndex<String, Course> byInstructor;
+    private final SecondaryIndex<String, Course> byDepartment;
+    private final SecondaryIndex<Semester, Course> bySemester;
+    private final ReentrantReadWriteLock indexLock;
+    private final EnrollmentIndex enrollmentIndex;
+    private final VersionedRegistry registry;
+    private volatile ChangeLog changeLog;
+    
+    public ConcurrentCourseService() {
+        this(EnrollmentIndex.concurrent());
+    }
+    
+    // Share the enrollment index with ConcurrentStudentService for roster queries
+    public ConcurrentCourseService(EnrollmentIndex enrollmentIndex) {
+        Objects.requireNonNull(enrollmentIndex, "Enrollment index cannot be null");
+        if (!enrollmentIndex.isConcurrent()) {
+            throw new IllegalArgumentException("Enrollment index must be created with EnrollmentIndex.concurrent()");
+        }
+        this.enrollmentIndex = enrollmentIndex;
+        this.registry = enrollmentIndex.getRegistry();
+        this.courses = new ConcurrentHashMap<>();
+        this.searchEngine = new CourseSearchEngine();
+        this.byInstructor = new SecondaryIndex<>();
+        this.byDepartment = new SecondaryIndex<>();
+        this.bySemester = new SecondaryIndex<>(new EnumMap<>(Semester.class));
+        this.indexLock = new ReentrantReadWriteLock();
+        this.changeLog = ChangeLog.NONE;
+    }
+    
+    @Override
+    public void addCourse(Course course) {
+        Objects.requireNonNull(course, "Course cannot be null");
+        
+        String courseCode = course.getCode().getCode();
+        indexLock.writeLock().lock();
+        try {
+            if (courses.putIfAbsent(courseCode, course) != null) {
+                throw new IllegalArgumentException("Course with code " + courseCode + " already exists");
+            }
+            indexCourse(course);
+            changeLog.courseAdded(course);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+    
+    // One write lock for the whole batch instead of one per course
+    @Override
+    public BatchResult addCourses(Collection<Course> batch) {
+        BatchResult result = new BatchResult();
+        indexLock.writeLock().lock();
+        try {
+            int index = 0;
+            for (Course course : batch) {
+                if (course == null) {
+                    result.fail(index, "Course cannot be null");
+                } else if (courses.putIfAbsent(course.getCode().getCode(), course) != null) {
+                    result.fail(index, "Course with code " + course.getCode().getCode() + " already exists");
+                } else {
+                    indexCourse(course);
+                    changeLog.courseAdded(course);
+                    result.succeed();
+                }
+                index++;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return result;
+    }
+    
+    @Override
+    public List<Course> getAllCourses() {
+        return new ArrayList<>(courses.values());
+    }
+    
+    @Override
+    public void updateCourse(Course course) {
+        Objects.requireNonNull(course, "Course cannot be null");
+        
+        String courseCode = course.getCode().getCode();
+        indexLock.writeLock().lock();
+        try {
+            Course existing = courses.get(courseCode);
+            if (existing == null) {
+                throw new IllegalArgumentException("Course with code " + courseCode + " not found");
+            }
+            course.adoptSeating(existing); // Seats and waitlist belong to the course, not the instance
+            courses.put(courseCode, course);
+            indexCourse(course);
+            changeLog.courseUpdated(course);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        // Enrolled students' credit totals follow the course's credits and semester
+        enrollmentIndex.courseUpdated(course);
+    }
+    
+    @Override
+    public void deactivateCourse(String courseCode) {
+        Course course = courseCode == null ? null : courses.get(courseCode);
+        if (course == null) {
+            return;
+        }
+        // Under the write lock so an update cannot slip between the change and its publication
+        indexLock.writeLock().lock();
+        try {
+            course.setActive(false);
+            registry.publish(course);
+            changeLog.courseDeactivated(courseCode);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public Optional<Course> findById(String courseCode) {
+        return courseCode == null ? Optional.empty() : Optional.ofNullable(courses.get(courseCode));
+    }
+    
+    // Ranked, typo-tolerant search; all matches, best first
+    @Override
+    public List<Course> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Course> search(String query, int limit) {
+        indexLock.readLock().lock();
+        try {
+            return searchEngine.search(query, limit);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Course> findByInstructor(String instructor) {
+        return instructor == null ? new ArrayList<>() : lookup(byInstructor, instructor.toLowerCase());
+    }
+    
+    @Override
+    public List<Course> findByDepartment(String department) {
+        return department == null ? new ArrayList<>() : lookup(byDepartment, department.toLowerCase());
+    }
+    
+    @Override
+    public List<Course> findBySemester(Semester semester) {
+        return lookup(bySemester, semester);
+    }
+    
+    private <K> List<Course> lookup(SecondaryIndex<K, Course> index, K key) {
+        indexLock.readLock().lock();
+        try {
+            return index.get(key);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Student> getRoster(String courseCode) {
+        Course course = courseCode == null ? null : courses.get(courseCode);
+        return course == null ? new ArrayList<>() : enrollmentIndex.getRoster(course);
+    }
+    
+    @Override
+    public int getEnrollmentCount(String courseCode) {
+        Course course = courseCode == null ? null : courses.get(courseCode);
+        return course == null ? 0 : enrollmentIndex.getEnrollmentCount(course);
+    }
+    
+    @Override
+    public Map<Grade, Long> getGradeDistribution(String courseCode) {
+        Course course = courseCode == null ? null : courses.get(courseCode);
+        return course == null ? new EnumMap<>(Grade.class) : enrollmentIndex.getGradeDistribution(course);
+    }
+    
+    // Lock-free: one volatile read of the latest version
+    @Override
+    public RegistrySnapshot snapshot() {
+        return registry.snapshot();
+    }
+    
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = Objects.requireNonNull(changeLog, "Change log cannot be null");
+    }
+    
+    // Re-key every index from the course's current state and publish it; caller holds the write lock
+    private void indexCourse(Course course) {
+        searchEngine.index(course);
+        byInstructor.put(course.getInstructor().toLowerCase(), course);
+        byDepartment.put(course.getDepartment().toLowerCase(), course);
+        bySemester.put(course.getSemester(), course);
+        registry.publish(course);
+    }
+}
@@ -0,0 +1,507 @@
+package edu.ccrm.service;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.util.NGramIndex;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe StudentService for many concurrent clerks and jobs
+ * Every change to a student runs under one of `stripes` locks chosen by student id, so work on
+ * different students (enrollments, grades, updates) almost never contends. Lookups take no lock.
+ *
+ * The id map is authoritative: a regNo is claimed with putIfAbsent before the student is
+ * published by id, and findByRegNo only answers with the student the id map currently holds,
+ * so the two maps can never be seen disagreeing.
+ *
+ * Seats are claimed lock-free on the Course (see Course.tryClaimSeat). Waitlisted students are
+ * promoted only after the releasing student's lock is dropped, so no thread holds two stripe
+ * locks, except addStudents, which takes all of them in index order; lock order cannot deadlock.
+ *
+ * Student objects are shared, not copied; reading their course and grade collections while the
+ * same student is being changed on another thread is not safe. Use readStudent for that, or
+ * snapshot() for reports over many students: every change publishes an immutable record of the
+ * student, taken under its lock, to the shared VersionedRegistry.
+ *
+ * A ChangeLog, if set, hears of each change under the same lock, so a journal fed from it records
+ * the changes to each student in the order they happened while different students never wait for
+ * one another. Promotions off a waitlist are reported one by one.
+ */
+public class ConcurrentStudentService implements StudentService {
+    private volatile Map<String, Student> students; // Replaced only when empty, to presize for a bulk load
+    private volatile Map<String, Student> studentsByRegNo;
+    private final ReentrantLock[] stripes;
+    private final NGramIndex<Student> searchIndex;
+    private final ReentrantReadWriteLock searchLock;
+    private final EnrollmentIndex enrollmentIndex;
+    private final VersionedRegistry registry;
+    private final int maxSemesterCredits;
+    private volatile ChangeLog changeLog;
+    
+    public ConcurrentStudentService() {
+        this(EnrollmentIndex.concurrent());
+    }
+    
+    // Share the enrollment index with ConcurrentCourseService for roster queries
+    public ConcurrentStudentService(EnrollmentIndex enrollmentIndex) {
+        this(enrollmentIndex, AppConfig.getInstance().getServiceLockStripes());
+    }
+    
+    public ConcurrentStudentService(EnrollmentIndex enrollmentIndex, int stripeCount) {
+        Objects.requireNonNull(enrollmentIndex, "Enrollment index cannot be null");
+        if (!enrollmentIndex.isConcurrent()) {
+            throw new IllegalArgumentException("Enrollment index must be created with EnrollmentIndex.concurrent()");
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.students = new ConcurrentHashMap<>();
+        this.studentsByRegNo = new ConcurrentHashMap<>();
+        // Rounded up to a power of two, so a stripe is picked with a mask
+        this.stripes = new ReentrantLock[stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.searchIndex = new NGramIndex<>();
+        this.searchLock = new ReentrantReadWriteLock();
+        this.enrollmentIndex = enrollmentIndex;
+        this.registry = enrollmentIndex.getRegistry();
+        this.maxSemesterCredits = AppConfig.getInstance().getMaxCreditsPerSemester();
+        this.changeLog = ChangeLog.NONE;
+        enrollmentIndex.onCourseUpdated(this::refreshCourse);
+    }
+    
+    private ReentrantLock stripeFor(String studentId) {
+        Objects.requireNonNull(studentId, "Student ID cannot be null");
+        int hash = studentId.hashCode();
+        hash ^= hash >>> 16; // Spread the high bits, as HashMap does
+        return stripes[hash & (stripes.length - 1)];
+    }
+    
+    @Override
+    public void addStudent(Student student) {
+        Objects.requireNonNull(student, "Student cannot be null");
+        String error = tryRegister(student);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+    
+    // Bulk add under every stripe lock, so the batch is registered as a whole: the maps are sized
+    // once when empty, the search index takes the batch under one write lock and builds its
+    // postings on the next search, and the registry publishes one version for the whole batch
+    @Override
+    public BatchResult addStudents(Collection<Student> batch) {
+        BatchResult result = new BatchResult();
+        List<Student> added = new ArrayList<>(batch.size());
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            if (students.isEmpty()) {
+                students = new ConcurrentHashMap<>(batch.size());
+                studentsByRegNo = new ConcurrentHashMap<>(batch.size());
+            }
+            int index = 0;
+            for (Student student : batch) {
+                String error = student == null ? "Student cannot be null" : register(student);
+                if (error == null) {
+                    added.add(student);
+                    result.succeed();
+                } else {
+                    result.fail(index, error);
+                }
+                index++;
+            }
+            
+            searchLock.writeLock().lock();
+            try {
+                searchIndex.ensureCapacity(searchIndex.size() + added.size());
+                for (Student student : added) {
+                    searchIndex.addDeferred(student, student.getName().getFullName(), student.getRegNo(), student.getId());
+                }
+            } finally {
+                searchLock.writeLock().unlock();
+            }
+            registry.publishAll(added);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+        return result;
+    }
+    
+    // Returns why the student was rejected, or null once it is registered
+    private String tryRegister(Student student) {
+        ReentrantLock lock = stripeFor(student.getId());
+        lock.lock();
+        try {
+            String error = register(student);
+            if (error == null) {
+                indexForSearch(student);
+                registry.publish(student);
+            }
+            return error;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Everything but search and the registry, which the callers batch differently; under the
+    // student's stripe lock
+    private String register(Student student) {
+        if (students.containsKey(student.getId())) {
+            return "Student with ID " + student.getId() + " already exists";
+        }
+        if (studentsByRegNo.putIfAbsent(student.getRegNo(), student) != null) {
+            return "Student with registration number " + student.getRegNo() + " already exists";
+        }
+        try {
+            SeatAllocation.claimChanged(null, student);
+        } catch (CourseFullException e) {
+            studentsByRegNo.remove(student.getRegNo(), student);
+            return e.getMessage();
+        }
+        students.put(student.getId(), student);
+        enrollmentIndex.reindexStudent(student, student);
+        changeLog.studentAdded(student);
+        return null;
+    }
+    
+    @Override
+    public List<Student> getAllStudents() {
+        return new ArrayList<>(students.values());
+    }
+    
+    @Override
+    public void updateStudent(Student student) {
+        Objects.requireNonNull(student, "Student cannot be null");
+        
+        List<Course> released;
+        ReentrantLock lock = stripeFor(student.getId());
+        lock.lock();
+        try {
+            Student existing = students.get(student.getId());
+            if (existing == null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " not found");
+            }
+            
+            String previousRegNo = indexedRegNo(existing);
+            String regNo = student.getRegNo();
+            if (regNo.equals(previousRegNo)) {
+                studentsByRegNo.put(regNo, student);
+            } else {
+                // Claim the new regNo before giving up the old one; another student may hold it
+                if (studentsByRegNo.putIfAbsent(regNo, student) != null) {
+                    throw new IllegalArgumentException("Student with registration number " + regNo + " already exists");
+                }
+            }
+            try {
+                released = SeatAllocation.claimChanged(existing, student);
+            } catch (CourseFullException e) {
+                if (regNo.equals(previousRegNo)) {
+                    studentsByRegNo.put(regNo, existing);
+                } else {
+                    studentsByRegNo.remove(regNo, student);
+                }
+                throw e;
+            }
+            students.put(student.getId(), student);
+            if (!regNo.equals(previousRegNo)) {
+                studentsByRegNo.remove(previousRegNo, existing);
+            }
+            indexForSearch(student);
+            enrollmentIndex.reindexStudent(existing, student);
+            registry.publish(student);
+            changeLog.studentUpdated(existing, student);
+        } finally {
+            lock.unlock();
+        }
+        for (Course course : released) {
+            freeSeat(course);
+        }
+    }
+    
+    @Override
+    public void deactivateStudent(String studentId) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = students.get(studentId);
+            if (student != null) {
+                // Inactive students stay searchable, so the search index is left as is
+                student.setActive(false);
+                student.setStatus(Student.StudentStatus.INACTIVE);
+                registry.publish(student);
+                changeLog.studentDeactivated(studentId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Optional<Student> findById(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(students.get(id));
+    }
+    
+    @Override
+    public Optional<Student> findByRegNo(String regNo) {
+        Student candidate = regNo == null ? null : studentsByRegNo.get(regNo);
+        if (candidate == null) {
+            return Optional.empty();
+        }
+        // Mid-update the regNo map may briefly lead to an older instance; answer from the id map
+        Student current = students.get(candidate.getId());
+        return current != null && current.getRegNo().equals(regNo) ? Optional.of(current) : Optional.empty();
+    }
+    
+    @Override
+    public <T> Optional<T> readStudent(String studentId, Function<? super Student, ? extends T> reader) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = students.get(studentId);
+            return student == null ? Optional.empty() : Optional.ofNullable(reader.apply(student));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Substring search over name, regNo and id through the n-gram index
+    @Override
+    public List<Student> search(String query) {
+        searchLock.readLock().lock();
+        try {
+            if (!searchIndex.hasDeferred()) {
+                return searchIndex.search(query);
+            }
+        } finally {
+            searchLock.readLock().unlock();
+        }
+        // The first search after a bulk add builds its postings, which needs the write lock
+        searchLock.writeLock().lock();
+        try {
+            return searchIndex.search(query);
+        } finally {
+            searchLock.writeLock().unlock();
+        }
+    }
+    
+    // Re-count everyone enrolled in the course under its current credits and semester, and point
+    // them at the current instance; runs for every course update (EnrollmentIndex.courseUpdated).
+    // Derived state only, so nothing goes to the change log: replaying the update redoes it.
+    private void refreshCourse(Course course) {
+        for (Student enrolled : enrollmentIndex.getRoster(course)) {
+            ReentrantLock lock = stripeFor(enrolled.getId());
+            lock.lock();
+            try {
+                Student student = students.get(enrolled.getId());
+                if (student != null && student.refreshCourse(course)) {
+                    enrollmentIndex.reindexStudent(student, student);
+                    registry.publish(student);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    // The regNo the student is indexed under, i.e. the one last published: a caller that edited the
+    // stored instance in place (journal replay does) has already changed the instance's own regNo
+    private String indexedRegNo(Student existing) {
+        return registry.snapshot().getStudent(existing.getId())
+                .map(RegistrySnapshot.StudentRecord::getRegNo)
+                .orElse(existing.getRegNo());
+    }
+    
+    private void indexForSearch(Student student) {
+        searchLock.writeLock().lock();
+        try {
+            searchIndex.add(student, student.getName().getFullName(), student.getRegNo(), student.getId());
+        } finally {
+            searchLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void enrollStudentInCourse(String studentId, Course course) throws DuplicateEnrollmentException {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = getStudent(studentId);
+            if (student.isEnrolledIn(course)) {
+                throw new DuplicateEnrollmentException(studentId, course.getCode().getCode());
+            }
+            // The running per-semester total makes this O(1); checked before a seat is taken
+            student.checkCreditLimit(course, maxSemesterCredits);
+            SeatAllocation.claim(course);
+            try {
+                student.enrollInCourse(course, maxSemesterCredits);
+            } catch (DuplicateEnrollmentException | RuntimeException e) {
+                course.releaseSeat();
+                throw e;
+            }
+            enrollmentIndex.enroll(student, course);
+            registry.publish(student);
+            changeLog.enrolled(studentId, course);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void restoreEnrollment(String studentId, Course course) throws DuplicateEnrollmentException {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = getStudent(studentId);
+            student.enrollInCourse(course);
+            course.takeSeat();
+            enrollmentIndex.enroll(student, course);
+            registry.publish(student);
+            changeLog.enrolled(studentId, course);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void unenrollStudentFromCourse(String studentId, Course course) {
+        unenroll(studentId, course);
+        freeSeat(course);
+    }
+    
+    @Override
+    public void restoreUnenrollment(String studentId, Course course) {
+        unenroll(studentId, course);
+        course.releaseSeat();
+    }
+    
+    private void unenroll(String studentId, Course course) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = getStudent(studentId);
+            student.unenrollFromCourse(course);
+            enrollmentIndex.unenroll(student, course);
+            registry.publish(student);
+            changeLog.unenrolled(studentId, course);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean joinWaitlist(String studentId, Course course) throws DuplicateEnrollmentException {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = getStudent(studentId);
+            if (student.isEnrolledIn(course)) {
+                throw new DuplicateEnrollmentException(studentId, course.getCode().getCode());
+            }
+            student.checkCreditLimit(course, maxSemesterCredits);
+            course.joinWaitlist(studentId, () -> changeLog.waitlistJoined(studentId, course));
+        } finally {
+            lock.unlock();
+        }
+        // A seat may have been freed between the failed claim and joining; whoever comes last fills it
+        fillWaitlist(course);
+        // Promoted by this fill or a concurrent one; read under the lock promotion holds
+        lock.lock();
+        try {
+            return getStudent(studentId).isEnrolledIn(course);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void leaveWaitlist(String studentId, Course course) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            if (!course.leaveWaitlist(studentId)) {
+                throw new IllegalArgumentException("Student not on the waitlist for course: " + course.getCode());
+            }
+            changeLog.waitlistLeft(studentId, course);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Call without holding a stripe lock: promotion takes the promoted student's lock
+    @Override
+    public List<String> fillWaitlist(Course course) {
+        return course.fillFromWaitlist(id -> promote(id, course));
+    }
+    
+    private void freeSeat(Course course) {
+        course.releaseSeat();
+        fillWaitlist(course);
+    }
+    
+    // Enroll a waitlisted student into the seat claimed for them; false if they can no longer take it
+    private boolean promote(String studentId, Course course) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = students.get(studentId);
+            if (!course.removeFromWaitlist(studentId) || student == null) {
+                return false;
+            }
+            try {
+                student.enrollInCourse(course, maxSemesterCredits);
+            } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                changeLog.waitlistLeft(studentId, course);
+                return false; // The seat goes to the next student in line
+            }
+            enrollmentIndex.enroll(student, course);
+            registry.publish(student);
+            changeLog.promoted(studentId, course);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void assignGrade(String studentId, Course course, Grade grade) {
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            Student student = getStudent(studentId);
+            student.assignGrade(course, grade);
+            enrollmentIndex.recordGrade(student, course, grade);
+            registry.publish(student);
+            changeLog.graded(studentId, course, grade);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Lock-free: one volatile read of the latest version
+    @Override
+    public RegistrySnapshot snapshot() {
+        return registry.snapshot();
+    }
+    
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = Objects.requireNonNull(changeLog, "Change log cannot be null");
+    }
+    
+    private Student getStudent(String studentId) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+        return student;
+    }
+}
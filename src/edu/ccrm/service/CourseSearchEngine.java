@@ -0,0 +1,219 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.util.BKTree;
+import edu.ccrm.util.NGramIndex;
+import java.util.*;
+
+/**
+ * Ranked, typo-tolerant search over course title, code, instructor and department
+ * Keeps a case-folded token index plus a BK-tree over the token vocabulary
+ * The BK-tree cannot delete, so words left behind by removed or re-indexed courses stay in it
+ * until they outnumber the live ones; then it is rebuilt from the live vocabulary.
+ */
+public class CourseSearchEngine {
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.75;
+    private static final double ONE_EDIT_MATCH = 0.5;
+    private static final double TWO_EDIT_MATCH = 0.25;
+    private static final double SUBSTRING_BONUS = 0.5;
+    private static final int MIN_REBUILD_STALE_TOKENS = 1024;
+    
+    // Field weights: a hit on the code outranks a hit on the department
+    public enum Field {
+        CODE(4.0), TITLE(3.0), INSTRUCTOR(2.0), DEPARTMENT(1.0);
+        
+        private final double weight;
+        
+        Field(double weight) { this.weight = weight; }
+        
+        public double getWeight() { return weight; }
+    }
+    
+    private final NavigableMap<String, Map<Course, Double>> postings;
+    private final Map<Course, Set<String>> indexedTokens;
+    private BKTree vocabulary;
+    private final NGramIndex<Course> substringIndex;
+    
+    public CourseSearchEngine() {
+        this.postings = new TreeMap<>();
+        this.indexedTokens = new HashMap<>();
+        this.vocabulary = new BKTree();
+        this.substringIndex = new NGramIndex<>();
+    }
+    
+    // Index (or re-index) a course from its current field values
+    public void index(Course course) {
+        remove(course);
+        
+        Map<String, Double> tokenWeights = new HashMap<>();
+        addTokens(tokenWeights, course.getCode().getCode(), Field.CODE);
+        addTokens(tokenWeights, course.getTitle(), Field.TITLE);
+        addTokens(tokenWeights, course.getInstructor(), Field.INSTRUCTOR);
+        addTokens(tokenWeights, course.getDepartment(), Field.DEPARTMENT);
+        
+        tokenWeights.forEach((token, weight) -> {
+            postings.computeIfAbsent(token, t -> new HashMap<>()).put(course, weight);
+            vocabulary.add(token);
+        });
+        indexedTokens.put(course, tokenWeights.keySet());
+        substringIndex.add(course, course.getTitle(), course.getCode().getCode(),
+                course.getInstructor(), course.getDepartment());
+    }
+    
+    // Tokens stay in the BK-tree after removal until pruneVocabulary; lookups skip words with no postings
+    public void remove(Course course) {
+        Set<String> tokens = indexedTokens.remove(course);
+        if (tokens == null) {
+            return;
+        }
+        
+        for (String token : tokens) {
+            Map<Course, Double> courses = postings.get(token);
+            if (courses != null) {
+                courses.remove(course);
+                if (courses.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+        substringIndex.remove(course);
+        pruneVocabulary();
+    }
+    
+    // Every word in the BK-tree that no course uses any more is stale; rebuilding once they outnumber
+    // the live words keeps the tree within twice the vocabulary at O(1) amortized cost per removal
+    private void pruneVocabulary() {
+        int stale = vocabulary.size() - postings.size();
+        if (stale >= MIN_REBUILD_STALE_TOKENS && stale > postings.size()) {
+            BKTree rebuilt = new BKTree();
+            for (String token : postings.keySet()) {
+                rebuilt.add(token);
+            }
+            vocabulary = rebuilt;
+        }
+    }
+    
+    // Best matches first. An unlimited search includes every plain substring match, as the old
+    // contains scan did; a page-limited one only looks for them when the tokens left it short
+    public List<Course> search(String query, int limit) {
+        Objects.requireNonNull(query, "Query cannot be null");
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        
+        Map<Course, Double> scores = new HashMap<>();
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.size() == 1) {
+            matchToken(queryTokens.get(0), scores); // Its best scores are the totals; no second map
+        } else {
+            for (String queryToken : queryTokens) {
+                Map<Course, Double> best = new HashMap<>();
+                matchToken(queryToken, best);
+                best.forEach((course, score) -> scores.merge(course, score, Double::sum));
+            }
+        }
+        // Infix matches ("gram" in "programming") only matter to a page the tokens did not fill
+        if (limit == Integer.MAX_VALUE || scores.size() < limit) {
+            for (Course course : substringIndex.search(query)) {
+                scores.merge(course, SUBSTRING_BONUS, Double::sum);
+            }
+        }
+        
+        return topResults(scores, limit);
+    }
+    
+    public int size() { return indexedTokens.size(); }
+    
+    private void matchToken(String queryToken, Map<Course, Double> best) {
+        collect(postings.get(queryToken), EXACT_MATCH, best);
+        
+        if (queryToken.length() >= 2) {
+            for (Map.Entry<String, Map<Course, Double>> entry
+                    : postings.subMap(queryToken, false, queryToken + Character.MAX_VALUE, false).entrySet()) {
+                collect(entry.getValue(), PREFIX_MATCH, best);
+            }
+        }
+        
+        int maxEdits = maxEditsFor(queryToken);
+        if (maxEdits > 0) {
+            vocabulary.search(queryToken, maxEdits, (token, distance) -> {
+                if (distance > 0) {
+                    collect(postings.get(token), distance == 1 ? ONE_EDIT_MATCH : TWO_EDIT_MATCH, best);
+                }
+            });
+        }
+    }
+    
+    // Keep the best score per course for one query token
+    private static void collect(Map<Course, Double> courses, double matchQuality, Map<Course, Double> best) {
+        if (courses == null) {
+            return;
+        }
+        courses.forEach((course, weight) -> best.merge(course, weight * matchQuality, Math::max));
+    }
+    
+    // Short tokens must match exactly, longer ones tolerate one or two typos
+    private static int maxEditsFor(String token) {
+        if (token.length() <= 3) return 0;
+        if (token.length() <= 7) return 1;
+        return 2;
+    }
+    
+    private static List<Course> topResults(Map<Course, Double> scores, int limit) {
+        Comparator<Map.Entry<Course, Double>> byRelevance = Map.Entry.<Course, Double>comparingByValue()
+                .thenComparing(entry -> entry.getKey().getCode().getCode(), Comparator.reverseOrder());
+        
+        // Everything is returned: one sort beats pushing every entry through the heap
+        if (scores.size() <= limit) {
+            List<Map.Entry<Course, Double>> entries = new ArrayList<>(scores.entrySet());
+            entries.sort(byRelevance.reversed());
+            List<Course> results = new ArrayList<>(entries.size());
+            for (Map.Entry<Course, Double> entry : entries) {
+                results.add(entry.getKey());
+            }
+            return results;
+        }
+        
+        // Min-heap of the best `limit` entries seen so far
+        PriorityQueue<Map.Entry<Course, Double>> heap = new PriorityQueue<>(byRelevance);
+        for (Map.Entry<Course, Double> entry : scores.entrySet()) {
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (byRelevance.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        
+        List<Course> results = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            results.add(heap.poll().getKey());
+        }
+        Collections.reverse(results);
+        return results;
+    }
+    
+    private static void addTokens(Map<String, Double> tokenWeights, String text, Field field) {
+        for (String token : tokenize(text)) {
+            tokenWeights.merge(token, field.getWeight(), Math::max);
+        }
+    }
+    
+    // Lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -1,8 +1,12 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
 import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -10,10 +14,19 @@ import java.util.Optional;
  */
 public interface CourseService extends Searchable<Course> {
     void addCourse(Course course);
+    BatchResult addCourses(Collection<Course> courses);
     List<Course> getAllCourses();
     void updateCourse(Course course);
     void deactivateCourse(String courseCode);
     List<Course> findByInstructor(String instructor);
     List<Course> findByDepartment(String department);
     List<Course> findBySemester(Semester semester);
+    List<Course> search(String query, int limit);
+    List<Student> getRoster(String courseCode);
+    int getEnrollmentCount(String courseCode);
+    Map<Grade, Long> getGradeDistribution(String courseCode);
+    // Same registry version source as StudentService.snapshot()
+    RegistrySnapshot snapshot();
+    // Report every change from now on to changeLog (see ChangeLog)
+    void setChangeLog(ChangeLog changeLog);
 }
\ No newline at end of file
@@ -1,18 +1,38 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.*;
+import edu.ccrm.util.SecondaryIndex;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of CourseService demonstrating polymorphism
  * Uses streams and functional programming concepts
  */
 public class CourseServiceImpl implements CourseService {
-    private final Map<String, Course> courses;
+    private Map<String, Course> courses;
+    private final CourseSearchEngine searchEngine;
+    // Secondary indexes; instructor and department keys are lower-cased
+    private final SecondaryIndex<String, Course> byInstructor;
+    private final SecondaryIndex<String, Course> byDepartment;
+    private final SecondaryIndex<Semester, Course> bySemester;
+    private final EnrollmentIndex enrollmentIndex;
+    private final VersionedRegistry registry;
+    private ChangeLog changeLog;
     
     public CourseServiceImpl() {
+        this(new EnrollmentIndex());
+    }
+    
+    // Share the enrollment index with StudentServiceImpl for roster queries
+    public CourseServiceImpl(EnrollmentIndex enrollmentIndex) {
+        this.enrollmentIndex = Objects.requireNonNull(enrollmentIndex, "Enrollment index cannot be null");
+        this.registry = enrollmentIndex.getRegistry();
         this.courses = new HashMap<>();
+        this.searchEngine = new CourseSearchEngine();
+        this.byInstructor = new SecondaryIndex<>();
+        this.byDepartment = new SecondaryIndex<>();
+        this.bySemester = new SecondaryIndex<>(new EnumMap<>(Semester.class));
+        this.changeLog = ChangeLog.NONE;
     }
     
     @Override
@@ -25,6 +45,34 @@ public class CourseServiceImpl implements CourseService {
         }
         
         courses.put(courseCode, course);
+        indexCourse(course);
+        changeLog.courseAdded(course);
+    }
+    
+    // Bulk add with per-record outcomes; duplicates are caught against existing and earlier batch records in one pass
+    @Override
+    public BatchResult addCourses(Collection<Course> batch) {
+        BatchResult result = new BatchResult();
+        if (courses.size() + batch.size() > courses.size() * 2) {
+            Map<String, Course> resized = new HashMap<>((int) ((courses.size() + batch.size()) / 0.75f) + 1);
+            resized.putAll(courses);
+            courses = resized;
+        }
+        
+        int index = 0;
+        for (Course course : batch) {
+            if (course == null) {
+                result.fail(index, "Course cannot be null");
+            } else if (courses.putIfAbsent(course.getCode().getCode(), course) != null) {
+                result.fail(index, "Course with code " + course.getCode().getCode() + " already exists");
+            } else {
+                indexCourse(course);
+                changeLog.courseAdded(course);
+                result.succeed();
+            }
+            index++;
+        }
+        return result;
     }
     
     @Override
@@ -37,11 +85,17 @@ public class CourseServiceImpl implements CourseService {
         Objects.requireNonNull(course, "Course cannot be null");
         
         String courseCode = course.getCode().getCode();
-        if (!courses.containsKey(courseCode)) {
+        Course existing = courses.get(courseCode);
+        if (existing == null) {
             throw new IllegalArgumentException("Course with code " + courseCode + " not found");
         }
         
+        course.adoptSeating(existing); // Seats and waitlist belong to the course, not the instance
         courses.put(courseCode, course);
+        indexCourse(course);
+        changeLog.courseUpdated(course);
+        // Enrolled students' credit totals follow the course's credits and semester
+        enrollmentIndex.courseUpdated(course);
     }
     
     @Override
@@ -49,6 +103,8 @@ public class CourseServiceImpl implements CourseService {
         Course course = courses.get(courseCode);
         if (course != null) {
             course.setActive(false);
+            registry.publish(course);
+            changeLog.courseDeactivated(courseCode);
         }
     }
     
@@ -57,35 +113,66 @@ public class CourseServiceImpl implements CourseService {
         return Optional.ofNullable(courses.get(courseCode));
     }
     
-    // Stream API with method references and lambda expressions
+    // Ranked, typo-tolerant search; all matches, best first
     @Override
     public List<Course> search(String query) {
-        return courses.values().stream()
-                .filter(course -> course.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                                course.getCode().getCode().toLowerCase().contains(query.toLowerCase()) ||
-                                course.getInstructor().toLowerCase().contains(query.toLowerCase()) ||
-                                course.getDepartment().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        return searchEngine.search(query, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Course> search(String query, int limit) {
+        return searchEngine.search(query, limit);
     }
     
     @Override
     public List<Course> findByInstructor(String instructor) {
-        return courses.values().stream()
-                .filter(course -> course.getInstructor().equalsIgnoreCase(instructor))
-                .collect(Collectors.toList());
+        return instructor == null ? new ArrayList<>() : byInstructor.get(instructor.toLowerCase());
     }
     
     @Override
     public List<Course> findByDepartment(String department) {
-        return courses.values().stream()
-                .filter(course -> course.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+        return department == null ? new ArrayList<>() : byDepartment.get(department.toLowerCase());
     }
     
     @Override
     public List<Course> findBySemester(Semester semester) {
-        return courses.values().stream()
-                .filter(course -> course.getSemester() == semester)
-                .collect(Collectors.toList());
+        return bySemester.get(semester);
+    }
+    
+    @Override
+    public List<Student> getRoster(String courseCode) {
+        Course course = courses.get(courseCode);
+        return course == null ? new ArrayList<>() : enrollmentIndex.getRoster(course);
+    }
+    
+    @Override
+    public int getEnrollmentCount(String courseCode) {
+        Course course = courses.get(courseCode);
+        return course == null ? 0 : enrollmentIndex.getEnrollmentCount(course);
+    }
+    
+    @Override
+    public Map<Grade, Long> getGradeDistribution(String courseCode) {
+        Course course = courses.get(courseCode);
+        return course == null ? new EnumMap<>(Grade.class) : enrollmentIndex.getGradeDistribution(course);
+    }
+    
+    @Override
+    public RegistrySnapshot snapshot() {
+        return registry.snapshot();
+    }
+    
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = Objects.requireNonNull(changeLog, "Change log cannot be null");
+    }
+    
+    // Re-key every index from the course's current state and publish it; old keys are tracked by the indexes
+    private void indexCourse(Course course) {
+        searchEngine.index(course);
+        byInstructor.put(course.getInstructor().toLowerCase(), course);
+        byDepartment.put(course.getDepartment().toLowerCase(), course);
+        bySemester.put(course.getSemester(), course);
+        registry.publish(course);
     }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Bidirectional enrollment index shared by the student and course services
+ * Keeps one Enrollment per student-course pair so roster queries cost O(class size).
+ * Also carries the services' shared VersionedRegistry, the read model reports run against.
+ */
+public class EnrollmentIndex {
+    // Initial size of a student's own map: there is one per student, and few hold more than a handful
+    private static final int STUDENT_ENTRIES = 4;
+    
+    private final Map<Course, Map<Student, Enrollment>> byCourse;
+    private final Map<Student, Map<Course, Enrollment>> byStudent;
+    private final boolean concurrent;
+    private final VersionedRegistry registry;
+    private volatile Consumer<Course> courseUpdateHandler;
+    
+    public EnrollmentIndex() {
+        this(false);
+    }
+    
+    private EnrollmentIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.byCourse = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.byStudent = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.registry = new VersionedRegistry();
+        this.courseUpdateHandler = course -> {};
+    }
+    
+    // Index for ConcurrentStudentService: safe for concurrent use as long as each student is only
+    // changed by one thread at a time. Students of one course are added to the roster without a
+    // shared lock; rosters come back in no particular order.
+    public static EnrollmentIndex concurrent() {
+        return new EnrollmentIndex(true);
+    }
+    
+    public boolean isConcurrent() { return concurrent; }
+    
+    public VersionedRegistry getRegistry() { return registry; }
+    
+    // Set by the student service sharing this index, to re-count its students when a course changes
+    public void onCourseUpdated(Consumer<Course> handler) {
+        this.courseUpdateHandler = Objects.requireNonNull(handler, "Handler cannot be null");
+    }
+    
+    // Called by the course service once a course's update is in place, outside its own locks
+    public void courseUpdated(Course course) {
+        courseUpdateHandler.accept(course);
+    }
+    
+    public Enrollment enroll(Student student, Course course) {
+        Enrollment enrollment = new Enrollment(student, course);
+        byCourse.computeIfAbsent(course, c -> newEntryMap(16)).put(student, enrollment);
+        byStudent.computeIfAbsent(student, s -> newEntryMap(STUDENT_ENTRIES)).put(course, enrollment);
+        return enrollment;
+    }
+    
+    private <K> Map<K, Enrollment> newEntryMap(int capacity) {
+        return concurrent ? new ConcurrentHashMap<>(capacity) : new LinkedHashMap<>(capacity);
+    }
+    
+    public void unenroll(Student student, Course course) {
+        Enrollment enrollment = removeEntry(byCourse, course, student);
+        removeEntry(byStudent, student, course);
+        if (enrollment != null) {
+            enrollment.setStatus(Enrollment.EnrollmentStatus.DROPPED);
+        }
+    }
+    
+    public void recordGrade(Student student, Course course, Grade grade) {
+        findEnrollment(student, course).ifPresent(enrollment -> {
+            enrollment.setGrade(grade);
+            enrollment.setStatus(Enrollment.EnrollmentStatus.COMPLETED);
+        });
+    }
+    
+    // Replace a student's entries with those of the (possibly new) registered instance
+    public void reindexStudent(Student previous, Student current) {
+        Map<Course, Enrollment> existing = byStudent.remove(previous);
+        if (existing != null) {
+            for (Course course : existing.keySet()) {
+                removeEntry(byCourse, course, previous);
+            }
+        }
+        
+        for (Course course : current.getEnrolledCoursesView()) {
+            Enrollment enrollment = enroll(current, course);
+            Grade grade = current.getGrade(course);
+            if (grade != null) {
+                enrollment.setGrade(grade);
+                enrollment.setStatus(Enrollment.EnrollmentStatus.COMPLETED);
+            }
+        }
+    }
+    
+    public Optional<Enrollment> findEnrollment(Student student, Course course) {
+        Map<Course, Enrollment> enrollments = byStudent.get(student);
+        return Optional.ofNullable(enrollments == null ? null : enrollments.get(course));
+    }
+    
+    public List<Enrollment> getEnrollments(Course course) {
+        Map<Student, Enrollment> roster = byCourse.get(course);
+        return roster == null ? new ArrayList<>() : new ArrayList<>(roster.values());
+    }
+    
+    public List<Enrollment> getEnrollments(Student student) {
+        Map<Course, Enrollment> enrollments = byStudent.get(student);
+        return enrollments == null ? new ArrayList<>() : new ArrayList<>(enrollments.values());
+    }
+    
+    public List<Student> getRoster(Course course) {
+        Map<Student, Enrollment> roster = byCourse.get(course);
+        return roster == null ? new ArrayList<>() : new ArrayList<>(roster.keySet());
+    }
+    
+    public int getEnrollmentCount(Course course) {
+        Map<Student, Enrollment> roster = byCourse.get(course);
+        return roster == null ? 0 : roster.size();
+    }
+    
+    // Grade counts for the course; ungraded enrollments are not counted
+    public Map<Grade, Long> getGradeDistribution(Course course) {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        Map<Student, Enrollment> roster = byCourse.get(course);
+        if (roster != null) {
+            for (Enrollment enrollment : roster.values()) {
+                if (enrollment.hasGrade()) {
+                    distribution.merge(enrollment.getGrade(), 1L, Long::sum);
+                }
+            }
+        }
+        return distribution;
+    }
+    
+    private <K, E> Enrollment removeEntry(Map<K, Map<E, Enrollment>> index, K key, E entry) {
+        Map<E, Enrollment> entries = index.get(key);
+        if (entries == null) {
+            return null;
+        }
+        Enrollment removed = entries.remove(entry);
+        // Concurrently, another thread may be adding to the map just found empty, so it is kept
+        if (entries.isEmpty() && !concurrent) {
+            index.remove(key);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,28 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+import java.util.Objects;
+
+/**
+ * One row of a bulk enrollment/grade load: a student, a course code and an optional grade
+ */
+public class GradeEntry {
+    private final String studentId;
+    private final String courseCode;
+    private final Grade grade;
+    
+    public GradeEntry(String studentId, String courseCode, Grade grade) {
+        this.studentId = Objects.requireNonNull(studentId, "Student ID cannot be null");
+        this.courseCode = Objects.requireNonNull(courseCode, "Course code cannot be null");
+        this.grade = grade; // null means enroll only
+    }
+    
+    public String getStudentId() { return studentId; }
+    public String getCourseCode() { return courseCode; }
+    public Grade getGrade() { return grade; }
+    
+    @Override
+    public String toString() {
+        return studentId + "/" + courseCode + (grade == null ? "" : "=" + grade.name());
+    }
+}
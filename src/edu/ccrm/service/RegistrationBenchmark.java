@@ -0,0 +1,154 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registration-day contention benchmark
+ * Many threads rush a few capped sections at once, then a share of the enrolled students drop so
+ * the waitlists are promoted. Runs the lock-free seat claim of ConcurrentStudentService against
+ * StudentServiceImpl behind one global lock, and checks after every round that no section was
+ * oversold and no seat sits empty while someone is waiting for it.
+ *
+ * Usage: java -cp bin edu.ccrm.service.RegistrationBenchmark [threads] [students] [capacity] [rounds]
+ */
+public final class RegistrationBenchmark {
+    private static final int SECTIONS = 4;
+    
+    private RegistrationBenchmark() {}
+    
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int studentCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        
+        System.out.printf("%d threads, %d students, %d sections of %d seats, %d rounds%n",
+                threads, studentCount, SECTIONS, capacity, rounds);
+        boolean ok = true;
+        for (int round = 1; round <= rounds; round++) {
+            // Alternate the order so neither side always runs on a cold JIT
+            boolean lockFreeFirst = round % 2 == 1;
+            ok &= run(lockFreeFirst, threads, studentCount, capacity, round);
+            ok &= run(!lockFreeFirst, threads, studentCount, capacity, round);
+        }
+        if (!ok) {
+            System.out.println("FAILED: seat accounting was inconsistent");
+            System.exit(1);
+        }
+    }
+    
+    private static boolean run(boolean lockFree, int threads, int studentCount, int capacity, int round)
+            throws InterruptedException {
+        StudentService service = lockFree ? new ConcurrentStudentService() : new StudentServiceImpl();
+        Object globalLock = lockFree ? null : new Object();
+        
+        List<Course> sections = new ArrayList<>();
+        for (int i = 0; i < SECTIONS; i++) {
+            sections.add(new Course.Builder(new CourseCode("RB" + (100 + i)), "Section " + i)
+                    .credits(3)
+                    .instructor("Staff")
+                    .semester(Semester.FALL)
+                    .department("Benchmark")
+                    .capacity(capacity)
+                    .build());
+        }
+        for (int i = 0; i < studentCount; i++) {
+            String id = "B" + i;
+            service.addStudent(new Student(id, new Name("Student", String.valueOf(i)), id + "@bench.edu", "REG" + i));
+        }
+        
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Rush: everyone wants section 0, some settle for another one as well
+                for (int i = first; i < studentCount; i += threads) {
+                    String id = "B" + i;
+                    Course course = sections.get(i % 5 == 0 ? 1 + i % (SECTIONS - 1) : 0);
+                    boolean got = enroll(service, globalLock, id, course);
+                    (got ? enrolled : waitlisted).incrementAndGet();
+                }
+                // Drop: every third student holding a seat in section 0 gives it up
+                for (int i = first; i < studentCount; i += threads) {
+                    if (i % 3 != 0) {
+                        continue;
+                    }
+                    String id = "B" + i;
+                    Course course = sections.get(0);
+                    try {
+                        if (globalLock == null) {
+                            service.unenrollStudentFromCourse(id, course);
+                        } else {
+                            synchronized (globalLock) {
+                                service.unenrollStudentFromCourse(id, course);
+                            }
+                        }
+                        dropped.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Not enrolled: still waitlisted, or promoted after this thread looked
+                    }
+                }
+            }, "registrar-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        
+        boolean consistent = true;
+        int seatsTaken = 0;
+        for (Course course : sections) {
+            int onRoster = 0;
+            for (Student student : service.getAllStudents()) {
+                if (student.isEnrolledIn(course)) {
+                    onRoster++;
+                }
+            }
+            seatsTaken += course.getSeatsTaken();
+            if (course.getSeatsTaken() > course.getCapacity() || course.getSeatsTaken() != onRoster
+                    || (course.hasWaitlist() && course.getAvailableSeats() > 0)) {
+                System.out.printf("  %s: %d seats taken, %d on roster, %d/%d, %d waiting%n", course.getCode(),
+                        course.getSeatsTaken(), onRoster, course.getSeatsTaken(), course.getCapacity(), course.getWaitlistSize());
+                consistent = false;
+            }
+        }
+        
+        int operations = studentCount + dropped.get();
+        System.out.printf("round %d %-10s %7.1f ms  %,10.0f ops/s  enrolled %d, waitlisted %d, dropped %d, seats held %d  %s%n",
+                round, lockFree ? "lock-free" : "global", elapsed / 1e6, operations / (elapsed / 1e9),
+                enrolled.get(), waitlisted.get(), dropped.get(), seatsTaken, consistent ? "ok" : "INCONSISTENT");
+        return consistent;
+    }
+    
+    // lock is null for the lock-free run
+    private static boolean enroll(StudentService service, Object lock, String studentId, Course course) {
+        try {
+            if (lock == null) {
+                return service.enrollOrWaitlist(studentId, course);
+            }
+            synchronized (lock) {
+                return service.enrollOrWaitlist(studentId, course);
+            }
+        } catch (DuplicateEnrollmentException e) {
+            throw new IllegalStateException("Each student registers once per run", e);
+        }
+    }
+}
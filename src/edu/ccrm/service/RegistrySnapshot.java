@@ -0,0 +1,154 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.util.PersistentMap;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * One consistent, immutable version of the student and course registry
+ * Holds a frozen record of every student and course as of one committed change, so a report can
+ * take its time over it while writers carry on; nothing in it changes after it is published.
+ * Get the latest one from StudentService.snapshot() or CourseService.snapshot(), and keep the
+ * reference for as long as several reports must agree with each other.
+ *
+ * Seat counts and waitlists are not included: they change without the student or course lock.
+ */
+public final class RegistrySnapshot {
+    static final RegistrySnapshot EMPTY = new RegistrySnapshot(0, PersistentMap.empty(), PersistentMap.empty());
+    
+    private final long version;
+    private final PersistentMap<String, StudentRecord> students;
+    private final PersistentMap<String, CourseRecord> courses;
+    
+    // A student as of one version; course codes in enrollment order
+    public static final class StudentRecord {
+        private final String id;
+        private final String regNo;
+        private final String fullName;
+        private final String email;
+        private final LocalDate createdDate;
+        private final Student.StudentStatus status;
+        private final boolean active;
+        private final double gpa;
+        private final int totalCredits;
+        private final List<String> courseCodes;
+        private final Map<String, Grade> grades;
+        
+        // Call while the student cannot change, e.g. under its service lock
+        static StudentRecord of(Student student) {
+            List<String> courseCodes = new ArrayList<>(student.getEnrolledCoursesView().size());
+            for (Course course : student.getEnrolledCoursesView()) {
+                courseCodes.add(course.getCode().getCode());
+            }
+            Map<String, Grade> grades = new HashMap<>();
+            student.getGradesView().forEach((course, grade) -> grades.put(course.getCode().getCode(), grade));
+            return new StudentRecord(student, List.copyOf(courseCodes), Map.copyOf(grades));
+        }
+        
+        private StudentRecord(Student student, List<String> courseCodes, Map<String, Grade> grades) {
+            this.id = student.getId();
+            this.regNo = student.getRegNo();
+            this.fullName = student.getName().getFullName();
+            this.email = student.getEmail();
+            this.createdDate = student.getCreatedDate();
+            this.status = student.getStatus();
+            this.active = student.isActive();
+            this.gpa = student.calculateGPA();
+            this.totalCredits = student.getTotalCredits();
+            this.courseCodes = courseCodes;
+            this.grades = grades;
+        }
+        
+        public String getId() { return id; }
+        public String getRegNo() { return regNo; }
+        public String getFullName() { return fullName; }
+        public String getEmail() { return email; }
+        public LocalDate getCreatedDate() { return createdDate; }
+        public Student.StudentStatus getStatus() { return status; }
+        public boolean isActive() { return active; }
+        public double getGpa() { return gpa; }
+        public int getTotalCredits() { return totalCredits; }
+        public List<String> getCourseCodes() { return courseCodes; }
+        public Map<String, Grade> getGrades() { return grades; }
+        public boolean hasGrades() { return !grades.isEmpty(); }
+    }
+    
+    // A catalogue entry as of one version
+    public static final class CourseRecord {
+        private final String code;
+        private final String title;
+        private final int credits;
+        private final String instructor;
+        private final String department;
+        private final Semester semester;
+        private final boolean active;
+        private final LocalDate createdDate;
+        
+        static CourseRecord of(Course course) {
+            return new CourseRecord(course);
+        }
+        
+        private CourseRecord(Course course) {
+            this.code = course.getCode().getCode();
+            this.title = course.getTitle();
+            this.credits = course.getCredits();
+            this.instructor = course.getInstructor();
+            this.department = course.getDepartment();
+            this.semester = course.getSemester();
+            this.active = course.isActive();
+            this.createdDate = course.getCreatedDate();
+        }
+        
+        public String getCode() { return code; }
+        public String getTitle() { return title; }
+        public int getCredits() { return credits; }
+        public String getInstructor() { return instructor; }
+        public String getDepartment() { return department; }
+        public Semester getSemester() { return semester; }
+        public boolean isActive() { return active; }
+        public LocalDate getCreatedDate() { return createdDate; }
+    }
+    
+    private RegistrySnapshot(long version, PersistentMap<String, StudentRecord> students,
+                             PersistentMap<String, CourseRecord> courses) {
+        this.version = version;
+        this.students = students;
+        this.courses = courses;
+    }
+    
+    // Counts committed changes; a later snapshot has a higher version
+    public long getVersion() { return version; }
+    
+    public List<StudentRecord> getStudents() {
+        return students.values();
+    }
+    
+    public Optional<StudentRecord> getStudent(String studentId) {
+        return Optional.ofNullable(students.get(studentId));
+    }
+    
+    public int getStudentCount() { return students.size(); }
+    
+    public List<CourseRecord> getCourses() {
+        return courses.values();
+    }
+    
+    public Optional<CourseRecord> getCourse(String courseCode) {
+        return Optional.ofNullable(courses.get(courseCode));
+    }
+    
+    public int getCourseCount() { return courses.size(); }
+    
+    RegistrySnapshot withStudent(StudentRecord record) {
+        return new RegistrySnapshot(version + 1, students.plus(record.getId(), record), courses);
+    }
+    
+    RegistrySnapshot withStudents(Map<String, StudentRecord> records) {
+        return new RegistrySnapshot(version + 1, students.plusAll(records), courses);
+    }
+    
+    RegistrySnapshot withCourse(CourseRecord record) {
+        return new RegistrySnapshot(version + 1, students, courses.plus(record.getCode(), record));
+    }
+}
@@ -0,0 +1,50 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseFullException;
+import edu.ccrm.domain.Student;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seat bookkeeping shared by the StudentService implementations
+ * Every enrolled course holds exactly one of its seats; these helpers keep it that way when a
+ * student is registered or replaced with its enrollments already filled in
+ */
+final class SeatAllocation {
+    private SeatAllocation() {}
+    
+    // Direct enrollment: needs a free seat, and nobody waiting for one already
+    static void claim(Course course) {
+        if (course.hasWaitlist() || !course.tryClaimSeat()) {
+            throw new CourseFullException(course.getCode().getCode(), course.getCapacity(), course.getWaitlistSize());
+        }
+    }
+    
+    // Claim seats for the courses replacement is enrolled in and existing (null for a new student) is not.
+    // All or nothing. Returns the courses existing gives up, whose seats the caller releases once committed.
+    static List<Course> claimChanged(Student existing, Student replacement) {
+        List<Course> claimed = new ArrayList<>();
+        try {
+            for (Course course : replacement.getEnrolledCoursesView()) {
+                if (existing == null || !existing.isEnrolledIn(course)) {
+                    claim(course);
+                    claimed.add(course);
+                }
+            }
+        } catch (RuntimeException e) {
+            claimed.forEach(Course::releaseSeat);
+            throw e;
+        }
+        
+        List<Course> released = new ArrayList<>();
+        if (existing != null && existing != replacement) {
+            for (Course course : existing.getEnrolledCoursesView()) {
+                if (!replacement.isEnrolledIn(course)) {
+                    released.add(course);
+                }
+            }
+        }
+        return released;
+    }
+}
@@ -1,19 +1,65 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseFullException;
+import edu.ccrm.domain.DuplicateEnrollmentException;
+import edu.ccrm.domain.Grade;
 import edu.ccrm.domain.Student;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Service interface for student operations
  */
 public interface StudentService extends Searchable<Student> {
     void addStudent(Student student);
+    BatchResult addStudents(Collection<Student> students);
     List<Student> getAllStudents();
     void updateStudent(Student student);
     void deactivateStudent(String studentId);
     Optional<Student> findByRegNo(String regNo);
-    void enrollStudentInCourse(String studentId, Course course);
+    // Takes a free seat or throws CourseFullException; students on the waitlist go first.
+    // Throws MaxCreditLimitExceededException past the per-semester credit cap (AppConfig).
+    void enrollStudentInCourse(String studentId, Course course) throws DuplicateEnrollmentException;
+    // Frees the seat for the first student on the course's waitlist
     void unenrollStudentFromCourse(String studentId, Course course);
+    // Recovery: put back an enrollment exactly as it was recorded, without the credit cap, capacity or
+    // waitlist checks that applied when it was granted (the cap may have been lowered since). Students
+    // loaded from a snapshot arrive already enrolled and skip the same checks.
+    void restoreEnrollment(String studentId, Course course) throws DuplicateEnrollmentException;
+    // Recovery: undo an enrollment as it was recorded; the freed seat promotes nobody
+    void restoreUnenrollment(String studentId, Course course);
+    void assignGrade(String studentId, Course course, Grade grade);
+    // Queue for a seat; true if one was free and the student is enrolled already.
+    // A waitlisted student who would be over the credit cap by the time a seat frees up is skipped.
+    boolean joinWaitlist(String studentId, Course course) throws DuplicateEnrollmentException;
+    void leaveWaitlist(String studentId, Course course);
+    // Promote waitlisted students into seats that are free, e.g. after the course's capacity was
+    // raised; returns the ids enrolled
+    List<String> fillWaitlist(Course course);
+    
+    // Run reader against the student while no other thread changes it; empty if there is no such student.
+    // Use it to walk a student's courses or grades when other threads may be writing.
+    default <T> Optional<T> readStudent(String studentId, Function<? super Student, ? extends T> reader) {
+        return findById(studentId).map(reader);
+    }
+    
+    // The latest committed version of every student and course; immutable, so reports can read it
+    // at leisure while writes go on
+    RegistrySnapshot snapshot();
+    
+    // Report every change from now on to changeLog, in order for each student (see ChangeLog)
+    void setChangeLog(ChangeLog changeLog);
+    
+    // Enroll if a seat is free, otherwise take a place on the waitlist; true if enrolled
+    default boolean enrollOrWaitlist(String studentId, Course course) throws DuplicateEnrollmentException {
+        try {
+            enrollStudentInCourse(studentId, course);
+            return true;
+        } catch (CourseFullException e) {
+            return joinWaitlist(studentId, course);
+        }
+    }
 }
\ No newline at end of file
@@ -1,20 +1,37 @@
 package edu.ccrm.service;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.*;
+import edu.ccrm.util.NGramIndex;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of StudentService demonstrating polymorphism
  * Uses collections and stream operations
  */
 public class StudentServiceImpl implements StudentService {
-    private final Map<String, Student> students;
-    private final Map<String, Student> studentsByRegNo;
+    private Map<String, Student> students;
+    private Map<String, Student> studentsByRegNo;
+    private final NGramIndex<Student> searchIndex;
+    private final EnrollmentIndex enrollmentIndex;
+    private final VersionedRegistry registry;
+    private final int maxSemesterCredits;
+    private ChangeLog changeLog;
     
     public StudentServiceImpl() {
+        this(new EnrollmentIndex());
+    }
+    
+    // Share the enrollment index with CourseServiceImpl for roster queries
+    public StudentServiceImpl(EnrollmentIndex enrollmentIndex) {
         this.students = new HashMap<>();
         this.studentsByRegNo = new HashMap<>();
+        this.searchIndex = new NGramIndex<>();
+        this.enrollmentIndex = Objects.requireNonNull(enrollmentIndex, "Enrollment index cannot be null");
+        this.registry = enrollmentIndex.getRegistry();
+        this.maxSemesterCredits = AppConfig.getInstance().getMaxCreditsPerSemester();
+        this.changeLog = ChangeLog.NONE;
+        enrollmentIndex.onCourseUpdated(this::refreshCourse);
     }
     
     @Override
@@ -29,8 +46,67 @@ public class StudentServiceImpl implements StudentService {
             throw new IllegalArgumentException("Student with registration number " + student.getRegNo() + " already exists");
         }
         
+        register(student);
+        indexForSearch(student);
+        registry.publish(student);
+    }
+    
+    // Bulk add: maps are sized once up front, and each record is checked against existing
+    // students and earlier records of the same batch in the same pass that inserts it. Search
+    // postings are left to the next search, and the registry publishes one version for the batch.
+    @Override
+    public BatchResult addStudents(Collection<Student> batch) {
+        BatchResult result = new BatchResult();
+        List<Student> added = new ArrayList<>(batch.size());
+        ensureCapacity(students.size() + batch.size());
+        
+        int index = 0;
+        for (Student student : batch) {
+            if (student == null) {
+                result.fail(index, "Student cannot be null");
+            } else if (students.containsKey(student.getId())) {
+                result.fail(index, "Student with ID " + student.getId() + " already exists");
+            } else if (studentsByRegNo.containsKey(student.getRegNo())) {
+                result.fail(index, "Student with registration number " + student.getRegNo() + " already exists");
+            } else {
+                try {
+                    register(student);
+                    added.add(student);
+                    result.succeed();
+                } catch (CourseFullException e) {
+                    result.fail(index, e.getMessage());
+                }
+            }
+            index++;
+        }
+        for (Student student : added) {
+            searchIndex.addDeferred(student, student.getName().getFullName(), student.getRegNo(), student.getId());
+        }
+        registry.publishAll(added);
+        return result;
+    }
+    
+    // Everything but search and the registry, which the callers batch differently
+    private void register(Student student) {
+        SeatAllocation.claimChanged(null, student);
         students.put(student.getId(), student);
         studentsByRegNo.put(student.getRegNo(), student);
+        enrollmentIndex.reindexStudent(student, student);
+        changeLog.studentAdded(student);
+    }
+    
+    // Rehash once to the final size instead of doubling repeatedly while a large batch goes in
+    private void ensureCapacity(int expected) {
+        if (expected > students.size() * 2) {
+            int capacity = (int) (expected / 0.75f) + 1;
+            Map<String, Student> resized = new HashMap<>(capacity);
+            resized.putAll(students);
+            students = resized;
+            Map<String, Student> resizedByRegNo = new HashMap<>(capacity);
+            resizedByRegNo.putAll(studentsByRegNo);
+            studentsByRegNo = resizedByRegNo;
+        }
+        searchIndex.ensureCapacity(expected);
     }
     
     @Override
@@ -47,18 +123,33 @@ public class StudentServiceImpl implements StudentService {
         }
         
         Student existing = students.get(student.getId());
-        studentsByRegNo.remove(existing.getRegNo());
+        String previousRegNo = indexedRegNo(existing);
+        if (!student.getRegNo().equals(previousRegNo) && studentsByRegNo.containsKey(student.getRegNo())) {
+            throw new IllegalArgumentException("Student with registration number " + student.getRegNo() + " already exists");
+        }
+        List<Course> released = SeatAllocation.claimChanged(existing, student);
+        studentsByRegNo.remove(previousRegNo);
         
         students.put(student.getId(), student);
         studentsByRegNo.put(student.getRegNo(), student);
+        indexForSearch(student);
+        enrollmentIndex.reindexStudent(existing, student);
+        registry.publish(student);
+        changeLog.studentUpdated(existing, student);
+        for (Course course : released) {
+            freeSeat(course);
+        }
     }
     
     @Override
     public void deactivateStudent(String studentId) {
         Student student = students.get(studentId);
         if (student != null) {
+            // Inactive students stay searchable, so the search index is left as is
             student.setActive(false);
             student.setStatus(Student.StudentStatus.INACTIVE);
+            registry.publish(student);
+            changeLog.studentDeactivated(studentId);
         }
     }
     
@@ -72,33 +163,171 @@ public class StudentServiceImpl implements StudentService {
         return Optional.ofNullable(studentsByRegNo.get(regNo));
     }
     
-    // Stream API demonstration with lambda expressions
+    // Substring search over name, regNo and id through the n-gram index
     @Override
     public List<Student> search(String query) {
-        return students.values().stream()
-                .filter(student -> student.getName().getFullName().toLowerCase().contains(query.toLowerCase()) ||
-                                 student.getRegNo().toLowerCase().contains(query.toLowerCase()) ||
-                                 student.getId().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        return searchIndex.search(query);
+    }
+    
+    // Re-count everyone enrolled in the course under its current credits and semester, and point
+    // them at the current instance; runs for every course update (EnrollmentIndex.courseUpdated)
+    private void refreshCourse(Course course) {
+        for (Student enrolled : enrollmentIndex.getRoster(course)) {
+            Student student = students.get(enrolled.getId());
+            if (student != null && student.refreshCourse(course)) {
+                enrollmentIndex.reindexStudent(student, student);
+                registry.publish(student);
+            }
+        }
+    }
+    
+    // The regNo the student is indexed under, i.e. the one last published: a caller that edited the
+    // stored instance in place (journal replay does) has already changed the instance's own regNo
+    private String indexedRegNo(Student existing) {
+        return registry.snapshot().getStudent(existing.getId())
+                .map(RegistrySnapshot.StudentRecord::getRegNo)
+                .orElse(existing.getRegNo());
+    }
+    
+    private void indexForSearch(Student student) {
+        searchIndex.add(student, student.getName().getFullName(), student.getRegNo(), student.getId());
     }
     
     @Override
-    public void enrollStudentInCourse(String studentId, Course course) {
+    public void enrollStudentInCourse(String studentId, Course course) throws DuplicateEnrollmentException {
+        Student student = students.get(studentId);
+        if (student == null) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+        
+        if (student.isEnrolledIn(course)) {
+            throw new DuplicateEnrollmentException(studentId, course.getCode().getCode());
+        }
+        student.checkCreditLimit(course, maxSemesterCredits); // Before taking a seat someone else could have
+        
+        SeatAllocation.claim(course);
+        try {
+            student.enrollInCourse(course, maxSemesterCredits);
+        } catch (DuplicateEnrollmentException | RuntimeException e) {
+            course.releaseSeat();
+            throw e;
+        }
+        enrollmentIndex.enroll(student, course);
+        registry.publish(student);
+        changeLog.enrolled(studentId, course);
+    }
+    
+    @Override
+    public void restoreEnrollment(String studentId, Course course) throws DuplicateEnrollmentException {
         Student student = students.get(studentId);
         if (student == null) {
             throw new IllegalArgumentException("Student not found: " + studentId);
         }
         
         student.enrollInCourse(course);
+        course.takeSeat();
+        enrollmentIndex.enroll(student, course);
+        registry.publish(student);
+        changeLog.enrolled(studentId, course);
     }
     
     @Override
     public void unenrollStudentFromCourse(String studentId, Course course) {
+        unenroll(studentId, course);
+        freeSeat(course);
+    }
+    
+    @Override
+    public void restoreUnenrollment(String studentId, Course course) {
+        unenroll(studentId, course);
+        course.releaseSeat();
+    }
+    
+    private void unenroll(String studentId, Course course) {
         Student student = students.get(studentId);
         if (student == null) {
             throw new IllegalArgumentException("Student not found: " + studentId);
         }
         
         student.unenrollFromCourse(course);
+        enrollmentIndex.unenroll(student, course);
+        registry.publish(student);
+        changeLog.unenrolled(studentId, course);
+    }
+    
+    @Override
+    public boolean joinWaitlist(String studentId, Course course) throws DuplicateEnrollmentException {
+        Student student = students.get(studentId);
+        if (student == null) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+        if (student.isEnrolledIn(course)) {
+            throw new DuplicateEnrollmentException(studentId, course.getCode().getCode());
+        }
+        student.checkCreditLimit(course, maxSemesterCredits);
+        
+        course.joinWaitlist(studentId, () -> changeLog.waitlistJoined(studentId, course));
+        fillWaitlist(course); // A seat may be free, e.g. after the capacity was raised
+        return student.isEnrolledIn(course);
+    }
+    
+    @Override
+    public void leaveWaitlist(String studentId, Course course) {
+        if (!course.leaveWaitlist(studentId)) {
+            throw new IllegalArgumentException("Student not on the waitlist for course: " + course.getCode());
+        }
+        changeLog.waitlistLeft(studentId, course);
+    }
+    
+    @Override
+    public List<String> fillWaitlist(Course course) {
+        return course.fillFromWaitlist(id -> promote(id, course));
+    }
+    
+    private void freeSeat(Course course) {
+        course.releaseSeat();
+        fillWaitlist(course);
+    }
+    
+    // Enroll a waitlisted student into the seat claimed for them; false if they can no longer take it,
+    // e.g. other enrollments since joining the waitlist have used up their credit allowance
+    private boolean promote(String studentId, Course course) {
+        Student student = students.get(studentId);
+        if (!course.removeFromWaitlist(studentId) || student == null) {
+            return false;
+        }
+        try {
+            student.enrollInCourse(course, maxSemesterCredits);
+        } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+            changeLog.waitlistLeft(studentId, course);
+            return false;
+        }
+        enrollmentIndex.enroll(student, course);
+        registry.publish(student);
+        changeLog.promoted(studentId, course);
+        return true;
+    }
+    
+    @Override
+    public void assignGrade(String studentId, Course course, Grade grade) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+        
+        student.assignGrade(course, grade);
+        enrollmentIndex.recordGrade(student, course, grade);
+        registry.publish(student);
+        changeLog.graded(studentId, course, grade);
+    }
+    
+    @Override
+    public RegistrySnapshot snapshot() {
+        return registry.snapshot();
+    }
+    
+    @Override
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = Objects.requireNonNull(changeLog, "Change log cannot be null");
     }
 }
\ No newline at end of file
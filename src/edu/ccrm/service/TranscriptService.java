@@ -9,8 +9,13 @@ import java.util.Map;
  */
 public interface TranscriptService {
     void recordGrade(String studentId, String courseCode, Grade grade);
+    BatchResult recordGrades(List<GradeEntry> entries);
     double calculateGPA(String studentId);
     String generateTranscript(String studentId);
+    // Reports read one immutable registry version and never block writers. The no-argument forms
+    // use the latest; pass one StudentService.snapshot() to several reports to have them agree.
     Map<String, Double> getGPADistribution();
-    List<Student> getTopStudents(int count);
+    Map<String, Double> getGPADistribution(RegistrySnapshot snapshot);
+    List<RegistrySnapshot.StudentRecord> getTopStudents(int count);
+    List<RegistrySnapshot.StudentRecord> getTopStudents(RegistrySnapshot snapshot, int count);
 }
\ No newline at end of file
@@ -41,7 +41,7 @@ public class TranscriptServiceImpl implements TranscriptService {
                     "Code", "Title", "Credits", "Grade", "Points"));
             transcript.append("-".repeat(60)).append("\n");
             
-            student.getGrades().entrySet().stream()
+            student.getGradesView().entrySet().stream()
                     .sorted(Map.Entry.comparingByKey((c1, c2) -> c1.getCode().getCode().compareTo(c2.getCode().getCode())))
                     .forEach(entry -> {
                         Course course = entry.getKey();
@@ -77,13 +77,57 @@ public class TranscriptServiceImpl implements TranscriptService {
     
     @Override
     public void recordGrade(String studentId, String courseCode, Grade grade) {
-        Student student = studentService.findById(studentId)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found: " + studentId));
-        
         Course course = courseService.findById(courseCode)
                 .orElseThrow(() -> new IllegalArgumentException("Course not found: " + courseCode));
         
-        student.assignGrade(course, grade);
+        // Goes through the student service so the enrollment index sees the grade
+        studentService.assignGrade(studentId, course, grade);
+    }
+    
+    // Bulk load: enrolls where needed and records grades, reporting failed rows instead of throwing
+    @Override
+    public BatchResult recordGrades(List<GradeEntry> entries) {
+        BatchResult result = new BatchResult();
+        
+        // Resolve each distinct course once per batch
+        Map<String, Course> courses = new HashMap<>();
+        for (GradeEntry entry : entries) {
+            courses.computeIfAbsent(entry.getCourseCode(), code -> courseService.findById(code).orElse(null));
+        }
+        
+        for (int i = 0; i < entries.size(); i++) {
+            GradeEntry entry = entries.get(i);
+            String studentId = entry.getStudentId();
+            Course course = courses.get(entry.getCourseCode());
+            // Checked under the student's lock, not on a Student instance another thread may be changing
+            Optional<Boolean> enrolled = studentService.readStudent(studentId,
+                    student -> course != null && student.isEnrolledIn(course));
+            if (enrolled.isEmpty()) {
+                result.fail(i, "Student not found: " + studentId);
+                continue;
+            }
+            if (course == null) {
+                result.fail(i, "Course not found: " + entry.getCourseCode());
+                continue;
+            }
+            
+            try {
+                if (!enrolled.get()) {
+                    try {
+                        studentService.enrollStudentInCourse(studentId, course);
+                    } catch (DuplicateEnrollmentException e) {
+                        // Enrolled by someone else since the check; the grade still applies
+                    }
+                }
+                if (entry.getGrade() != null) {
+                    studentService.assignGrade(studentId, course, entry.getGrade());
+                }
+                result.succeed();
+            } catch (RuntimeException e) {
+                result.fail(i, e.getMessage());
+            }
+        }
+        return result;
     }
     
     @Override
@@ -96,39 +140,47 @@ public class TranscriptServiceImpl implements TranscriptService {
     
     @Override
     public String generateTranscript(String studentId) {
-        Student student = studentService.findById(studentId)
+        // Builder pattern demonstration; built while the student's grades cannot change underneath
+        return studentService.readStudent(studentId, student -> new TranscriptBuilder(student)
+                        .addHeader()
+                        .addCourses()
+                        .addSummary()
+                        .build())
                 .orElseThrow(() -> new IllegalArgumentException("Student not found: " + studentId));
-        
-        // Builder pattern demonstration
-        return new TranscriptBuilder(student)
-                .addHeader()
-                .addCourses()
-                .addSummary()
-                .build();
     }
     
-    // Stream operations with aggregation
     @Override
     public Map<String, Double> getGPADistribution() {
-        return studentService.getAllStudents().stream()
+        return getGPADistribution(studentService.snapshot());
+    }
+    
+    // Stream operations with aggregation
+    @Override
+    public Map<String, Double> getGPADistribution(RegistrySnapshot snapshot) {
+        return snapshot.getStudents().stream()
                 .collect(Collectors.groupingBy(
                         student -> {
-                            double gpa = student.calculateGPA();
+                            double gpa = student.getGpa();
                             if (gpa >= 9.0) return "Excellent (9.0+)";
                             else if (gpa >= 8.0) return "Very Good (8.0-8.9)";
                             else if (gpa >= 7.0) return "Good (7.0-7.9)";
                             else if (gpa >= 6.0) return "Average (6.0-6.9)";
                             else return "Below Average (<6.0)";
                         },
-                        Collectors.averagingDouble(Student::calculateGPA)
+                        Collectors.averagingDouble(RegistrySnapshot.StudentRecord::getGpa)
                 ));
     }
     
     @Override
-    public List<Student> getTopStudents(int count) {
-        return studentService.getAllStudents().stream()
-                .filter(student -> !student.getGrades().isEmpty())
-                .sorted((s1, s2) -> Double.compare(s2.calculateGPA(), s1.calculateGPA()))
+    public List<RegistrySnapshot.StudentRecord> getTopStudents(int count) {
+        return getTopStudents(studentService.snapshot(), count);
+    }
+    
+    @Override
+    public List<RegistrySnapshot.StudentRecord> getTopStudents(RegistrySnapshot snapshot, int count) {
+        return snapshot.getStudents().stream()
+                .filter(RegistrySnapshot.StudentRecord::hasGrades)
+                .sorted((s1, s2) -> Double.compare(s2.getGpa(), s1.getGpa()))
                 .limit(count)
                 .collect(Collectors.toList());
     }
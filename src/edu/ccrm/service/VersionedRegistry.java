@@ -0,0 +1,58 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes a new RegistrySnapshot for every committed change to a student or course
+ * Writers copy only the path to the changed record and swap the root with a CAS, so they never
+ * wait for readers; readers take the current root with one volatile read and never wait for
+ * writers. Old versions are reclaimed by the garbage collector once no report holds them.
+ */
+public class VersionedRegistry {
+    private final AtomicReference<RegistrySnapshot> current;
+    
+    public VersionedRegistry() {
+        this.current = new AtomicReference<>(RegistrySnapshot.EMPTY);
+    }
+    
+    public RegistrySnapshot snapshot() {
+        return current.get();
+    }
+    
+    // Call after the change, while still holding the student's lock: the record is read then, and
+    // changes to one student are published in the order they were made
+    public void publish(Student student) {
+        RegistrySnapshot.StudentRecord record = RegistrySnapshot.StudentRecord.of(student);
+        update(snapshot -> snapshot.withStudent(record));
+    }
+    
+    // A batch as one new version; the caller holds the lock of every student in it
+    public void publishAll(Collection<Student> batch) {
+        Map<String, RegistrySnapshot.StudentRecord> records = new HashMap<>((int) (batch.size() / 0.75f) + 1);
+        for (Student student : batch) {
+            records.put(student.getId(), RegistrySnapshot.StudentRecord.of(student));
+        }
+        update(snapshot -> snapshot.withStudents(records));
+    }
+    
+    // Same contract for courses, under the catalogue's write lock
+    public void publish(Course course) {
+        RegistrySnapshot.CourseRecord record = RegistrySnapshot.CourseRecord.of(course);
+        update(snapshot -> snapshot.withCourse(record));
+    }
+    
+    private void update(UnaryOperator<RegistrySnapshot> change) {
+        RegistrySnapshot previous;
+        RegistrySnapshot next;
+        do {
+            previous = current.get();
+            next = change.apply(previous);
+        } while (!current.compareAndSet(previous, next));
+    }
+}
@@ -0,0 +1,99 @@
+package edu.ccrm.util;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Burkhard-Keller tree over Levenshtein distance
+ * Finds all stored words within a given edit distance without comparing against every word
+ */
+public class BKTree {
+    private Node root;
+    private int size;
+    
+    // Static nested class for tree nodes, children keyed by distance to the parent word
+    private static class Node {
+        private final String word;
+        private final Map<Integer, Node> children;
+        
+        Node(String word) {
+            this.word = word;
+            this.children = new HashMap<>(4);
+        }
+    }
+    
+    public void add(String word) {
+        Objects.requireNonNull(word, "Word cannot be null");
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+        
+        Node current = root;
+        while (true) {
+            int distance = distance(current.word, word);
+            if (distance == 0) {
+                return; // Already present
+            }
+            Node child = current.children.get(distance);
+            if (child == null) {
+                current.children.put(distance, new Node(word));
+                size++;
+                return;
+            }
+            current = child;
+        }
+    }
+    
+    // Visit every word within maxDistance edits of the query, with its distance
+    public void search(String query, int maxDistance, ObjIntConsumer<String> visitor) {
+        if (root == null) {
+            return;
+        }
+        
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(node.word, query);
+            if (distance <= maxDistance) {
+                visitor.accept(node.word, distance);
+            }
+            // Triangle inequality: only children at distance within [d - k, d + k] can match
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+    }
+    
+    public int size() { return size; }
+    
+    // Classic two-row Levenshtein distance
+    public static int distance(String a, String b) {
+        if (a.equals(b)) return 0;
+        if (a.isEmpty()) return b.length();
+        if (b.isEmpty()) return a.length();
+        
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,273 @@
+package edu.ccrm.util;
+
+import java.util.*;
+
+/**
+ * Inverted n-gram index for case-insensitive substring search
+ * Maps every 1-, 2- and 3-character gram of the indexed keys to the items containing it
+ *
+ * Items get an int ordinal; grams are packed into a long and posting lists are plain int arrays,
+ * so indexing allocates no per-gram objects. Removed ordinals are tombstoned and swept on rebuild.
+ *
+ * Items added with addDeferred get their postings on the next search (or indexDeferred), so a bulk
+ * load builds them in one pass, and not at all until someone searches. search only reads the index
+ * while hasDeferred() is false; callers sharing it between threads check that under their lock.
+ */
+public class NGramIndex<T> {
+    private static final int GRAM_LENGTH = 3;
+    private static final int MIN_REBUILD_TOMBSTONES = 1024;
+    
+    private final GramTable postings;
+    private Map<T, Integer> ordinals;
+    private final ArrayList<T> items;
+    private final ArrayList<String[]> keysByOrdinal;
+    private int tombstones;
+    private int indexedOrdinals; // Ordinals below this have their postings built
+    
+    public NGramIndex() {
+        this.postings = new GramTable();
+        this.ordinals = new HashMap<>();
+        this.items = new ArrayList<>();
+        this.keysByOrdinal = new ArrayList<>();
+    }
+    
+    // Index (or re-index) an item under the given searchable keys
+    public void add(T item, String... keys) {
+        addDeferred(item, keys);
+        indexDeferred();
+    }
+    
+    // Like add, but the postings are built later, by indexDeferred or the next search
+    public void addDeferred(T item, String... keys) {
+        Objects.requireNonNull(item, "Item cannot be null");
+        remove(item);
+        
+        String[] folded = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            folded[i] = keys[i].toLowerCase();
+        }
+        insert(item, folded);
+    }
+    
+    // Drop an item using the keys it was indexed under, not its current state
+    public void remove(T item) {
+        Integer ordinal = ordinals.remove(item);
+        if (ordinal == null) {
+            return;
+        }
+        
+        items.set(ordinal, null);
+        keysByOrdinal.set(ordinal, null);
+        if (++tombstones >= MIN_REBUILD_TOMBSTONES && tombstones > ordinals.size()) {
+            rebuild();
+        }
+    }
+    
+    public boolean hasDeferred() {
+        return indexedOrdinals < items.size();
+    }
+    
+    // Build the postings of every item added with addDeferred, in ordinal order
+    public void indexDeferred() {
+        for (; indexedOrdinals < items.size(); indexedOrdinals++) {
+            String[] keys = keysByOrdinal.get(indexedOrdinals);
+            if (keys == null) continue; // Removed before it was indexed
+            for (String key : keys) {
+                for (int start = 0; start < key.length(); start++) {
+                    int maxEnd = Math.min(key.length(), start + GRAM_LENGTH);
+                    for (int end = start + 1; end <= maxEnd; end++) {
+                        postings.append(pack(key, start, end), indexedOrdinals);
+                    }
+                }
+            }
+        }
+    }
+    
+    // Items with at least one key containing the query, ignoring case
+    public List<T> search(String query) {
+        indexDeferred();
+        String folded = query.toLowerCase();
+        List<T> results = new ArrayList<>();
+        if (folded.isEmpty()) {
+            for (T item : items) {
+                if (item != null) results.add(item);
+            }
+            return results;
+        }
+        
+        // Short queries are grams themselves, so their posting list is the exact answer
+        if (folded.length() <= GRAM_LENGTH) {
+            int slot = postings.find(pack(folded, 0, folded.length()));
+            if (slot >= 0) {
+                int[] list = postings.lists[slot];
+                for (int i = 0, n = postings.sizes[slot]; i < n; i++) {
+                    T item = items.get(list[i]);
+                    if (item != null) results.add(item);
+                }
+            }
+            return results;
+        }
+        
+        // Longer queries: drive from the rarest trigram and verify each candidate
+        int rarest = -1;
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            int slot = postings.find(pack(folded, i, i + GRAM_LENGTH));
+            if (slot < 0) {
+                return results;
+            }
+            if (rarest < 0 || postings.sizes[slot] < postings.sizes[rarest]) {
+                rarest = slot;
+            }
+        }
+        
+        int[] candidates = postings.lists[rarest];
+        for (int i = 0, n = postings.sizes[rarest]; i < n; i++) {
+            String[] keys = keysByOrdinal.get(candidates[i]);
+            if (keys == null) continue;
+            for (String key : keys) {
+                if (key.contains(folded)) {
+                    results.add(items.get(candidates[i]));
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+    
+    public int size() { return ordinals.size(); }
+    
+    // Size the item tables for an expected total up front, e.g. before a bulk load
+    public void ensureCapacity(int expectedItems) {
+        if (expectedItems > ordinals.size() * 2) {
+            Map<T, Integer> resized = new HashMap<>((int) (expectedItems / 0.75f) + 1);
+            resized.putAll(ordinals);
+            ordinals = resized;
+        }
+        items.ensureCapacity(expectedItems + tombstones);
+        keysByOrdinal.ensureCapacity(expectedItems + tombstones);
+    }
+    
+    private void insert(T item, String[] folded) {
+        int ordinal = items.size();
+        items.add(item);
+        keysByOrdinal.add(folded);
+        ordinals.put(item, ordinal);
+    }
+    
+    // Re-number live items and drop tombstoned ordinals from every posting list; deferred items are
+    // indexed along the way, so remove never leaves postings to build
+    private void rebuild() {
+        List<T> liveItems = new ArrayList<>(ordinals.size());
+        List<String[]> liveKeys = new ArrayList<>(ordinals.size());
+        for (int ordinal = 0; ordinal < items.size(); ordinal++) {
+            if (items.get(ordinal) != null) {
+                liveItems.add(items.get(ordinal));
+                liveKeys.add(keysByOrdinal.get(ordinal));
+            }
+        }
+        
+        postings.clear();
+        ordinals.clear();
+        items.clear();
+        keysByOrdinal.clear();
+        tombstones = 0;
+        indexedOrdinals = 0;
+        for (int i = 0; i < liveItems.size(); i++) {
+            insert(liveItems.get(i), liveKeys.get(i));
+        }
+        indexDeferred();
+    }
+    
+    // Up to three UTF-16 chars plus the length, packed into one long
+    private static long pack(String key, int start, int end) {
+        long packed = end - start;
+        for (int i = start; i < end; i++) {
+            packed = (packed << 16) | key.charAt(i);
+        }
+        return packed;
+    }
+    
+    // Open-addressing map from packed gram to a growable int posting list
+    private static class GramTable {
+        private static final long EMPTY = 0L; // pack() never yields 0: the length is always >= 1
+        
+        private long[] keys;
+        private int[][] lists;
+        private int[] sizes;
+        private int used;
+        
+        GramTable() {
+            clear();
+        }
+        
+        void clear() {
+            keys = new long[1024];
+            lists = new int[1024][];
+            sizes = new int[1024];
+            used = 0;
+        }
+        
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return slot;
+                if (keys[slot] == EMPTY) return -1;
+            }
+        }
+        
+        void append(long key, int ordinal) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != key && keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                lists[slot] = new int[4];
+                if (++used * 2 > keys.length) {
+                    grow();
+                    slot = find(key);
+                }
+            }
+            
+            int size = sizes[slot];
+            int[] list = lists[slot];
+            if (size > 0 && list[size - 1] == ordinal) {
+                return; // Gram repeats within the same item
+            }
+            if (size == list.length) {
+                list = Arrays.copyOf(list, size * 2);
+                lists[slot] = list;
+            }
+            list[size] = ordinal;
+            sizes[slot] = size + 1;
+        }
+        
+        private void grow() {
+            long[] oldKeys = keys;
+            int[][] oldLists = lists;
+            int[] oldSizes = sizes;
+            keys = new long[oldKeys.length * 2];
+            lists = new int[keys.length][];
+            sizes = new int[keys.length];
+            
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                lists[slot] = oldLists[i];
+                sizes[slot] = oldSizes[i];
+            }
+        }
+        
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package edu.ccrm.util;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map with cheap modified copies (a hash array mapped trie)
+ * plus and minus return a new map and leave this one untouched; the two share every node off the
+ * changed path, so a copy costs O(log32 n) small arrays instead of a full rehash. That makes it
+ * safe to hand one version to readers while writers go on producing the next.
+ * Keys must not be null and must not change their hashCode while in a map.
+ */
+public final class PersistentMap<K, V> {
+    private static final int BITS = 5; // 32-way branching, one hash slice per level
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new Node(0, new Object[0]), 0);
+    
+    private final Node root;
+    private final int size;
+    
+    // Slots hold a Leaf, a Collision or a child Node, ordered by their bit in the bitmap
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+        
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+    
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+        
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+    
+    // Keys whose full 32-bit hashes are equal
+    private static final class Collision {
+        final int hash;
+        final Leaf[] leaves;
+        
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+    
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+    
+    public int size() { return size; }
+    
+    public boolean isEmpty() { return size == 0; }
+    
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = find(key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+    
+    // A copy with key mapped to value
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "Key cannot be null");
+        Leaf existing = find(key);
+        if (existing != null && existing.value == value) {
+            return this;
+        }
+        Node updated = insert(root, 0, new Leaf(hash(key), key, value));
+        return new PersistentMap<>(updated, existing == null ? size + 1 : size);
+    }
+    
+    // A copy with every entry added. Into an empty map the trie is built bottom-up in one pass,
+    // each node allocated once, instead of copying a path per key
+    public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> entries) {
+        if (!isEmpty() || entries.size() < 2) {
+            PersistentMap<K, V> result = this;
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                result = result.plus(entry.getKey(), entry.getValue());
+            }
+            return result;
+        }
+        
+        Leaf[] leaves = new Leaf[entries.size()];
+        int next = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            K key = Objects.requireNonNull(entry.getKey(), "Key cannot be null");
+            leaves[next++] = new Leaf(hash(key), key, entry.getValue());
+        }
+        return new PersistentMap<>(build(leaves, 0, leaves.length, 0, new Leaf[leaves.length]), leaves.length);
+    }
+    
+    // A copy without key
+    public PersistentMap<K, V> minus(Object key) {
+        if (find(key) == null) {
+            return this;
+        }
+        Object updated = remove(root, 0, hash(key), key);
+        return updated == null ? empty() : new PersistentMap<>((Node) updated, size - 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, (BiConsumer<Object, Object>) action);
+    }
+    
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+    
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+    
+    private static int index(Node node, int bit) {
+        return Integer.bitCount(node.bitmap & (bit - 1));
+    }
+    
+    private Leaf find(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[index(node, bit)];
+            if (slot instanceof Node child) {
+                node = child;
+            } else if (slot instanceof Leaf leaf) {
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+            } else {
+                Collision collision = (Collision) slot;
+                if (collision.hash == hash) {
+                    for (Leaf leaf : collision.leaves) {
+                        if (leaf.key.equals(key)) {
+                            return leaf;
+                        }
+                    }
+                }
+                return null;
+            }
+        }
+    }
+    
+    // Path copy: returns a new node for every level from here down to the changed slot
+    private static Node insert(Node node, int shift, Leaf leaf) {
+        int bit = bit(leaf.hash, shift);
+        int index = index(node, bit);
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+        
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node child) {
+            replacement = insert(child, shift + BITS, leaf);
+        } else if (slot instanceof Leaf existing) {
+            replacement = existing.hash == leaf.hash && existing.key.equals(leaf.key)
+                    ? leaf
+                    : split(existing, existing.hash, leaf, shift + BITS);
+        } else {
+            Collision collision = (Collision) slot;
+            replacement = collision.hash == leaf.hash
+                    ? withLeaf(collision, leaf)
+                    : split(collision, collision.hash, leaf, shift + BITS);
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+    
+    // A subtree holding both the existing slot (a Leaf or Collision) and the new leaf
+    private static Object split(Object existing, int existingHash, Leaf leaf, int shift) {
+        if (existingHash == leaf.hash) {
+            return new Collision(leaf.hash, new Leaf[] { (Leaf) existing, leaf });
+        }
+        // The hashes differ, so they part ways by the last level (shift 30)
+        int existingBit = bit(existingHash, shift);
+        int leafBit = bit(leaf.hash, shift);
+        if (existingBit == leafBit) {
+            return new Node(existingBit, new Object[] { split(existing, existingHash, leaf, shift + BITS) });
+        }
+        Object[] slots = Integer.compareUnsigned(existingBit, leafBit) < 0
+                ? new Object[] { existing, leaf }
+                : new Object[] { leaf, existing };
+        return new Node(existingBit | leafBit, slots);
+    }
+    
+    // The node for leaves[from, to), whose keys are distinct and share their hash below shift:
+    // bucket them by the slice at shift, then give each bucket a Leaf, a Collision or a child node
+    private static Node build(Leaf[] leaves, int from, int to, int shift, Leaf[] scratch) {
+        int[] starts = new int[MASK + 2];
+        for (int i = from; i < to; i++) {
+            starts[((leaves[i].hash >>> shift) & MASK) + 1]++;
+        }
+        int bitmap = 0;
+        int slotCount = 0;
+        for (int b = 0; b <= MASK; b++) {
+            if (starts[b + 1] > 0) {
+                bitmap |= 1 << b;
+                slotCount++;
+            }
+            starts[b + 1] += starts[b];
+        }
+        int[] fill = Arrays.copyOf(starts, MASK + 1);
+        for (int i = from; i < to; i++) {
+            scratch[from + fill[(leaves[i].hash >>> shift) & MASK]++] = leaves[i];
+        }
+        System.arraycopy(scratch, from, leaves, from, to - from);
+        
+        Object[] slots = new Object[slotCount];
+        int next = 0;
+        for (int b = 0; b <= MASK; b++) {
+            int start = from + starts[b];
+            int end = from + starts[b + 1];
+            if (start == end) {
+                continue;
+            }
+            if (end - start == 1) {
+                slots[next++] = leaves[start];
+            } else if (sameHash(leaves, start, end)) {
+                slots[next++] = new Collision(leaves[start].hash, Arrays.copyOfRange(leaves, start, end));
+            } else {
+                slots[next++] = build(leaves, start, end, shift + BITS, scratch);
+            }
+        }
+        return new Node(bitmap, slots);
+    }
+    
+    private static boolean sameHash(Leaf[] leaves, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (leaves[i].hash != leaves[from].hash) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static Collision withLeaf(Collision collision, Leaf leaf) {
+        Leaf[] leaves = collision.leaves;
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].key.equals(leaf.key)) {
+                Leaf[] replaced = leaves.clone();
+                replaced[i] = leaf;
+                return new Collision(collision.hash, replaced);
+            }
+        }
+        Leaf[] added = Arrays.copyOf(leaves, leaves.length + 1);
+        added[leaves.length] = leaf;
+        return new Collision(collision.hash, added);
+    }
+    
+    // The key must be present. Returns the new node, null if it is left empty, or a lone Leaf or
+    // Collision to be pulled up into the parent (never at the root, shift 0)
+    private static Object remove(Node node, int shift, int hash, Object key) {
+        int bit = bit(hash, shift);
+        int index = index(node, bit);
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node child) {
+            replacement = remove(child, shift + BITS, hash, key);
+        } else if (slot instanceof Leaf) {
+            replacement = null;
+        } else {
+            replacement = withoutLeaf((Collision) slot, key);
+        }
+        
+        if (replacement == null) {
+            if (node.slots.length == 1) {
+                return null;
+            }
+            if (node.slots.length == 2 && shift > 0 && !(node.slots[index ^ 1] instanceof Node)) {
+                return node.slots[index ^ 1];
+            }
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+            return new Node(node.bitmap & ~bit, slots);
+        }
+        if (!(replacement instanceof Node) && node.slots.length == 1 && shift > 0) {
+            return replacement;
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+    
+    private static Object withoutLeaf(Collision collision, Object key) {
+        Leaf[] leaves = collision.leaves;
+        if (leaves.length == 2) {
+            return leaves[0].key.equals(key) ? leaves[1] : leaves[0];
+        }
+        Leaf[] remaining = new Leaf[leaves.length - 1];
+        int next = 0;
+        for (Leaf leaf : leaves) {
+            if (!leaf.key.equals(key)) {
+                remaining[next++] = leaf;
+            }
+        }
+        return new Collision(collision.hash, remaining);
+    }
+    
+    private static void forEach(Node node, BiConsumer<Object, Object> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Node child) {
+                forEach(child, action);
+            } else if (slot instanceof Leaf leaf) {
+                action.accept(leaf.key, leaf.value);
+            } else {
+                for (Leaf leaf : ((Collision) slot).leaves) {
+                    action.accept(leaf.key, leaf.value);
+                }
+            }
+        }
+    }
+}
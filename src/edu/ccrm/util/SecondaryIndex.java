@@ -0,0 +1,59 @@
+package edu.ccrm.util;
+
+import java.util.*;
+
+/**
+ * One-to-many secondary index from an attribute key to the values carrying it
+ * Remembers each value's current key so re-keying works even after the value was mutated
+ */
+public class SecondaryIndex<K, V> {
+    private final Map<K, Set<V>> buckets;
+    private final Map<V, K> keysByValue;
+    
+    public SecondaryIndex() {
+        this(new HashMap<>());
+    }
+    
+    // Lets callers pick the bucket map, e.g. an EnumMap for enum keys
+    public SecondaryIndex(Map<K, Set<V>> buckets) {
+        this.buckets = Objects.requireNonNull(buckets, "Bucket map cannot be null");
+        this.keysByValue = new HashMap<>();
+    }
+    
+    // Add a value under a key, moving it out of its previous bucket if needed
+    public void put(K key, V value) {
+        Objects.requireNonNull(value, "Value cannot be null");
+        remove(value);
+        buckets.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(value);
+        keysByValue.put(value, key);
+    }
+    
+    public void remove(V value) {
+        if (!keysByValue.containsKey(value)) {
+            return;
+        }
+        
+        K key = keysByValue.remove(value);
+        Set<V> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(value);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+    
+    public List<V> get(K key) {
+        Set<V> bucket = buckets.get(key);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+    
+    public int count(K key) {
+        Set<V> bucket = buckets.get(key);
+        return bucket == null ? 0 : bucket.size();
+    }
+    
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+}
@@ -0,0 +1,48 @@
+package edu.ccrm.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter, e.g. for bytes of background I/O per second
+ * Tokens refill continuously up to `burst`. A request larger than what is available is granted
+ * at once and leaves the bucket in debt, and the caller sleeps until that debt is paid off,
+ * so any request size works and the long-run rate never exceeds `ratePerSecond`.
+ */
+public class TokenBucket {
+    private final long ratePerSecond;
+    private final long burst;
+    private double tokens;
+    private long lastRefillNanos;
+    
+    public TokenBucket(long ratePerSecond, long burst) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+    
+    // Take permits, sleeping as long as needed to stay within the rate
+    public void acquire(long permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= permits;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / ratePerSecond);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos); // Outside the lock, so other callers can queue up their debt
+        }
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * ratePerSecond / 1e9);
+        lastRefillNanos = now;
+    }
+    
+    public long getRatePerSecond() { return ratePerSecond; }
+    public long getBurst() { return burst; }
+}